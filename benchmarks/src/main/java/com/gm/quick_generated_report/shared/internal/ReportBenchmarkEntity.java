@@ -0,0 +1,56 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportBenchmarkEntity.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Entità rappresentativa utilizzata dai benchmark, con una colonna per ciascuno dei tipi di dati supportati dalla classe `RowSheet`.
+ */
+public class ReportBenchmarkEntity {
+
+	private static final String[] CATEGORIES = { "NORD", "CENTRO", "SUD", "ISOLE" };
+
+	private Long id;
+	private String code;
+	private String description;
+	private String category;
+	private Integer quantity;
+	private Double weight;
+	private BigDecimal amount;
+	private Boolean active;
+	private Date createdDate;
+	private Date updatedDate;
+
+	/**
+     * Crea la lista delle righe dei benchmark con valori deterministici.
+     *
+     * @param rows Il numero di righe.
+     * @return La lista delle righe.
+     */
+	public static List<ReportBenchmarkEntity> createRows(int rows) {
+		List<ReportBenchmarkEntity> reportRows = new ArrayList<>(rows);
+		long baseTime = 1_600_000_000_000L;
+		for (int i = 0; i < rows; i++) {
+			ReportBenchmarkEntity reportRow = new ReportBenchmarkEntity();
+			reportRow.id = (long) i;
+			reportRow.code = "COD-" + i;
+			reportRow.description = "Descrizione della riga " + i + ", con separatore";
+			reportRow.category = CATEGORIES[i % CATEGORIES.length];
+			reportRow.quantity = i % 1000;
+			reportRow.weight = i * 0.25d;
+			reportRow.amount = BigDecimal.valueOf(i, 2);
+			reportRow.active = i % 2 == 0;
+			reportRow.createdDate = new Date(baseTime + i * 60_000L);
+			reportRow.updatedDate = i % 10 == 0 ? null : new Date(baseTime + i * 120_000L);
+			reportRows.add(reportRow);
+		}
+		return reportRows;
+	}
+}
@@ -0,0 +1,28 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportBenchmarkRunner.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto di ingresso del jar dei benchmark: esegue i benchmark JMH con il profilatore delle allocazioni (`-prof gc`) sempre abilitato.<br>
+ * Accetta le stesse opzioni della riga di comando di JMH, ad esempio la regex dei benchmark da eseguire o `-rf json -rff result.json`.
+ */
+public class ReportBenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		Options commandLineOptions = new CommandLineOptions(args);
+		Options options = new OptionsBuilder()
+				.parent(commandLineOptions)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,37 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportClassGenerationColdBenchmark.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bld.generator.report.excel.RowSheet;
+import bld.generator.report.excel.SheetData;
+
+/**
+ * Benchmark della prima generazione delle classi `RowSheet` e `SheetData` di un'entità in una nuova JVM.<br>
+ * Le classi generate sono memorizzate per tutta la vita della JVM: ogni fork misura quindi una sola generazione, con la cache su disco disabilitata.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 20, jvmArgsAppend = "-Dquick-generated-report.class-cache.enabled=false")
+public class ReportClassGenerationColdBenchmark {
+
+	@Benchmark
+	public Class<? extends SheetData<? extends RowSheet>> generateReportClasses() throws Exception {
+		Class<? extends RowSheet> rowClass = ReportRowClassGenerator.generateReportRowClass(ReportBenchmarkEntity.class);
+		return ReportSheetClassGenerator.generateReportSheetClass(ReportBenchmarkEntity.class, rowClass);
+	}
+}
@@ -0,0 +1,53 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportClassGenerationWarmBenchmark.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bld.generator.report.excel.RowSheet;
+import bld.generator.report.excel.SheetData;
+
+/**
+ * Benchmark delle richieste successive alla prima delle classi `RowSheet` e `SheetData` di un'entità, già generate e memorizzate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Dquick-generated-report.class-cache.enabled=false")
+public class ReportClassGenerationWarmBenchmark {
+
+	private Class<? extends RowSheet> rowClass;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		rowClass = ReportRowClassGenerator.generateReportRowClass(ReportBenchmarkEntity.class);
+		ReportSheetClassGenerator.generateReportSheetClass(ReportBenchmarkEntity.class, rowClass);
+	}
+
+	@Benchmark
+	public Class<? extends RowSheet> generateReportRowClass() throws Exception {
+		return ReportRowClassGenerator.generateReportRowClass(ReportBenchmarkEntity.class);
+	}
+
+	@Benchmark
+	public Class<? extends SheetData<? extends RowSheet>> generateReportSheetClass() throws Exception {
+		return ReportSheetClassGenerator.generateReportSheetClass(ReportBenchmarkEntity.class, rowClass);
+	}
+}
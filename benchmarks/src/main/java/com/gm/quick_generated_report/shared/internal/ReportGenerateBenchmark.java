@@ -0,0 +1,57 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportGenerateBenchmark.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark della generazione completa di un report statico nei formati XLSX e CSV, dalla lista delle righe dell'entità al file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ReportGenerateBenchmark {
+
+	@Param({ "1000", "100000" })
+	private int rows;
+
+	private ReportBuilder reportBuilder;
+	private List<ReportBenchmarkEntity> reportRows;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		reportBuilder = ReportBuilder.getInstance();
+		reportRows = ReportBenchmarkEntity.createRows(rows);
+		reportBuilder.warmUp(ReportBenchmarkEntity.class);
+	}
+
+	@Benchmark
+	public byte[] generateXlsx() throws Exception {
+		return reportBuilder.build(ReportBenchmarkEntity.class, "benchmark", reportRows).generateXlsx();
+	}
+
+	@Benchmark
+	public byte[] generateCsv() throws Exception {
+		return reportBuilder.build(ReportBenchmarkEntity.class, "benchmark", reportRows).generateCsv();
+	}
+}
@@ -0,0 +1,82 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportQueryBuilderBenchmark.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gm.quick_generated_report.shared.internal.ReportQueryCondition.LikeConditionDirection;
+import com.gm.quick_generated_report.shared.internal.ReportQueryOrder.OrderDirection;
+
+/**
+ * Benchmark della costruzione della query di un report con `ReportQueryBuilder.build` al crescere del numero di condizioni,
+ * con valori letterali e con parametri nominali.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ReportQueryBuilderBenchmark {
+
+	@Param({ "10", "100" })
+	private int conditions;
+
+	private ReportBuilder reportBuilder;
+	private List<ReportQueryCondition> reportConditions;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		reportBuilder = ReportBuilder.getInstance();
+		reportConditions = new ArrayList<>(conditions);
+		for (int i = 0; i < conditions; i++) {
+			switch (i % 6) {
+			case 0: reportConditions.add(ReportQueryCondition.equalsTo("category", "NORD")); break;
+			case 1: reportConditions.add(ReportQueryCondition.greaterThen(true, "amount", BigDecimal.valueOf(i))); break;
+			case 2: reportConditions.add(ReportQueryCondition.lessThen(false, "createdDate", new Date(1_600_000_000_000L + i))); break;
+			case 3: reportConditions.add(ReportQueryCondition.like(LikeConditionDirection.CENTER, "description", "riga " + i)); break;
+			case 4: reportConditions.add(ReportQueryCondition.inList("quantity", Arrays.asList(i, i + 1, i + 2))); break;
+			default: reportConditions.add(ReportQueryCondition.isNotNull("updatedDate")); break;
+			}
+		}
+	}
+
+	@Benchmark
+	public ReportGeneratorBuilder buildLiteral() {
+		ReportQueryBuilder reportQueryBuilder = reportBuilder.buildWithCondition(ReportBenchmarkEntity.class, "benchmark");
+		for (ReportQueryCondition reportCondition : reportConditions) {
+			reportQueryBuilder.addCondition(reportCondition);
+		}
+		return reportQueryBuilder.build(ReportQueryOrder.orderBy(OrderDirection.ASC, "id"));
+	}
+
+	@Benchmark
+	public ReportGeneratorBuilder buildBindParameters() {
+		ReportQueryBuilder reportQueryBuilder = reportBuilder.buildWithCondition(ReportBenchmarkEntity.class, "benchmark").bindParameters();
+		for (ReportQueryCondition reportCondition : reportConditions) {
+			reportQueryBuilder.addCondition(reportCondition);
+		}
+		return reportQueryBuilder.build(ReportQueryOrder.orderBy(OrderDirection.ASC, "id"));
+	}
+}
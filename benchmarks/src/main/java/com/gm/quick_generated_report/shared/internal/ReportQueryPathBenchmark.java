@@ -0,0 +1,149 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportQueryPathBenchmark.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gm.quick_generated_report.shared.internal.ReportQueryOrder.OrderDirection;
+
+import bld.generator.report.excel.RowSheet;
+
+/**
+ * Benchmark della generazione di un report con query nei formati XLSX e CSV, dalla costruzione della query JPQL alla lettura in streaming
+ * delle righe e alla scrittura del file.<br>
+ * Il database è sostituito da un `EntityManagerFactory` in memoria che restituisce le righe della classe generata già create, per cui il
+ * benchmark misura il percorso della libreria senza i tempi del driver e della rete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ReportQueryPathBenchmark {
+
+	@Param({ "1000", "100000" })
+	private int rows;
+
+	private ReportBuilder reportBuilder;
+	private List<ReportBenchmarkEntity> reportRows;
+	private final Map<Class<?>, List<Object>> resultRows = new ConcurrentHashMap<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		reportBuilder = ReportBuilder.getInstance();
+		reportRows = ReportBenchmarkEntity.createRows(rows);
+		reportBuilder.setEntityManagerFactory(entityManagerFactory());
+		reportBuilder.warmUp(ReportBenchmarkEntity.class);
+	}
+
+	@Benchmark
+	public byte[] generateXlsx() throws Exception {
+		return reportBuilder.buildWithCondition(ReportBenchmarkEntity.class, "benchmark")
+				.addCondition(ReportQueryCondition.equalsTo("category", "NORD"))
+				.build(ReportQueryOrder.orderBy(OrderDirection.ASC, "id"))
+				.generateXlsx();
+	}
+
+	@Benchmark
+	public byte[] generateCsv() throws Exception {
+		return reportBuilder.buildWithCondition(ReportBenchmarkEntity.class, "benchmark")
+				.addCondition(ReportQueryCondition.equalsTo("category", "NORD"))
+				.build(ReportQueryOrder.orderBy(OrderDirection.ASC, "id"))
+				.generateCsv();
+	}
+
+	@Benchmark
+	public byte[] generateCsvBindParameters() throws Exception {
+		return reportBuilder.buildWithCondition(ReportBenchmarkEntity.class, "benchmark").bindParameters()
+				.addCondition(ReportQueryCondition.equalsTo("category", "NORD"))
+				.build(ReportQueryOrder.orderBy(OrderDirection.ASC, "id"))
+				.generateCsv();
+	}
+
+	/**
+     * Restituisce le righe della classe generata create dalle righe dell'entità, calcolate una sola volta per classe di riga.
+     *
+     * @param rowClass La classe di riga della query.
+     * @return Le righe della query.
+     */
+	@SuppressWarnings("unchecked")
+	private List<Object> resultRows(Class<?> rowClass) {
+		return resultRows.computeIfAbsent(rowClass, key -> {
+			try {
+				ReportRowMapper rowMapper = ReportRowMapper.of(ReportBenchmarkEntity.class, (Class<? extends RowSheet>) rowClass);
+				List<Object> generatedRows = new ArrayList<>(reportRows.size());
+				for (ReportBenchmarkEntity reportRow : reportRows) {
+					generatedRows.add(rowMapper.map(reportRow));
+				}
+				return generatedRows;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private EntityManagerFactory entityManagerFactory() {
+		return (EntityManagerFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { EntityManagerFactory.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "createEntityManager":
+				return entityManager();
+			case "isOpen":
+				return true;
+			default:
+				return null;
+			}
+		});
+	}
+
+	private EntityManager entityManager() {
+		return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { EntityManager.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "createQuery":
+				return query((Class<?>) args[1]);
+			case "isOpen":
+				return true;
+			default:
+				return null;
+			}
+		});
+	}
+
+	private TypedQuery<?> query(Class<?> rowClass) {
+		return (TypedQuery<?>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { TypedQuery.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "getResultList":
+				return resultRows(rowClass);
+			case "getResultStream":
+				return resultRows(rowClass).stream();
+			default:
+				return proxy;
+			}
+		});
+	}
+}
@@ -0,0 +1,53 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportRowsBenchmark.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bld.generator.report.excel.RowSheet;
+
+/**
+ * Benchmark della conversione delle righe di un report statico nelle righe della classe generata `RowSheet` con `ReportUtil.generateRows`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ReportRowsBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	private int rows;
+
+	private Class<? extends RowSheet> rowClass;
+	private List<ReportBenchmarkEntity> reportRows;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		rowClass = ReportRowClassGenerator.generateReportRowClass(ReportBenchmarkEntity.class);
+		reportRows = ReportBenchmarkEntity.createRows(rows);
+	}
+
+	@Benchmark
+	public List<? extends RowSheet> generateRows() throws Exception {
+		return ReportUtil.generateRows(rowClass, reportRows);
+	}
+}
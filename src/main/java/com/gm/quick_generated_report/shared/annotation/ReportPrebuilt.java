@@ -0,0 +1,28 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.annotation.ReportPrebuilt.java
+*/
+package com.gm.quick_generated_report.shared.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotazione che richiede la generazione in fase di compilazione delle classi del report per la classe annotata.<br><br>
+ *
+ * Durante la compilazione il processore `ReportClassProcessor` genera i sorgenti delle classi `...ReportRow` e `...ReportSheetData`,
+ * identiche a quelle che sarebbero generate a runtime. A runtime i generatori utilizzano le classi pre-generate
+ * presenti nel classpath e ricorrono alla generazione con ByteBuddy solo per le classi non pre-generate.
+ *
+ * @see com.gm.quick_generated_report.shared.internal.ReportClassProcessor
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ReportPrebuilt {
+
+}
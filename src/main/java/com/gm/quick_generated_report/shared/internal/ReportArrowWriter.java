@@ -0,0 +1,280 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportArrowWriter.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Questa classe è responsabile della scrittura delle righe del report nel formato colonnare Apache Arrow IPC (stream), leggibile direttamente
+ * da Spark, pandas (`pyarrow.ipc.open_stream`) e dagli altri strumenti di analisi senza la conversione del testo in colonne tipizzate.<br><br>
+ * Lo schema deriva dalle colonne della classe generata `RowSheet`, con i nomi dei campi come nomi delle colonne e i tipi nativi:
+ * <ul>
+ * <li>`Long` → `Int64`, `Integer` → `Int32`, `Double` → `Float64`, `Boolean` → `Bool`, anche per i rispettivi primitivi;</li>
+ * <li>`BigDecimal` → `Decimal(38, 10)`: un valore con più di 10 cifre decimali significative o più di 28 cifre intere non è rappresentabile
+ * senza perdita e la scrittura viene interrotta con `ReportException`;</li>
+ * <li>`Date` (anche da `LocalDate`, `LocalDateTime` e `Instant`) → `Timestamp(MILLISECOND, UTC)`;</li>
+ * <li>`String` → `Utf8` con codifica a dizionario: ogni blocco di righe porta il proprio dizionario dei valori distinti.</li>
+ * </ul>
+ * Ogni blocco `ReportColumnBatch` viene scritto come `RecordBatch` Arrow, così che la memoria occupata resti costante.<br>
+ * Richiede le dipendenze opzionali `org.apache.arrow:arrow-vector` e `org.apache.arrow:arrow-memory-unsafe`, verificate da `ReportGeneratorBuilder`
+ * prima di caricare questa classe; da JDK 16 la JVM deve essere avviata con `--add-opens=java.base/java.nio=ALL-UNNAMED`.
+ *
+ * @see ReportGeneratorBuilder
+ */
+class ReportArrowWriter implements ReportRowWriter {
+
+	private static final int DECIMAL_PRECISION = 38;
+	private static final int DECIMAL_SCALE = 10;
+	private static final String TIME_ZONE = "UTC";
+
+	private final OutputStream outputStream;
+	private final BufferAllocator allocator;
+	private final VarCharVector[] dictionaryVectors;
+	private VectorSchemaRoot root;
+	private FieldVector[] vectors;
+	private ArrowStreamWriter streamWriter;
+	private long rowCount = 0;
+
+	/**
+	 * Costruttore che inizializza lo schema e lo scrittore Arrow con le colonne specificate.
+	 *
+	 * @param outputStream Lo stream di uscita su cui scrivere il file Arrow.
+	 * @param columnFields I campi della classe di riga nell'ordine delle colonne, già resi accessibili.
+	 * @throws ReportException Se il tipo di una colonna non è supportato.
+	 */
+	protected ReportArrowWriter(OutputStream outputStream, Field[] columnFields) throws ReportException {
+		this.outputStream = outputStream;
+		this.dictionaryVectors = new VarCharVector[columnFields.length];
+		this.allocator = new RootAllocator();
+		try {
+			DictionaryProvider.MapDictionaryProvider dictionaryProvider = new DictionaryProvider.MapDictionaryProvider();
+			List<org.apache.arrow.vector.types.pojo.Field> arrowFields = new ArrayList<>(columnFields.length);
+			for (int i = 0; i < columnFields.length; i++) {
+				String columnName = columnFields[i].getName();
+				if (columnFields[i].getType() == String.class) {
+					// la colonna contiene gli indici nel dizionario, il dizionario contiene i valori distinti del blocco
+					DictionaryEncoding encoding = new DictionaryEncoding(i, false, new ArrowType.Int(32, true));
+					dictionaryVectors[i] = new VarCharVector(columnName + "_dictionary", allocator);
+					dictionaryProvider.put(new Dictionary(dictionaryVectors[i], encoding));
+					arrowFields.add(new org.apache.arrow.vector.types.pojo.Field(columnName, new FieldType(true, new ArrowType.Int(32, true), encoding), null));
+				} else {
+					arrowFields.add(new org.apache.arrow.vector.types.pojo.Field(columnName, FieldType.nullable(arrowType(columnFields[i])), null));
+				}
+			}
+			this.root = VectorSchemaRoot.create(new Schema(arrowFields), allocator);
+			this.vectors = root.getFieldVectors().toArray(new FieldVector[0]);
+			for (FieldVector vector : vectors) {
+				vector.setInitialCapacity(ReportColumnBatch.DEFAULT_CAPACITY);
+				vector.allocateNew();
+			}
+			this.streamWriter = new ArrowStreamWriter(root, dictionaryProvider, Channels.newChannel(ReportCompression.shield(outputStream)));
+		} catch (ReportException | RuntimeException e) {
+			release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Scrive lo schema all'inizio dello stream Arrow.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	@Override
+	public void writeHeader() throws IOException {
+		streamWriter.start();
+	}
+
+	/**
+	 * Scrive un blocco di righe del report come `RecordBatch` Arrow, copiando i vettori primitivi delle colonne nei vettori Arrow
+	 * e i dizionari delle colonne di tipo stringa nei vettori dei dizionari.
+	 *
+	 * @param batch Il blocco di righe da scrivere.
+	 * @throws IOException     Se si verifica un errore di I/O durante la scrittura.
+	 * @throws ReportException Se un valore decimale non è rappresentabile con il tipo `Decimal(38, 10)`.
+	 */
+	@Override
+	public void writeBatch(ReportColumnBatch batch) throws IOException, ReportException {
+		int batchRows = batch.size();
+		if (batchRows == 0) {
+			return;
+		}
+		for (int column = 0; column < vectors.length; column++) {
+			if (dictionaryVectors[column] != null) fillDictionary(dictionaryVectors[column], batch.getDictionary(column));
+			for (int row = 0; row < batchRows; row++) {
+				setValue(batch, column, row);
+			}
+			vectors[column].setValueCount(batchRows);
+		}
+		root.setRowCount(batchRows);
+		streamWriter.writeBatch();
+		for (FieldVector vector : vectors) {
+			vector.reset();
+		}
+		rowCount += batchRows;
+	}
+
+	/**
+	 * Scrive la fine dello stream Arrow, senza chiudere lo stream di uscita.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	@Override
+	public void finish() throws IOException {
+		streamWriter.end();
+		outputStream.flush();
+	}
+
+	@Override
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Rilascia la memoria dei vettori e dei dizionari, senza chiudere lo stream di uscita.
+	 */
+	@Override
+	public void close() {
+		release();
+	}
+
+	/**
+	 * Imposta il valore di una cella del `RecordBatch` in base al tipo della colonna.
+	 *
+	 * @param batch  Il blocco di righe.
+	 * @param column L'indice della colonna.
+	 * @param row    L'indice della riga nel blocco.
+	 * @throws ReportException Se un valore decimale non è rappresentabile con il tipo `Decimal(38, 10)`.
+	 */
+	private void setValue(ReportColumnBatch batch, int column, int row) throws ReportException {
+		FieldVector vector = vectors[column];
+		if (batch.isNull(column, row)) {
+			((BaseFixedWidthVector) vector).setNull(row);
+			return;
+		}
+		switch (batch.getColumnType(column)) {
+		case STRING:
+			((IntVector) vector).setSafe(row, batch.getDictionaryIndex(column, row));
+			break;
+		case LONG:
+			((BigIntVector) vector).setSafe(row, batch.getLong(column, row));
+			break;
+		case INT:
+			((IntVector) vector).setSafe(row, batch.getInt(column, row));
+			break;
+		case DOUBLE:
+			((Float8Vector) vector).setSafe(row, batch.getDouble(column, row));
+			break;
+		case BOOLEAN:
+			((BitVector) vector).setSafe(row, batch.getInt(column, row));
+			break;
+		case DECIMAL:
+			((DecimalVector) vector).setSafe(row, decimalValue(vector.getName(), batch.getDecimal(column, row)));
+			break;
+		case DATE:
+			((TimeStampMilliTZVector) vector).setSafe(row, batch.getLong(column, row));
+			break;
+		}
+	}
+
+	/**
+	 * Porta un valore decimale alla scala del tipo `Decimal(38, 10)` senza arrotondamenti.
+	 *
+	 * @param columnName Il nome della colonna.
+	 * @param value      Il valore decimale.
+	 * @return Il valore con scala `DECIMAL_SCALE`.
+	 * @throws ReportException Se il valore ha più di `DECIMAL_SCALE` cifre decimali significative o più di `DECIMAL_PRECISION - DECIMAL_SCALE` cifre intere.
+	 */
+	private static BigDecimal decimalValue(String columnName, BigDecimal value) throws ReportException {
+		BigDecimal scaledValue;
+		try {
+			scaledValue = value.setScale(DECIMAL_SCALE, RoundingMode.UNNECESSARY);
+		} catch (ArithmeticException e) {
+			throw new ReportException("Valore della colonna '" + columnName + "' con più di " + DECIMAL_SCALE + " cifre decimali, non rappresentabile nel formato Arrow: "
+					+ value.toPlainString() + ".", e);
+		}
+		if (scaledValue.precision() > DECIMAL_PRECISION)
+			throw new ReportException("Valore della colonna '" + columnName + "' con più di " + (DECIMAL_PRECISION - DECIMAL_SCALE) + " cifre intere, non rappresentabile nel formato Arrow: "
+					+ value.toPlainString() + ".");
+		return scaledValue;
+	}
+
+	/**
+	 * Copia i valori distinti di una colonna del blocco nel vettore del dizionario.
+	 *
+	 * @param dictionaryVector Il vettore del dizionario.
+	 * @param values           I valori distinti, nell'ordine dei rispettivi indici.
+	 */
+	private static void fillDictionary(VarCharVector dictionaryVector, List<String> values) {
+		dictionaryVector.allocateNew(values.size());
+		for (int i = 0; i < values.size(); i++) {
+			dictionaryVector.setSafe(i, values.get(i).getBytes(StandardCharsets.UTF_8));
+		}
+		dictionaryVector.setValueCount(values.size());
+	}
+
+	/**
+	 * Rilascia lo scrittore, i vettori, i dizionari e l'allocatore della memoria.
+	 */
+	private void release() {
+		if (streamWriter != null) streamWriter.close();
+		if (root != null) root.close();
+		for (VarCharVector dictionaryVector : dictionaryVectors) {
+			if (dictionaryVector != null) dictionaryVector.close();
+		}
+		allocator.close();
+	}
+
+	/**
+	 * Restituisce il tipo Arrow della colonna in base al tipo del campo della classe di riga.
+	 *
+	 * @param columnField Il campo della classe di riga.
+	 * @return Il tipo Arrow della colonna.
+	 * @throws ReportException Se il tipo del campo non è supportato.
+	 */
+	private static ArrowType arrowType(Field columnField) throws ReportException {
+		Class<?> type = columnField.getType();
+		if (type == Long.class || type == long.class) return new ArrowType.Int(64, true);
+		if (type == Integer.class || type == int.class) return new ArrowType.Int(32, true);
+		if (type == Double.class || type == double.class) return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+		if (type == Boolean.class || type == boolean.class) return ArrowType.Bool.INSTANCE;
+		if (type == BigDecimal.class) return new ArrowType.Decimal(DECIMAL_PRECISION, DECIMAL_SCALE, 128);
+		if (type == Date.class) return new ArrowType.Timestamp(TimeUnit.MILLISECOND, TIME_ZONE);
+		throw new ReportException("Tipo della colonna '" + columnField.getName() + "' non supportato dal formato Arrow: " + type.getName() + ".");
+	}
+}
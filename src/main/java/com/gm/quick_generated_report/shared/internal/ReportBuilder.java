@@ -5,11 +5,23 @@
 */
 package com.gm.quick_generated_report.shared.internal;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
 
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.stereotype.Component;
 
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
 import bld.generator.report.excel.GenerateExcel;
 import bld.generator.report.excel.impl.GenerateExcelImpl;
 
@@ -21,8 +33,18 @@ import bld.generator.report.excel.impl.GenerateExcelImpl;
 @ComponentScan("bld.generator.report")
 public class ReportBuilder {
 	
+	private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+	private static final int MAX_REPORT_PLANS = 256;
 	private static ReportBuilder INSTANCE = null;
 	private GenerateExcel generatorExcel;
+	// ordine di accesso: il primo elemento è il piano usato meno di recente
+	private final LinkedHashMap<String, ReportPlan> reportPlans = new LinkedHashMap<>(16, 0.75f, true);
+	private volatile Executor reportExecutor;
+	private volatile Executor partitionExecutor;
+	private volatile ReportResultCache reportResultCache;
+	
+	@Autowired(required = false)
+	private volatile EntityManagerFactory entityManagerFactory;
 	
 	/**
      * Costruttore di ReportBuilder.
@@ -50,7 +72,7 @@ public class ReportBuilder {
      * @return Un oggetto `ReportGeneratorBuilder` configurato per la generazione di report senza query SQL.
      */
 	public ReportGeneratorBuilder build(Class<?> reportClassType, String reportName) {
-		return ReportGeneratorBuilder.define(generatorExcel, reportClassType, reportName);
+		return ReportGeneratorBuilder.define(this, reportClassType, reportName);
 	}
 	
 	/**
@@ -62,7 +84,7 @@ public class ReportBuilder {
      * @return Un oggetto `ReportGeneratorBuilder` configurato per la generazione di report statico.
      */
 	public ReportGeneratorBuilder build(Class<?> reportClassType, String reportName, List<?> reportRows) {
-		return ReportGeneratorBuilder.define(generatorExcel, reportClassType, reportName, reportRows);
+		return ReportGeneratorBuilder.define(this, reportClassType, reportName, reportRows);
 	}
 	
 	/**
@@ -73,6 +95,191 @@ public class ReportBuilder {
      * @return Un oggetto `ReportQueryBuilder` configurato per la generazione di report con query SQL.
      */
 	public ReportQueryBuilder buildWithCondition(Class<?> reportClassType, String reportName) {
-		return ReportQueryBuilder.define(generatorExcel, reportClassType, reportName);
+		return ReportQueryBuilder.define(this, reportClassType, reportName);
+	}
+	
+	/**
+     * Crea un generatore di file XLSX composto da più fogli, uno per ciascun report aggiunto con `ReportWorkbookBuilder.addSheet(...)`.
+     * 
+     * @param workbookName Il nome del file XLSX.
+     * @return Un oggetto `ReportWorkbookBuilder` senza fogli.
+     */
+	public ReportWorkbookBuilder buildWorkbook(String workbookName) {
+		return ReportWorkbookBuilder.define(this, workbookName);
+	}
+	
+	/**
+     * Pre-genera in parallelo le classi di riga e di foglio dei report per tutte le classi `@Entity` del package specificato.<br>
+     * Pensato per essere invocato all'avvio dell'applicazione, ad esempio da un listener di `ApplicationReadyEvent`, in modo che la prima
+     * richiesta di ogni report non paghi il costo della generazione a runtime.
+     * 
+     * @param basePackage Il package da scansionare, inclusi i sotto-package.
+     * @return L'esito della pre-generazione per ciascuna classe, con i tempi di generazione.
+     * @throws ReportException Se la scansione o la pre-generazione non possono essere completate.
+     */
+	public List<ReportWarmUpResult> warmUp(String basePackage) throws ReportException {
+		return warmUp(ForkJoinPool.commonPool(), ReportWarmUp.scan(basePackage));
+	}
+	
+	/**
+     * Pre-genera in parallelo le classi di riga e di foglio dei report per le classi specificate.
+     * 
+     * @param reportClassTypes Le classi dei report da pre-generare.
+     * @return L'esito della pre-generazione per ciascuna classe, con i tempi di generazione.
+     * @throws ReportException Se la pre-generazione non può essere completata.
+     */
+	public List<ReportWarmUpResult> warmUp(Class<?>... reportClassTypes) throws ReportException {
+		return warmUp(ForkJoinPool.commonPool(), Arrays.asList(reportClassTypes));
+	}
+	
+	/**
+     * Pre-genera le classi di riga e di foglio dei report per le classi specificate, utilizzando il pool indicato.
+     * 
+     * @param forkJoinPool     Il pool su cui eseguire la generazione.
+     * @param reportClassTypes Le classi dei report da pre-generare.
+     * @return L'esito della pre-generazione per ciascuna classe, con i tempi di generazione.
+     * @throws ReportException Se la pre-generazione non può essere completata.
+     */
+	public List<ReportWarmUpResult> warmUp(ForkJoinPool forkJoinPool, List<Class<?>> reportClassTypes) throws ReportException {
+		return ReportWarmUp.run(forkJoinPool, reportClassTypes);
+	}
+	
+	/**
+	 * Imposta l'executor su cui vengono eseguite le generazioni asincrone `generateXlsxAsync` e `generateCsvAsync`,
+	 * ad esempio uno creato con `ReportExecutors.newBoundedExecutor` o `ReportExecutors.newVirtualThreadExecutor`.<br>
+	 * Se non impostato viene utilizzato un pool con un thread per processore e una coda di `DEFAULT_QUEUE_CAPACITY` report.
+	 * 
+	 * @param reportExecutor L'executor delle generazioni asincrone.
+	 */
+	public void setReportExecutor(Executor reportExecutor) {
+		this.reportExecutor = reportExecutor;
+	}
+	
+	/**
+	 * Imposta l'executor condiviso su cui vengono eseguite le query delle partizioni dei report con `partitionBy`, da dimensionare
+	 * in base al pool di connessioni del database: ogni partizione in esecuzione occupa una connessione.
+	 * Sullo stesso executor vengono generati in parallelo i fogli dei workbook di `buildWorkbook`.<br>
+	 * Se non impostato viene utilizzato un pool con un thread per processore e una coda di `DEFAULT_QUEUE_CAPACITY` partizioni,
+	 * oltre la quale le partizioni vengono eseguite dal thread del report.
+	 * 
+	 * @param partitionExecutor L'executor delle partizioni.
+	 */
+	public void setPartitionExecutor(Executor partitionExecutor) {
+		this.partitionExecutor = partitionExecutor;
+	}
+	
+	/**
+	 * Imposta l'`EntityManagerFactory` utilizzato per l'esecuzione delle query dei report, ad esempio per un `ReportBuilder` ottenuto con `getInstance()`
+	 * fuori dal contesto Spring. Senza `EntityManagerFactory` sono disponibili solo i report statici.
+	 * 
+	 * @param entityManagerFactory L'`EntityManagerFactory` delle query dei report.
+	 */
+	public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+	
+	/**
+	 * Imposta la cache dei file generati dai report con query. Se non impostata (predefinito), ogni generazione esegue la query e scrive il file.
+	 * 
+	 * @param reportResultCache La cache dei file generati, oppure `null` per disabilitarla.
+	 */
+	public void setReportResultCache(ReportResultCache reportResultCache) {
+		this.reportResultCache = reportResultCache;
+	}
+	
+	/**
+	 * @return La cache dei file generati, oppure `null` se non impostata.
+	 */
+	protected ReportResultCache getReportResultCache() {
+		return reportResultCache;
+	}
+	
+	/**
+	 * Restituisce l'executor delle generazioni asincrone, creando quello predefinito alla prima richiesta.
+	 * 
+	 * @return L'executor delle generazioni asincrone.
+	 */
+	protected Executor getReportExecutor() {
+		Executor executor = reportExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				if (reportExecutor == null) {
+					reportExecutor = ReportExecutors.newBoundedExecutor(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+				}
+				executor = reportExecutor;
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * Restituisce l'executor condiviso delle partizioni, creando quello predefinito alla prima richiesta.
+	 * 
+	 * @return L'executor delle partizioni.
+	 */
+	protected Executor getPartitionExecutor() {
+		Executor executor = partitionExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				if (partitionExecutor == null) {
+					partitionExecutor = ReportExecutors.newBoundedExecutor(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY,
+							new ThreadPoolExecutor.CallerRunsPolicy());
+				}
+				executor = partitionExecutor;
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * Restituisce l'oggetto `GenerateExcel` utilizzato per la generazione dei file XLSX.
+	 * 
+	 * @return L'oggetto `GenerateExcel` del builder.
+	 */
+	protected GenerateExcel getGeneratorExcel() {
+		return generatorExcel;
+	}
+	
+	/**
+	 * Restituisce l'`EntityManagerFactory` utilizzato per l'esecuzione delle query dei report, se configurato nel contesto applicativo.
+	 * 
+	 * @return L'`EntityManagerFactory` del contesto applicativo, o `null` se non disponibile.
+	 */
+	protected EntityManagerFactory getEntityManagerFactory() {
+		return entityManagerFactory;
+	}
+	
+	/**
+	 * Restituisce il piano compilato con la chiave specificata, compilandolo con la factory indicata se non ancora presente.<br>
+	 * La compilazione è idempotente: in caso di richieste concorrenti viene mantenuto il primo piano registrato.<br>
+	 * I piani sono mantenuti al massimo in `MAX_REPORT_PLANS`: oltre il limite viene rimosso il piano usato meno di recente,
+	 * così che nomi di report o forme di query generati dinamicamente non facciano crescere la memoria senza limite.
+	 * 
+	 * @param planKey     La chiave del piano, composta da classe, nome del report e forma della query.
+	 * @param planFactory La factory che compila il piano.
+	 * @return Il piano compilato.
+	 * @throws Exception Se si verifica un errore durante la compilazione del piano.
+	 */
+	protected ReportPlan getReportPlan(String planKey, Callable<ReportPlan> planFactory) throws Exception {
+		synchronized (reportPlans) {
+			ReportPlan reportPlan = reportPlans.get(planKey);
+			if (reportPlan != null) {
+				return reportPlan;
+			}
+		}
+		// la compilazione avviene fuori dal lock: le classi generate sono condivise, per cui due compilazioni concorrenti producono piani equivalenti
+		ReportPlan reportPlan = planFactory.call();
+		synchronized (reportPlans) {
+			ReportPlan existingReportPlan = reportPlans.putIfAbsent(planKey, reportPlan);
+			if (existingReportPlan != null) {
+				return existingReportPlan;
+			}
+			Iterator<ReportPlan> iterator = reportPlans.values().iterator();
+			while (reportPlans.size() > MAX_REPORT_PLANS && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		return reportPlan;
 	}
 }
@@ -0,0 +1,234 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportClassCache.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.lang.reflect.Method;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+
+/**
+ * Questa classe gestisce la cache persistente su file system del bytecode delle classi generate a runtime.<br><br>
+ * Ogni classe è salvata con una chiave composta dal nome della classe generata e da un hash del nome completo della classe da cui deriva,
+ * dei suoi campi (nome, tipo di origine, tipo della colonna generata e metodo di conversione) e della versione del generatore:
+ * alle successive partenze della JVM il bytecode viene caricato dalla cache senza rieseguire la generazione con ByteBuddy.
+ * Una modifica dei campi, delle conversioni o del generatore produce una chiave diversa.<br><br>
+ * Il bytecode viene iniettato nel ClassLoader dell'applicazione, per cui ogni file della cache contiene, prima del bytecode,
+ * un HMAC-SHA256 della chiave e del bytecode calcolato con il segreto configurato: un file non firmato con lo stesso segreto,
+ * modificato o copiato da un'altra chiave viene scartato e rimosso senza essere caricato.<br>
+ * Le scritture su file system avvengono in un thread dedicato, fuori dal thread della richiesta.<br>
+ * La cache è disabilitata per default ed è configurabile con le proprietà di sistema:
+ * <ul>
+ * <li>`quick-generated-report.class-cache.enabled`: abilita la cache (default `false`);</li>
+ * <li>`quick-generated-report.class-cache.secret`: segreto per la firma dei file, obbligatorio per abilitare la cache;</li>
+ * <li>`quick-generated-report.class-cache.directory`: cartella della cache (default `.quick-generated-report/class_cache` nella cartella dell'utente);</li>
+ * <li>`quick-generated-report.class-cache.dump`: salva anche una copia delle classi generate in `report/generated_classes` per la sola visualizzazione (default `false`).</li>
+ * </ul>
+ *
+ * @see ReportRowClassGenerator
+ * @see ReportSheetClassGenerator
+ */
+class ReportClassCache {
+
+	private static final String GENERATOR_VERSION = "3";
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private static final int MAC_LENGTH = 32;
+	private static final String CACHE_SECRET = System.getProperty("quick-generated-report.class-cache.secret");
+	private static final boolean CACHE_ENABLED = Boolean.getBoolean("quick-generated-report.class-cache.enabled") && CACHE_SECRET != null && !CACHE_SECRET.isEmpty();
+	private static final boolean DUMP_ENABLED = Boolean.getBoolean("quick-generated-report.class-cache.dump");
+	private static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("quick-generated-report.class-cache.directory",
+			Paths.get(System.getProperty("user.home"), ".quick-generated-report", "class_cache").toString()));
+	private static final Path DUMP_DIRECTORY = Paths.get("report", "generated_classes");
+
+	private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "report-class-cache-writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private ReportClassCache() {}
+
+	/**
+     * Calcola la chiave di cache di una classe generata.
+     *
+     * @param generatedClassName Il nome della classe generata.
+     * @param schemaClasses      Le classi i cui campi determinano il contenuto della classe generata (la classe di input ed eventualmente la classe di riga).
+     * @return La chiave di cache.
+     * @throws ReportException Se il metodo di conversione di un campo non è accessibile.
+     */
+	protected static String cacheKey(String generatedClassName, Class<?>... schemaClasses) throws ReportException {
+		StringBuilder schema = new StringBuilder();
+		schema.append(GENERATOR_VERSION).append('|').append(generatedClassName);
+		for (Class<?> schemaClass : schemaClasses) {
+			schema.append('|').append(schemaClass.getName()).append('|');
+			for (Field field : schemaClass.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) continue;
+				Class<?> fieldType = field.getType();
+				Method converter = ReportRowValues.converter(fieldType);
+				schema.append(field.getName()).append(':').append(fieldType.getName())
+						.append('>').append(ReportRowClassFilter.reportType(fieldType).getName())
+						.append('@').append(converter != null ? converter.getDeclaringClass().getName() + "#" + converter.getName() : "-")
+						.append(';');
+			}
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(schema.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder cacheKey = new StringBuilder(generatedClassName).append('-');
+			for (int i = 0; i < 16; i++) {
+				cacheKey.append(String.format("%02x", digest[i]));
+			}
+			return cacheKey.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+     * Restituisce il bytecode salvato in cache per la chiave specificata.
+     *
+     * @param cacheKey La chiave di cache.
+     * @return Il bytecode della classe, o `null` se non presente, se la firma non è valida o se la cache è disabilitata.
+     */
+	protected static byte[] load(String cacheKey) {
+		if (!CACHE_ENABLED) return null;
+		Path filePath = CACHE_DIRECTORY.resolve(cacheKey + ".class");
+		byte[] fileBytes;
+		try {
+			if (!Files.isRegularFile(filePath)) return null;
+			fileBytes = Files.readAllBytes(filePath);
+		} catch (IOException e) {
+			return null;
+		}
+		if (fileBytes.length <= MAC_LENGTH) {
+			evict(cacheKey);
+			return null;
+		}
+		byte[] classBytes = Arrays.copyOfRange(fileBytes, MAC_LENGTH, fileBytes.length);
+		byte[] expectedMac = sign(cacheKey, classBytes);
+		if (expectedMac == null || !MessageDigest.isEqual(expectedMac, Arrays.copyOf(fileBytes, MAC_LENGTH))) {
+			// file non firmato con il segreto configurato: il bytecode non viene mai caricato
+			evict(cacheKey);
+			return null;
+		}
+		return classBytes;
+	}
+
+	/**
+     * Calcola la firma HMAC-SHA256 della chiave e del bytecode con il segreto configurato.
+     *
+     * @param cacheKey   La chiave di cache.
+     * @param classBytes Il bytecode della classe.
+     * @return La firma di `MAC_LENGTH` byte, o `null` se l'algoritmo non è disponibile.
+     */
+	private static byte[] sign(String cacheKey, byte[] classBytes) {
+		try {
+			Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(new SecretKeySpec(CACHE_SECRET.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+			mac.update(cacheKey.getBytes(StandardCharsets.UTF_8));
+			mac.update((byte) 0);
+			return mac.doFinal(classBytes);
+		} catch (GeneralSecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+     * Carica nel ClassLoader specificato la classe salvata in cache per la chiave indicata.<br>
+     * Se il bytecode in cache non è caricabile, ad esempio perché corrotto, la voce viene rimossa e viene restituito `null`.
+     *
+     * @param cacheKey           La chiave di cache.
+     * @param generatedClassName Il nome della classe generata.
+     * @param classLoader        Il ClassLoader in cui caricare la classe.
+     * @return La classe caricata dalla cache, o `null` se non presente.
+     */
+	protected static Class<?> loadClass(String cacheKey, String generatedClassName, ClassLoader classLoader) {
+		byte[] classBytes = load(cacheKey);
+		if (classBytes == null) return null;
+		try {
+			TypeDescription typeDescription = new TypeDescription.Latent(generatedClassName, Modifier.PUBLIC, TypeDescription.Generic.OBJECT);
+			return ClassLoadingStrategy.Default.INJECTION.load(classLoader, Collections.singletonMap(typeDescription, classBytes)).get(typeDescription);
+		} catch (RuntimeException | LinkageError e) {
+			evict(cacheKey);
+			return null;
+		}
+	}
+
+	/**
+     * Rimuove dalla cache il bytecode della chiave specificata, ad esempio perché non più caricabile.
+     *
+     * @param cacheKey La chiave di cache.
+     */
+	protected static void evict(String cacheKey) {
+		WRITER.execute(() -> {
+			try {
+				Files.deleteIfExists(CACHE_DIRECTORY.resolve(cacheKey + ".class"));
+			} catch (IOException e) {
+				// la voce verrà sovrascritta alla prossima generazione
+			}
+		});
+	}
+
+	/**
+     * Salva in modo asincrono il bytecode di una classe generata nella cache e, se abilitato, nella cartella di visualizzazione.
+     *
+     * @param cacheKey           La chiave di cache.
+     * @param generatedClassName Il nome della classe generata.
+     * @param classBytes         Il bytecode della classe generata.
+     */
+	protected static void store(String cacheKey, String generatedClassName, byte[] classBytes) {
+		if (CACHE_ENABLED) {
+			WRITER.execute(() -> {
+				byte[] mac = sign(cacheKey, classBytes);
+				if (mac == null) return;
+				byte[] fileBytes = Arrays.copyOf(mac, MAC_LENGTH + classBytes.length);
+				System.arraycopy(classBytes, 0, fileBytes, MAC_LENGTH, classBytes.length);
+				write(CACHE_DIRECTORY, cacheKey, fileBytes);
+			});
+		}
+		if (DUMP_ENABLED) {
+			WRITER.execute(() -> write(DUMP_DIRECTORY, generatedClassName, classBytes));
+		}
+	}
+
+	/**
+     * Scrive il bytecode su un file temporaneo e lo rinomina nel file di destinazione, in modo che un lettore non veda mai un file parziale.
+     *
+     * @param directory  La cartella di destinazione.
+     * @param fileName   Il nome del file senza estensione.
+     * @param fileBytes  Il contenuto da scrivere.
+     */
+	private static void write(Path directory, String fileName, byte[] fileBytes) {
+		try {
+			Files.createDirectories(directory);
+			Path tempPath = Files.createTempFile(directory, fileName, ".tmp");
+			Files.write(tempPath, fileBytes, StandardOpenOption.TRUNCATE_EXISTING);
+			Files.move(tempPath, directory.resolve(fileName + ".class"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// la cache è un'ottimizzazione: in caso di errore la classe verrà generata di nuovo
+		}
+	}
+}
@@ -7,18 +7,31 @@ package com.gm.quick_generated_report.shared.internal;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
 
 /**
  * Questa classe estende `ClassLoader` ed è utilizzata per istanziare e caricare classi generate a runtime.<br>
- * Questa classe evita il ricaricamento nel classLoader di una classe già caricata.
+ * Questa classe evita il ricaricamento nel classLoader di una classe già caricata.<br><br>
+ * Le classi generate sono registrate in una mappa concorrente indicizzata per nome: ogni classe viene generata una sola volta anche
+ * in presenza di richieste concorrenti, e una classe diventa visibile solo al termine della sua generazione.
  * 
  * @see ReportRowClassGenerator
  * @see ReportSheetClassGenerator
  */
 class ReportClassLoader extends ClassLoader {
 
-	private static ReportClassLoader instance = null;
-	private final List<Class<?>> loadedClasses = new ArrayList<>(); 
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+	
+	private static volatile ReportClassLoader instance = null;
+	private final ConcurrentMap<String, FutureTask<Class<?>>> generatedClasses = new ConcurrentHashMap<>(); 
 	
 	/**
      * Costruttore privato per inizializzare il classLoader con un genitore specificato.
@@ -36,10 +49,47 @@ class ReportClassLoader extends ClassLoader {
      * @return L'istanza condivisa di `ReportClassLoader`.
      */
 	protected static ReportClassLoader newInstance(ClassLoader parent) {
-		if (instance == null) {
-			instance = new ReportClassLoader(parent);
+		ReportClassLoader reportClassLoader = instance;
+		if (reportClassLoader == null) {
+			synchronized (ReportClassLoader.class) {
+				if (instance == null) {
+					instance = new ReportClassLoader(parent);
+				}
+				reportClassLoader = instance;
+			}
+		}
+		return reportClassLoader;
+	}
+	
+	/**
+     * Restituisce la classe generata con il nome specificato, generandola con la factory indicata se non è ancora presente.<br>
+     * Se più thread richiedono contemporaneamente la stessa classe, la generazione viene eseguita da un solo thread e gli altri ne attendono il risultato.
+     * In caso di errore la registrazione viene rimossa, in modo che una richiesta successiva possa ritentare la generazione.
+     *
+     * @param className    Il nome completo della classe generata.
+     * @param classFactory La factory che genera e carica la classe.
+     * @return La classe generata.
+     * @throws Exception Se si verifica un errore durante la generazione della classe.
+     */
+	protected Class<?> defineIfAbsent(String className, Callable<Class<?>> classFactory) throws Exception {
+		FutureTask<Class<?>> generatedClass = generatedClasses.get(className);
+		if (generatedClass == null) {
+			FutureTask<Class<?>> classTask = new FutureTask<>(classFactory);
+			generatedClass = generatedClasses.putIfAbsent(className, classTask);
+			if (generatedClass == null) {
+				generatedClass = classTask;
+				classTask.run();
+			}
+		}
+		try {
+			return generatedClass.get();
+		} catch (ExecutionException e) {
+			generatedClasses.remove(className, generatedClass);
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw new ReportException(e.getCause());
 		}
-		return instance;
 	}
 	
 	/**
@@ -51,11 +101,11 @@ class ReportClassLoader extends ClassLoader {
      */
     @Override
     public Class<?> loadClass(String name) throws ClassNotFoundException {
-        Class<?> loadedClass = super.loadClass(name);
-        if (!loadedClasses.contains(loadedClass)) {
-            loadedClasses.add(loadedClass);
+        Class<?> loadedClass = findGeneratedClass(name);
+        if (loadedClass != null) {
+            return loadedClass;
         }
-        return loadedClass;
+        return super.loadClass(name);
     }
 
     /**
@@ -64,22 +114,47 @@ class ReportClassLoader extends ClassLoader {
      * @return La lista delle classi caricate.
      */
     protected List<Class<?>> getLoadedClasses() {
+        List<Class<?>> loadedClasses = new ArrayList<>();
+        for (String className : generatedClasses.keySet()) {
+            Class<?> loadedClass = findGeneratedClass(className);
+            if (loadedClass != null) {
+                loadedClasses.add(loadedClass);
+            }
+        }
         return loadedClasses;
     }
     
     /**
-     * Cerca una classe con il nome specificato tra le classi caricate.
+     * Cerca una classe con il nome specificato tra le classi generate.
      *
      * @param className Il nome completo della classe da cercare.
-     * @return La classe se trovata, altrimenti null.
+     * @return La classe se trovata.
+     * @throws ClassNotFoundException Se la classe non è stata generata.
      */
     @Override
-    protected Class<?> findClass(String className) {
-        for (Class<?> loadedClass : loadedClasses) {
-            if (loadedClass.getName().equals(className)) {
-                return loadedClass;
-            }
+    protected Class<?> findClass(String className) throws ClassNotFoundException {
+        Class<?> loadedClass = findGeneratedClass(className);
+        if (loadedClass == null) {
+            throw new ClassNotFoundException(className);
+        }
+        return loadedClass;
+    }
+    
+    /**
+     * Cerca una classe con il nome specificato tra le classi la cui generazione è completata.
+     *
+     * @param className Il nome completo della classe da cercare.
+     * @return La classe se trovata, altrimenti null.
+     */
+    private Class<?> findGeneratedClass(String className) {
+        FutureTask<Class<?>> generatedClass = generatedClasses.get(className);
+        if (generatedClass == null || !generatedClass.isDone()) {
+            return null;
+        }
+        try {
+            return generatedClass.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
         }
-        return null;
     }
 }
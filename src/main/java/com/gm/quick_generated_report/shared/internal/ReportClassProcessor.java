@@ -0,0 +1,233 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportClassProcessor.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.gm.quick_generated_report.shared.annotation.ReportPrebuilt;
+
+/**
+ * Processore di annotazioni che genera in fase di compilazione i sorgenti delle classi del report per le classi annotate con `@ReportPrebuilt`.<br><br>
+ * Le classi generate sono equivalenti a quelle prodotte a runtime da `ReportRowClassGenerator` e `ReportSheetClassGenerator`:
+ * stessi nomi, stessi campi filtrati da `ReportRowClassFilter` e stesse annotazioni di layout.<br>
+ * Il processore viene registrato tramite `META-INF/services` ed è attivo nei moduli che dipendono dalla libreria.
+ *
+ * @see ReportPrebuilt
+ */
+@SupportedAnnotationTypes("com.gm.quick_generated_report.shared.annotation.ReportPrebuilt")
+public class ReportClassProcessor extends AbstractProcessor {
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(ReportPrebuilt.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@ReportPrebuilt è applicabile solo alle classi.", element);
+				continue;
+			}
+			TypeElement inputClass = (TypeElement) element;
+			try {
+				List<VariableElement> fields = filterFields(inputClass);
+				String simpleName = inputClass.getSimpleName().toString();
+				writeSource(inputClass, simpleName + "ReportRow", generateReportRowSource(simpleName, fields));
+				writeSource(inputClass, simpleName + "ReportSheetData", generateReportSheetDataSource(simpleName));
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Generazione delle classi del report non riuscita: " + e.getMessage(), element);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Restituisce i campi della classe di input permessi dai filtri di `ReportRowClassFilter`, nell'ordine di dichiarazione.
+	 *
+	 * @param inputClass La classe di input.
+	 * @return La lista dei campi permessi.
+	 */
+	private List<VariableElement> filterFields(TypeElement inputClass) {
+		List<VariableElement> fields = new ArrayList<>();
+		for (VariableElement field : ElementFilter.fieldsIn(inputClass.getEnclosedElements())) {
+			if (field.getModifiers().contains(Modifier.STATIC) || field.getSimpleName().toString().equalsIgnoreCase("serialVersionUID")) {
+				continue;
+			}
+			if (isEnum(field) || ReportRowClassFilter.filterType().test(loadType(field))) {
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Carica la classe del tipo dichiarato del campo, se disponibile nel classpath del processore.
+	 *
+	 * @param field Il campo di cui caricare il tipo.
+	 * @return La classe del tipo del campo, o `null` se non caricabile.
+	 */
+	private Class<?> loadType(VariableElement field) {
+		switch (field.asType().getKind()) {
+		case LONG:
+			return long.class;
+		case INT:
+			return int.class;
+		case DOUBLE:
+			return double.class;
+		case BOOLEAN:
+			return boolean.class;
+		default:
+			break;
+		}
+		String typeName = processingEnv.getTypeUtils().erasure(field.asType()).toString();
+		try {
+			return Class.forName(typeName);
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Verifica se il tipo dichiarato del campo è un'enumerazione, anche se non ancora compilata e quindi non caricabile dal processore.
+	 *
+	 * @param field Il campo da verificare.
+	 * @return `true` se il tipo del campo è un'enumerazione.
+	 */
+	private boolean isEnum(VariableElement field) {
+		Element typeElement = processingEnv.getTypeUtils().asElement(field.asType());
+		return typeElement != null && typeElement.getKind() == ElementKind.ENUM;
+	}
+
+	/**
+	 * Restituisce il nome del tipo della colonna della classe di riga per il campo della classe di input, come `ReportRowClassFilter.reportType`.
+	 *
+	 * @param field Il campo della classe di input.
+	 * @return Il nome del tipo della colonna.
+	 */
+	private String reportTypeName(VariableElement field) {
+		if (isEnum(field)) {
+			return String.class.getName();
+		}
+		Class<?> type = loadType(field);
+		return type != null ? ReportRowClassFilter.reportType(type).getName() : field.asType().toString();
+	}
+
+	/**
+	 * Restituisce l'espressione del valore assegnato al campo dal costruttore, con la conversione di `ReportRowValues` per i tipi convertiti.
+	 *
+	 * @param field Il campo della classe di input.
+	 * @return L'espressione del valore del campo.
+	 */
+	private String argumentValue(VariableElement field) {
+		String fieldName = field.getSimpleName().toString();
+		String reportTypeName = reportTypeName(field);
+		if (reportTypeName.equals(field.asType().toString())) {
+			return fieldName;
+		}
+		String converter = reportTypeName.equals(String.class.getName()) ? "toText" : "toDate";
+		return ReportRowValues.class.getName() + '.' + converter + '(' + fieldName + ')';
+	}
+
+	/**
+	 * Genera il sorgente della classe `...ReportRow` con campi annotati, costruttori, getter e setter.
+	 *
+	 * @param simpleName Il nome semplice della classe di input.
+	 * @param fields     I campi permessi della classe di input.
+	 * @return Il sorgente della classe di riga.
+	 */
+	private String generateReportRowSource(String simpleName, List<VariableElement> fields) {
+		String className = simpleName + "ReportRow";
+		StringBuilder source = new StringBuilder();
+		source.append("public class ").append(className).append(" implements bld.generator.report.excel.RowSheet {\n\n");
+		for (int i = 0; i < fields.size(); i++) {
+			VariableElement field = fields.get(i);
+			String fieldName = field.getSimpleName().toString();
+			String reportTypeName = reportTypeName(field);
+			if (reportTypeName.equals("java.util.Date")) {
+				source.append("\t@bld.generator.report.excel.annotation.ExcelDate(format = bld.generator.report.excel.constant.ColumnDateFormat.YYYY_MM_DD)\n");
+			}
+			source.append("\t@bld.generator.report.excel.annotation.ExcelColumn(columnName = \"").append(ReportUtil.generateReportColumn(fieldName)).append("\", indexColumn = ").append(i).append(".0)\n");
+			source.append("\t@bld.generator.report.excel.annotation.ExcelCellLayout(horizontalAlignment = org.apache.poi.ss.usermodel.HorizontalAlignment.CENTER)\n");
+			source.append("\tprivate ").append(reportTypeName).append(' ').append(fieldName).append(";\n\n");
+		}
+		// costruttore senza argomenti e costruttore con tutti i campi (ALL_ARGUMENTS), con gli argomenti del tipo dei campi della classe di input
+		source.append("\tpublic ").append(className).append("() {\n\t}\n\n");
+		source.append("\tpublic ").append(className).append('(');
+		for (int i = 0; i < fields.size(); i++) {
+			if (i > 0) source.append(", ");
+			source.append(fields.get(i).asType()).append(' ').append(fields.get(i).getSimpleName());
+		}
+		source.append(") {\n");
+		for (VariableElement field : fields) {
+			source.append("\t\tthis.").append(field.getSimpleName()).append(" = ").append(argumentValue(field)).append(";\n");
+		}
+		source.append("\t}\n");
+		// metodi accessori GETTER e SETTER
+		for (VariableElement field : fields) {
+			String fieldName = field.getSimpleName().toString();
+			String accessorName = fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+			String reportTypeName = reportTypeName(field);
+			source.append("\n\tpublic ").append(reportTypeName).append(" get").append(accessorName).append("() {\n");
+			source.append("\t\treturn this.").append(fieldName).append(";\n\t}\n");
+			source.append("\n\tpublic void set").append(accessorName).append("(final ").append(reportTypeName).append(' ').append(fieldName).append(") {\n");
+			source.append("\t\tthis.").append(fieldName).append(" = ").append(fieldName).append(";\n\t}\n");
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Genera il sorgente della classe `...ReportSheetData` che estende `SheetData`, con le annotazioni di layout del foglio Excel.
+	 *
+	 * @param simpleName Il nome semplice della classe di input.
+	 * @return Il sorgente della classe di foglio.
+	 */
+	private String generateReportSheetDataSource(String simpleName) {
+		String className = simpleName + "ReportSheetData";
+		String rowClassName = simpleName + "ReportRow";
+		StringBuilder source = new StringBuilder();
+		source.append("@bld.generator.report.excel.annotation.ExcelSheetLayout\n");
+		source.append("@bld.generator.report.excel.annotation.ExcelHeaderLayout\n");
+		source.append("@bld.generator.report.excel.annotation.ExcelMarginSheet(bottom = 1.5, left = 1.5, right = 1.5, top = 1.5)\n");
+		source.append("public class ").append(className).append(" extends bld.generator.report.excel.SheetData<").append(rowClassName).append("> {\n\n");
+		source.append("\tpublic ").append(className).append("(String sheetName) {\n\t\tsuper(sheetName);\n\t}\n\n");
+		source.append("\t@Override\n\tpublic Class<").append(rowClassName).append("> getRowClass() {\n");
+		source.append("\t\treturn ").append(rowClassName).append(".class;\n\t}\n");
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Scrive il sorgente generato tramite il `Filer` del processore.
+	 *
+	 * @param inputClass La classe di input da cui deriva il sorgente.
+	 * @param className  Il nome della classe generata.
+	 * @param source     Il sorgente della classe generata.
+	 * @throws IOException Se si verifica un errore durante la scrittura.
+	 */
+	private void writeSource(TypeElement inputClass, String className, String source) throws IOException {
+		try (Writer writer = processingEnv.getFiler().createSourceFile(className, inputClass).openWriter()) {
+			writer.write(source);
+		}
+	}
+}
@@ -0,0 +1,581 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportColumnBatch.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Questa classe rappresenta un blocco di righe del report memorizzato per colonne, utilizzato dalle scritture in streaming (CSV e Arrow).<br><br>
+ * I valori di ogni colonna sono mantenuti in un vettore primitivo in base al tipo del campo della classe di riga generata:
+ * <ul>
+ * <li>`Long`, `long` e `Date` (millisecondi) → `long[]`;</li>
+ * <li>`Integer`, `int`, `Boolean` e `boolean` (0 o 1) → `int[]`;</li>
+ * <li>`Double` e `double` → `double[]`;</li>
+ * <li>`String` → `int[]` con gli indici nel dizionario dei valori distinti del blocco;</li>
+ * <li>`BigDecimal` → `BigDecimal[]`.</li>
+ * </ul>
+ * I valori nulli sono registrati in una mappa di bit per colonna.<br>
+ * Le righe vengono lette con catene di `MethodHandle` risolte una sola volta per classe: le righe di un report statico vengono copiate nel blocco
+ * direttamente dalla classe di input, senza creare le righe della classe generata: i campi primitivi vengono letti senza boxing, le date `java.time`
+ * vengono convertite direttamente in millisecondi e le enumerazioni nel nome della costante. Il blocco viene riutilizzato dopo ogni scrittura,
+ * così che la memoria occupata dipenda dalla sua capacità e non dal numero di righe del report.<br>
+ * Un blocco può essere serializzato in forma binaria compatta e riletto, per la memorizzazione su disco di `ReportSpillBuffer`.
+ *
+ * @see ReportRowWriter
+ */
+class ReportColumnBatch {
+
+	protected static final int DEFAULT_CAPACITY = 8192;
+
+	private static final MethodType VALUE_GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType LONG_GETTER_TYPE = MethodType.methodType(long.class, Object.class);
+	private static final MethodType INT_GETTER_TYPE = MethodType.methodType(int.class, Object.class);
+	private static final MethodType DOUBLE_GETTER_TYPE = MethodType.methodType(double.class, Object.class);
+	private static final MethodType BOOLEAN_GETTER_TYPE = MethodType.methodType(boolean.class, Object.class);
+
+	private static final ClassValue<ConcurrentMap<Class<?>, MethodHandle[]>> VALUE_GETTERS = new ClassValue<ConcurrentMap<Class<?>, MethodHandle[]>>() {
+		@Override
+		protected ConcurrentMap<Class<?>, MethodHandle[]> computeValue(Class<?> sourceClass) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/**
+	 * Enumerazione che rappresenta il tipo di memorizzazione di una colonna del blocco.
+	 */
+	protected enum ColumnType {
+		LONG, INT, DOUBLE, BOOLEAN, DATE, DECIMAL, STRING
+	}
+
+	private final Field[] columnFields;
+	private final Class<?> rowClass;
+	private final int capacity;
+	private final ColumnVector[] columns;
+	private Class<?> sourceClass;
+	private MethodHandle[] valueGetters;
+	private int size = 0;
+
+	/**
+	 * Costruttore privato che alloca i vettori delle colonne con la capacità specificata.
+	 *
+	 * @param columnFields I campi della classe di riga nell'ordine delle colonne.
+	 * @param capacity     Il numero massimo di righe del blocco.
+	 * @throws ReportException Se il tipo di una colonna non è supportato.
+	 */
+	private ReportColumnBatch(Field[] columnFields, int capacity) throws ReportException {
+		this.columnFields = columnFields;
+		this.rowClass = columnFields.length > 0 ? columnFields[0].getDeclaringClass() : Object.class;
+		this.capacity = capacity;
+		this.columns = new ColumnVector[columnFields.length];
+		for (int i = 0; i < columnFields.length; i++) {
+			columns[i] = new ColumnVector(columnType(columnFields[i]), capacity);
+		}
+	}
+
+	/**
+	 * Crea un blocco vuoto per le colonne specificate.
+	 *
+	 * @param columnFields I campi della classe di riga nell'ordine delle colonne.
+	 * @param capacity     Il numero massimo di righe del blocco.
+	 * @return Un nuovo blocco vuoto.
+	 * @throws ReportException Se la capacità non è positiva o se il tipo di una colonna non è supportato.
+	 */
+	protected static ReportColumnBatch define(Field[] columnFields, int capacity) throws ReportException {
+		if (capacity <= 0)
+			throw new ReportException("Capacità del blocco di righe non valida: " + capacity + ".");
+		return new ReportColumnBatch(columnFields, capacity);
+	}
+
+	/**
+	 * Crea un blocco vuoto con le stesse colonne e la stessa capacità del blocco corrente, ad esempio per una partizione eseguita in parallelo.
+	 *
+	 * @return Un nuovo blocco vuoto.
+	 * @throws ReportException Se il tipo di una colonna non è supportato.
+	 */
+	protected ReportColumnBatch copyDefinition() throws ReportException {
+		return new ReportColumnBatch(columnFields, capacity);
+	}
+
+	/**
+	 * Aggiunge una riga al blocco, leggendo i valori dei campi con lo stesso nome e tipo delle colonne.<br>
+	 * La riga può essere della classe generata oppure della classe di input di un report statico; le colonne senza campo corrispondente restano nulle.
+	 *
+	 * @param row La riga da aggiungere.
+	 * @return `true` se il blocco ha raggiunto la capacità e deve essere scritto.
+	 * @throws ReportException Se non è possibile leggere i valori della riga.
+	 */
+	protected boolean add(Object row) throws ReportException {
+		if (row.getClass() != sourceClass) {
+			sourceClass = row.getClass();
+			valueGetters = valueGetters(sourceClass);
+		}
+		try {
+			for (int i = 0; i < columns.length; i++) {
+				MethodHandle valueGetter = valueGetters[i];
+				if (valueGetter == null) {
+					columns[i].set(size, null);
+					continue;
+				}
+				// i campi primitivi sono letti con il proprio tipo, senza boxing
+				Class<?> valueType = valueGetter.type().returnType();
+				if (valueType == long.class) columns[i].longs[size] = (long) valueGetter.invokeExact(row);
+				else if (valueType == int.class) columns[i].ints[size] = (int) valueGetter.invokeExact(row);
+				else if (valueType == double.class) columns[i].doubles[size] = (double) valueGetter.invokeExact(row);
+				else if (valueType == boolean.class) columns[i].ints[size] = (boolean) valueGetter.invokeExact(row) ? 1 : 0;
+				else columns[i].set(size, (Object) valueGetter.invokeExact(row));
+			}
+		} catch (Throwable e) {
+			throw new ReportException(e);
+		}
+		return ++size == capacity;
+	}
+
+	/**
+	 * Svuota il blocco per le righe successive, mantenendo i vettori allocati.
+	 */
+	protected void clear() {
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].clear(size);
+		}
+		size = 0;
+	}
+
+	/**
+	 * @return Il numero di righe del blocco.
+	 */
+	protected int size() {
+		return size;
+	}
+
+	/**
+	 * @return Il numero di colonne del blocco.
+	 */
+	protected int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * @param column L'indice della colonna.
+	 * @return Il tipo di memorizzazione della colonna.
+	 */
+	protected ColumnType getColumnType(int column) {
+		return columns[column].type;
+	}
+
+	/**
+	 * @param column L'indice della colonna.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return `true` se il valore della cella è nullo.
+	 */
+	protected boolean isNull(int column, int row) {
+		return (columns[column].nulls[row >>> 6] & (1L << row)) != 0;
+	}
+
+	/**
+	 * @param column L'indice di una colonna `LONG` o `DATE`.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return Il valore della cella (i millisecondi per le date).
+	 */
+	protected long getLong(int column, int row) {
+		return columns[column].longs[row];
+	}
+
+	/**
+	 * @param column L'indice di una colonna `INT`.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return Il valore della cella.
+	 */
+	protected int getInt(int column, int row) {
+		return columns[column].ints[row];
+	}
+
+	/**
+	 * @param column L'indice di una colonna `DOUBLE`.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return Il valore della cella.
+	 */
+	protected double getDouble(int column, int row) {
+		return columns[column].doubles[row];
+	}
+
+	/**
+	 * @param column L'indice di una colonna `BOOLEAN`.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return Il valore della cella.
+	 */
+	protected boolean getBoolean(int column, int row) {
+		return columns[column].ints[row] != 0;
+	}
+
+	/**
+	 * @param column L'indice di una colonna `DECIMAL`.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return Il valore della cella.
+	 */
+	protected BigDecimal getDecimal(int column, int row) {
+		return columns[column].decimals[row];
+	}
+
+	/**
+	 * @param column L'indice di una colonna `STRING`.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return L'indice del valore della cella nel dizionario della colonna.
+	 */
+	protected int getDictionaryIndex(int column, int row) {
+		return columns[column].ints[row];
+	}
+
+	/**
+	 * @param column L'indice di una colonna `STRING`.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return Il valore della cella.
+	 */
+	protected String getString(int column, int row) {
+		return columns[column].dictionaryValues.get(columns[column].ints[row]);
+	}
+
+	/**
+	 * @param column L'indice di una colonna `STRING`.
+	 * @return I valori distinti della colonna nel blocco, nell'ordine dei rispettivi indici.
+	 */
+	protected List<String> getDictionary(int column) {
+		return columns[column].dictionaryValues;
+	}
+
+	/**
+	 * Restituisce il valore di una cella come oggetto del tipo del campo della colonna, ad esempio per ricostruire una riga della classe generata.
+	 *
+	 * @param column L'indice della colonna.
+	 * @param row    L'indice della riga nel blocco.
+	 * @return Il valore della cella, oppure `null`.
+	 */
+	protected Object getValue(int column, int row) {
+		if (isNull(column, row)) {
+			return null;
+		}
+		switch (columns[column].type) {
+		case LONG:
+			return getLong(column, row);
+		case DATE:
+			return new Date(getLong(column, row));
+		case INT:
+			return getInt(column, row);
+		case BOOLEAN:
+			return getBoolean(column, row);
+		case DOUBLE:
+			return getDouble(column, row);
+		case DECIMAL:
+			return getDecimal(column, row);
+		default:
+			return getString(column, row);
+		}
+	}
+
+	/**
+	 * Serializza le righe del blocco in forma binaria compatta: per ogni colonna la mappa dei nulli, il dizionario delle stringhe
+	 * e i soli valori non nulli.
+	 *
+	 * @param output Lo stream su cui scrivere il blocco.
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	protected void writeTo(DataOutputStream output) throws IOException {
+		output.writeInt(size);
+		for (ColumnVector column : columns) {
+			column.writeTo(output, size);
+		}
+	}
+
+	/**
+	 * Sostituisce le righe del blocco con quelle serializzate da `writeTo`, lette dalla posizione corrente del buffer.
+	 *
+	 * @param buffer Il buffer da cui leggere il blocco.
+	 */
+	protected void readFrom(ByteBuffer buffer) {
+		clear();
+		size = buffer.getInt();
+		for (ColumnVector column : columns) {
+			column.readFrom(buffer, size);
+		}
+	}
+
+	/**
+	 * Restituisce le catene di lettura dei valori delle colonne per la classe delle righe specificata, risolvendole alla prima richiesta.
+	 *
+	 * @param sourceClass La classe delle righe da aggiungere.
+	 * @return Le catene di lettura, nell'ordine delle colonne (`null` per le colonne senza campo corrispondente).
+	 * @throws ReportException Se i campi non sono accessibili.
+	 */
+	private MethodHandle[] valueGetters(Class<?> sourceClass) throws ReportException {
+		ConcurrentMap<Class<?>, MethodHandle[]> sourceGetters = VALUE_GETTERS.get(sourceClass);
+		MethodHandle[] getters = sourceGetters.get(rowClass);
+		if (getters == null) {
+			getters = resolveValueGetters(sourceClass);
+			MethodHandle[] existingGetters = sourceGetters.putIfAbsent(rowClass, getters);
+			if (existingGetters != null) {
+				getters = existingGetters;
+			}
+		}
+		return getters;
+	}
+
+	/**
+	 * Risolve le catene di lettura dei valori delle colonne dai getter del `ReportSchema` della classe, associando i campi per nome e tipo come `ReportRowMapper`.
+	 *
+	 * @param sourceClass La classe delle righe da aggiungere.
+	 * @return Le catene di lettura, nell'ordine delle colonne.
+	 * @throws ReportException Se i campi non sono accessibili.
+	 */
+	private MethodHandle[] resolveValueGetters(Class<?> sourceClass) throws ReportException {
+		MethodHandle[] getters = new MethodHandle[columnFields.length];
+		ReportSchema sourceSchema = ReportSchema.of(sourceClass);
+		for (int i = 0; i < columnFields.length; i++) {
+			int sourceIndex = sourceSchema.indexOf(columnFields[i].getName());
+			if (sourceIndex >= 0) {
+				Field sourceField = sourceSchema.getField(sourceIndex);
+				if (ReportRowClassFilter.reportType(sourceField.getType()).equals(columnFields[i].getType())) {
+					getters[i] = sourceSchema.getGetter(sourceIndex).asType(getterType(sourceField.getType()));
+				}
+			}
+		}
+		return getters;
+	}
+
+	/**
+	 * Restituisce il tipo della catena di lettura di un campo: primitivo per i campi primitivi, `Object` per gli altri.
+	 *
+	 * @param fieldType Il tipo del campo.
+	 * @return Il tipo della catena di lettura.
+	 */
+	private static MethodType getterType(Class<?> fieldType) {
+		if (fieldType == long.class) return LONG_GETTER_TYPE;
+		if (fieldType == int.class) return INT_GETTER_TYPE;
+		if (fieldType == double.class) return DOUBLE_GETTER_TYPE;
+		if (fieldType == boolean.class) return BOOLEAN_GETTER_TYPE;
+		return VALUE_GETTER_TYPE;
+	}
+
+	/**
+	 * Restituisce il tipo di memorizzazione della colonna in base al tipo del campo della classe di riga.
+	 *
+	 * @param columnField Il campo della classe di riga.
+	 * @return Il tipo di memorizzazione della colonna.
+	 * @throws ReportException Se il tipo del campo non è supportato.
+	 */
+	private static ColumnType columnType(Field columnField) throws ReportException {
+		Class<?> type = columnField.getType();
+		if (type == Long.class || type == long.class) return ColumnType.LONG;
+		if (type == Integer.class || type == int.class) return ColumnType.INT;
+		if (type == Double.class || type == double.class) return ColumnType.DOUBLE;
+		if (type == Boolean.class || type == boolean.class) return ColumnType.BOOLEAN;
+		if (type == Date.class) return ColumnType.DATE;
+		if (type == BigDecimal.class) return ColumnType.DECIMAL;
+		if (type == String.class) return ColumnType.STRING;
+		throw new ReportException("Tipo della colonna '" + columnField.getName() + "' non supportato: " + type.getName() + ".");
+	}
+
+	/**
+	 * Il vettore dei valori di una colonna del blocco, con la mappa di bit dei valori nulli e, per le stringhe, il dizionario dei valori distinti.
+	 */
+	private static class ColumnVector {
+
+		private final ColumnType type;
+		private final long[] nulls;
+		private long[] longs;
+		private int[] ints;
+		private double[] doubles;
+		private BigDecimal[] decimals;
+		private Map<String, Integer> dictionaryIndexes;
+		private List<String> dictionaryValues;
+
+		private ColumnVector(ColumnType type, int capacity) {
+			this.type = type;
+			this.nulls = new long[(capacity + 63) >>> 6];
+			switch (type) {
+			case LONG:
+			case DATE:
+				longs = new long[capacity];
+				break;
+			case DOUBLE:
+				doubles = new double[capacity];
+				break;
+			case DECIMAL:
+				decimals = new BigDecimal[capacity];
+				break;
+			case STRING:
+				dictionaryIndexes = new HashMap<>();
+				dictionaryValues = new ArrayList<>();
+				ints = new int[capacity];
+				break;
+			default:
+				ints = new int[capacity];
+			}
+		}
+
+		/**
+		 * Imposta il valore di una riga del blocco.
+		 *
+		 * @param row   L'indice della riga nel blocco.
+		 * @param value Il valore della cella, eventualmente nullo.
+		 */
+		private void set(int row, Object value) {
+			if (value == null) {
+				nulls[row >>> 6] |= 1L << row;
+				return;
+			}
+			switch (type) {
+			case LONG:
+				longs[row] = (Long) value;
+				break;
+			case DATE:
+				longs[row] = ReportRowValues.toEpochMillis(value);
+				break;
+			case INT:
+				ints[row] = (Integer) value;
+				break;
+			case BOOLEAN:
+				ints[row] = ((Boolean) value) ? 1 : 0;
+				break;
+			case DOUBLE:
+				doubles[row] = (Double) value;
+				break;
+			case DECIMAL:
+				decimals[row] = (BigDecimal) value;
+				break;
+			case STRING:
+				String text = value instanceof Enum ? ((Enum<?>) value).name() : (String) value;
+				Integer index = dictionaryIndexes.get(text);
+				if (index == null) {
+					index = dictionaryValues.size();
+					dictionaryIndexes.put(text, index);
+					dictionaryValues.add(text);
+				}
+				ints[row] = index;
+				break;
+			}
+		}
+
+		/**
+		 * Serializza la mappa dei nulli e i valori non nulli delle righe usate.
+		 *
+		 * @param output Lo stream su cui scrivere la colonna.
+		 * @param size   Il numero di righe usate del blocco.
+		 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+		 */
+		private void writeTo(DataOutputStream output, int size) throws IOException {
+			for (int word = 0; word < (size + 63) >>> 6; word++) {
+				output.writeLong(nulls[word]);
+			}
+			if (type == ColumnType.STRING) {
+				output.writeInt(dictionaryValues.size());
+				for (String value : dictionaryValues) {
+					byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+					output.writeInt(bytes.length);
+					output.write(bytes);
+				}
+			}
+			for (int row = 0; row < size; row++) {
+				if ((nulls[row >>> 6] & (1L << row)) != 0) continue;
+				switch (type) {
+				case LONG:
+				case DATE:
+					output.writeLong(longs[row]);
+					break;
+				case DOUBLE:
+					output.writeDouble(doubles[row]);
+					break;
+				case BOOLEAN:
+					output.writeByte(ints[row]);
+					break;
+				case DECIMAL:
+					byte[] unscaled = decimals[row].unscaledValue().toByteArray();
+					output.writeInt(decimals[row].scale());
+					output.writeInt(unscaled.length);
+					output.write(unscaled);
+					break;
+				default:
+					output.writeInt(ints[row]);
+				}
+			}
+		}
+
+		/**
+		 * Legge la mappa dei nulli e i valori non nulli serializzati da `writeTo`.
+		 *
+		 * @param buffer Il buffer da cui leggere la colonna.
+		 * @param size   Il numero di righe del blocco.
+		 */
+		private void readFrom(ByteBuffer buffer, int size) {
+			for (int word = 0; word < (size + 63) >>> 6; word++) {
+				nulls[word] = buffer.getLong();
+			}
+			if (type == ColumnType.STRING) {
+				int dictionarySize = buffer.getInt();
+				for (int i = 0; i < dictionarySize; i++) {
+					byte[] bytes = new byte[buffer.getInt()];
+					buffer.get(bytes);
+					String value = new String(bytes, StandardCharsets.UTF_8);
+					dictionaryIndexes.put(value, i);
+					dictionaryValues.add(value);
+				}
+			}
+			for (int row = 0; row < size; row++) {
+				if ((nulls[row >>> 6] & (1L << row)) != 0) continue;
+				switch (type) {
+				case LONG:
+				case DATE:
+					longs[row] = buffer.getLong();
+					break;
+				case DOUBLE:
+					doubles[row] = buffer.getDouble();
+					break;
+				case BOOLEAN:
+					ints[row] = buffer.get();
+					break;
+				case DECIMAL:
+					int scale = buffer.getInt();
+					byte[] unscaled = new byte[buffer.getInt()];
+					buffer.get(unscaled);
+					decimals[row] = new BigDecimal(new BigInteger(unscaled), scale);
+					break;
+				default:
+					ints[row] = buffer.getInt();
+				}
+			}
+		}
+
+		/**
+		 * Svuota la mappa dei nulli, i riferimenti ai decimali e il dizionario delle righe usate.
+		 *
+		 * @param size Il numero di righe usate del blocco.
+		 */
+		private void clear(int size) {
+			Arrays.fill(nulls, 0, (size + 63) >>> 6, 0L);
+			if (decimals != null) Arrays.fill(decimals, 0, size, null);
+			if (dictionaryIndexes != null) {
+				dictionaryIndexes.clear();
+				dictionaryValues.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportCompression.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Enumerazione che rappresenta la compressione applicata al file CSV durante la scrittura, impostata con `ReportGeneratorBuilder.csvCompression`.<br><br>
+ * La compressione viene applicata in streaming sullo stream di uscita, senza un secondo passaggio sul file generato:
+ * <ul>
+ * <li>`NONE`: nessuna compressione (predefinito);</li>
+ * <li>`GZIP`: formato gzip (`.csv.gz`), disponibile nel JDK;</li>
+ * <li>`ZSTD`: formato Zstandard (`.csv.zst`), più veloce a parità di rapporto di compressione. Richiede la dipendenza opzionale `com.github.luben:zstd-jni`.</li>
+ * </ul>
+ *
+ * @see ReportGeneratorBuilder
+ */
+public enum ReportCompression {
+	NONE, GZIP, ZSTD;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String ZSTD_OUTPUT_STREAM = "com.github.luben.zstd.ZstdOutputStream";
+
+	/**
+     * Apre lo stream di compressione sullo stream di uscita specificato.<br>
+     * La chiusura dello stream restituito completa il formato compresso ma non chiude lo stream di uscita.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere i dati compressi.
+     * @return Lo stream su cui scrivere i dati da comprimere.
+     * @throws IOException     Se non è possibile scrivere l'intestazione del formato compresso.
+     * @throws ReportException Se la compressione `ZSTD` è richiesta senza la dipendenza `zstd-jni`.
+     */
+	protected OutputStream open(OutputStream outputStream) throws IOException, ReportException {
+		OutputStream target = shield(outputStream);
+		switch (this) {
+		case GZIP:
+			return new GZIPOutputStream(target, BUFFER_SIZE);
+		case ZSTD:
+			return openZstd(target);
+		default:
+			return target;
+		}
+	}
+
+	/**
+     * Restituisce uno stream che scrive sullo stream di uscita specificato e che alla chiusura lo svuota senza chiuderlo,
+     * per gli stream di formato che chiudono lo stream sottostante al completamento del file.
+     *
+     * @param outputStream Lo stream di uscita del chiamante.
+     * @return Lo stream che non chiude lo stream di uscita.
+     */
+	protected static OutputStream shield(OutputStream outputStream) {
+		return new FilterOutputStream(outputStream) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				// lo stream di uscita appartiene al chiamante: viene solo svuotato
+				out.flush();
+			}
+		};
+	}
+
+	/**
+     * Apre lo stream di compressione Zstandard, verificando la presenza della dipendenza opzionale.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere i dati compressi.
+     * @return Lo stream di compressione Zstandard.
+     * @throws IOException     Se non è possibile aprire lo stream di compressione.
+     * @throws ReportException Se la dipendenza `zstd-jni` non è presente.
+     */
+	private static OutputStream openZstd(OutputStream outputStream) throws IOException, ReportException {
+		try {
+			Class.forName(ZSTD_OUTPUT_STREAM, false, ReportCompression.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new ReportException("Compressione ZSTD non disponibile: aggiungere la dipendenza 'com.github.luben:zstd-jni'.", e);
+		}
+		// la classe che importa zstd-jni viene caricata solo qui, così che NONE e GZIP non richiedano la dipendenza opzionale
+		return ReportZstdStream.open(outputStream);
+	}
+}
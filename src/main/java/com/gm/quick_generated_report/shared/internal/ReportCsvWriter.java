@@ -0,0 +1,219 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportCsvWriter.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+import bld.generator.report.excel.RowSheet;
+import bld.generator.report.excel.annotation.ExcelColumn;
+import bld.generator.report.excel.annotation.ExcelDate;
+import bld.generator.report.excel.constant.ColumnDateFormat;
+
+/**
+ * Questa classe è responsabile della scrittura in formato CSV delle righe del report a partire dalle classi `RowSheet` generate da `ReportRowClassGenerator`.<br>
+ * Le righe vengono scritte direttamente sullo stream di uscita codificate in UTF-8, senza passare per un workbook XLSX intermedio.<br><br>
+ * Le colonne seguono l'ordine e le intestazioni definite dalle annotazioni `ExcelColumn` della classe generata.<br>
+ * Le date delle colonne annotate con `ExcelDate` nel formato `YYYY_MM_DD` vengono scritte come `yyyy-MM-dd`, come nel file XLSX; le altre date,
+ * comprese quelle dei campi `LocalDateTime` e `Instant` della classe di input, vengono scritte con data e ora complete (`yyyy-MM-dd'T'HH:mm:ss.SSS`),
+ * per non perdere l'orario, e per gli `Instant` con lo scostamento del fuso orario. I testi vuoti vengono scritti come `""`,
+ * così da distinguerli dai valori nulli, che restano campi vuoti.
+ *
+ * @see ReportGeneratorBuilder
+ */
+class ReportCsvWriter implements ReportRowWriter, Flushable {
+
+	private static final char SEPARATOR = ',';
+	private static final char QUOTE = '"';
+	private static final char NEW_LINE = '\n';
+	private static final String DATE_PATTERN = "yyyy-MM-dd";
+	private static final String TIMESTAMP_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS";
+	private static final String INSTANT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+	private final Writer writer;
+	private final Field[] columnFields;
+	private final SimpleDateFormat[] dateFormatters;
+	private final Date dateValue = new Date();
+	private long rowCount = 0;
+
+	/**
+	 * Costruttore che inizializza lo scrittore CSV per la classe di riga specificata.
+	 *
+	 * @param outputStream Lo stream di uscita su cui scrivere il file CSV.
+	 * @param rowClass     La classe generata che rappresenta una riga del report.
+	 */
+	protected ReportCsvWriter(OutputStream outputStream, Class<? extends RowSheet> rowClass) {
+		this(outputStream, resolveColumnFields(rowClass), rowClass);
+	}
+
+	/**
+	 * Costruttore che inizializza lo scrittore CSV con le colonne già risolte, ad esempio da un `ReportPlan`.
+	 *
+	 * @param outputStream Lo stream di uscita su cui scrivere il file CSV.
+	 * @param columnFields    I campi della classe di riga nell'ordine delle colonne, già resi accessibili.
+	 * @param reportClassType La classe di input del report, da cui si ricava il tipo originale dei campi di tipo data.
+	 */
+	protected ReportCsvWriter(OutputStream outputStream, Field[] columnFields, Class<?> reportClassType) {
+		this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		this.columnFields = columnFields;
+		this.dateFormatters = new SimpleDateFormat[columnFields.length];
+		ReportSchema inputSchema = ReportSchema.of(reportClassType);
+		for (int i = 0; i < columnFields.length; i++) {
+			if (columnFields[i].getType() == Date.class) {
+				int inputIndex = inputSchema.indexOf(columnFields[i].getName());
+				Class<?> inputType = inputIndex >= 0 ? inputSchema.getField(inputIndex).getType() : Date.class;
+				dateFormatters[i] = new SimpleDateFormat(datePattern(columnFields[i], inputType));
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il formato di scrittura di una colonna di tipo `Date`: data e ora complete per i campi `LocalDateTime` e, con lo scostamento
+	 * del fuso orario, `Instant` della classe di input; altrimenti `yyyy-MM-dd` per le colonne annotate con `ExcelDate` nel formato `YYYY_MM_DD`
+	 * e data e ora complete per le altre.
+	 *
+	 * @param columnField Il campo della classe di riga di tipo `Date`.
+	 * @param inputType   Il tipo del campo corrispondente della classe di input.
+	 * @return Il formato della data.
+	 */
+	private static String datePattern(Field columnField, Class<?> inputType) {
+		if (inputType == LocalDateTime.class) return TIMESTAMP_PATTERN;
+		if (inputType == Instant.class) return INSTANT_PATTERN;
+		ExcelDate excelDate = columnField.getAnnotation(ExcelDate.class);
+		return excelDate != null && excelDate.format() == ColumnDateFormat.YYYY_MM_DD ? DATE_PATTERN : TIMESTAMP_PATTERN;
+	}
+
+	/**
+	 * Restituisce i campi della classe di riga annotati con `ExcelColumn`, ordinati per indice di colonna e resi accessibili, dallo schema della classe.
+	 *
+	 * @param rowClass La classe generata che rappresenta una riga del report.
+	 * @return I campi della classe di riga nell'ordine delle colonne.
+	 */
+	protected static Field[] resolveColumnFields(Class<? extends RowSheet> rowClass) {
+		return ReportSchema.of(rowClass).getColumnFields();
+	}
+
+	/**
+	 * Scrive la riga di intestazione con i nomi delle colonne definiti dalle annotazioni `ExcelColumn`.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	@Override
+	public void writeHeader() throws IOException {
+		for (int i = 0; i < columnFields.length; i++) {
+			if (i > 0) writer.write(SEPARATOR);
+			appendText(columnFields[i].getAnnotation(ExcelColumn.class).columnName());
+		}
+		writer.write(NEW_LINE);
+	}
+
+	/**
+	 * Scrive le righe di un blocco del report, leggendo i valori direttamente dai vettori delle colonne.<br>
+	 * Al termine del blocco il buffer viene svuotato sullo stream di uscita, per consentire l'invio dei dati man mano che vengono prodotti.
+	 *
+	 * @param batch Il blocco di righe da scrivere.
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	@Override
+	public void writeBatch(ReportColumnBatch batch) throws IOException {
+		for (int row = 0; row < batch.size(); row++) {
+			for (int column = 0; column < batch.getColumnCount(); column++) {
+				if (column > 0) writer.write(SEPARATOR);
+				if (!batch.isNull(column, row)) appendValue(batch, column, row);
+			}
+			writer.write(NEW_LINE);
+		}
+		rowCount += batch.size();
+		writer.flush();
+	}
+
+	@Override
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Svuota il buffer interno sullo stream di uscita: il formato CSV non richiede un completamento del file.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	@Override
+	public void finish() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Svuota il buffer interno sullo stream di uscita, senza chiuderlo.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	/**
+	 * Appende il valore non nullo di una cella in base al tipo della colonna.<br>
+	 * Le stringhe vengono racchiuse tra doppi apici.
+	 *
+	 * @param batch  Il blocco di righe.
+	 * @param column L'indice della colonna.
+	 * @param row    L'indice della riga nel blocco.
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	private void appendValue(ReportColumnBatch batch, int column, int row) throws IOException {
+		switch (batch.getColumnType(column)) {
+		case STRING:
+			appendText(batch.getString(column, row));
+			break;
+		case DATE:
+			dateValue.setTime(batch.getLong(column, row));
+			writer.write(dateFormatters[column].format(dateValue));
+			break;
+		case DECIMAL:
+			writer.write(batch.getDecimal(column, row).toPlainString());
+			break;
+		case LONG:
+			writer.write(Long.toString(batch.getLong(column, row)));
+			break;
+		case INT:
+			writer.write(Integer.toString(batch.getInt(column, row)));
+			break;
+		case DOUBLE:
+			writer.write(Double.toString(batch.getDouble(column, row)));
+			break;
+		case BOOLEAN:
+			writer.write(Boolean.toString(batch.getBoolean(column, row)));
+			break;
+		}
+	}
+
+	/**
+	 * Appende un testo racchiuso tra doppi apici, raddoppiando quelli presenti nel testo; un testo vuoto viene scritto come `""`.
+	 *
+	 * @param text Il testo da appendere.
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	private void appendText(String text) throws IOException {
+		writer.write(QUOTE);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == QUOTE) writer.write(QUOTE);
+			writer.write(c);
+		}
+		writer.write(QUOTE);
+	}
+}
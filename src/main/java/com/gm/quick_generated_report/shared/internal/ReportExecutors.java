@@ -0,0 +1,180 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportExecutors.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Questa classe fornisce gli executor per la generazione asincrona dei report con `generateXlsxAsync` e `generateCsvAsync`.<br><br>
+ * Sono disponibili due tipologie di executor:
+ * <ul>
+ * <li>`newBoundedExecutor`: pool di thread di piattaforma di dimensione fissa con coda limitata e politica di rifiuto configurabile;</li>
+ * <li>`newVirtualThreadExecutor`: un thread virtuale per report, con un limite ai report in corso. I thread virtuali sono disponibili da JDK 21
+ * e vengono individuati a runtime, così che la libreria resti compilabile per Java 8; sulle JVM precedenti viene restituito un pool limitato.</li>
+ * </ul>
+ *
+ * @see ReportBuilder
+ */
+public class ReportExecutors {
+
+	private ReportExecutors() {}
+
+	/**
+     * Crea un pool di thread di dimensione fissa con coda limitata. Le richieste oltre la capacità della coda vengono rifiutate con `RejectedExecutionException`.
+     *
+     * @param threads       Il numero di thread del pool.
+     * @param queueCapacity Il numero massimo di report in attesa.
+     * @return L'executor creato.
+     */
+	public static ExecutorService newBoundedExecutor(int threads, int queueCapacity) {
+		return newBoundedExecutor(threads, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+     * Crea un pool di thread di dimensione fissa con coda limitata e con la politica di rifiuto specificata, ad esempio
+     * `ThreadPoolExecutor.CallerRunsPolicy` per rallentare il chiamante invece di rifiutare la richiesta.
+     *
+     * @param threads          Il numero di thread del pool.
+     * @param queueCapacity    Il numero massimo di report in attesa.
+     * @param rejectionHandler La politica da applicare alle richieste oltre la capacità della coda.
+     * @return L'executor creato.
+     */
+	public static ExecutorService newBoundedExecutor(int threads, int queueCapacity, RejectedExecutionHandler rejectionHandler) {
+		return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), newThreadFactory(), rejectionHandler);
+	}
+
+	/**
+     * Crea un executor che esegue ogni report su un nuovo thread virtuale, con al massimo `maxTasks` report in corso o in attesa.
+     * Le richieste oltre il limite vengono rifiutate con `RejectedExecutionException`.<br>
+     * Se la JVM non supporta i thread virtuali viene restituito un pool limitato con un thread per processore e coda di `maxTasks` report.<br>
+     * Come il pool limitato, l'executor può essere chiuso con `shutdown` o `shutdownNow` e atteso con `awaitTermination`, operazioni delegate
+     * all'executor dei thread virtuali.
+     *
+     * @param maxTasks Il numero massimo di report in corso o in attesa.
+     * @return L'executor creato.
+     */
+	public static ExecutorService newVirtualThreadExecutor(int maxTasks) {
+		ExecutorService virtualThreadExecutor;
+		try {
+			virtualThreadExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return newBoundedExecutor(Runtime.getRuntime().availableProcessors(), maxTasks);
+		}
+		return new LimitedExecutorService(virtualThreadExecutor, maxTasks);
+	}
+
+	/**
+     * Esegue il task specificato sull'executor indicato e ne restituisce il risultato come `CompletableFuture`.<br>
+     * Se l'executor rifiuta il task, il future viene completato con l'eccezione `RejectedExecutionException`.
+     *
+     * @param <T>      Tipo del risultato del task.
+     * @param executor L'executor su cui eseguire il task.
+     * @param task     Il task da eseguire.
+     * @return Il future del risultato del task.
+     */
+	protected static <T> CompletableFuture<T> submit(Executor executor, Callable<T> task) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(task.call());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+     * Crea la factory dei thread daemon dei pool dei report.
+     *
+     * @return La factory dei thread.
+     */
+	private static ThreadFactory newThreadFactory() {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "report-generator-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Executor che limita il numero di task in corso o in attesa sull'executor delegato, a cui inoltra anche la chiusura e l'attesa della terminazione.
+	 */
+	private static class LimitedExecutorService extends AbstractExecutorService {
+
+		private final ExecutorService delegate;
+		private final int maxTasks;
+		private final Semaphore permits;
+
+		private LimitedExecutorService(ExecutorService delegate, int maxTasks) {
+			this.delegate = delegate;
+			this.maxTasks = maxTasks;
+			this.permits = new Semaphore(maxTasks);
+		}
+
+		@Override
+		public void execute(Runnable task) {
+			if (!permits.tryAcquire())
+				throw new RejectedExecutionException("Limite di " + maxTasks + " report in corso raggiunto.");
+			try {
+				delegate.execute(() -> {
+					try {
+						task.run();
+					} finally {
+						permits.release();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
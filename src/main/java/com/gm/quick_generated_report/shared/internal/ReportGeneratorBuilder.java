@@ -5,185 +5,1059 @@
 */
 package com.gm.quick_generated_report.shared.internal;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.gm.quick_generated_report.shared.exception.ReportException;
 
 import bld.generator.report.excel.BaseSheet;
-import bld.generator.report.excel.GenerateExcel;
-import bld.generator.report.excel.QuerySheetData;
 import bld.generator.report.excel.RowSheet;
 import bld.generator.report.excel.SheetData;
 import bld.generator.report.excel.data.ReportExcel;
 
 /**
- * Questa classe è responsabile della generazione dei file del report in formato XLSX o CSV a partire dalle classi generate `RowSheet` e `QuerySheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`.<br> 
- * Questa classe consente di definire il nome del report, il tipo di classe del report e, facoltativamente, una query SQL per filtrare i dati.
+ * Questa classe è responsabile della generazione dei file del report in formato XLSX o CSV a partire dalle classi generate `RowSheet` e `SheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`.<br> 
+ * Questa classe consente di definire il nome del report, il tipo di classe del report e, facoltativamente, una query SQL per filtrare i dati.<br><br>
+ * La query e i suoi parametri appartengono all'istanza e non alle classi generate, condivise tra tutte le richieste: la stessa classe del report può
+ * quindi servire contemporaneamente più report con condizioni diverse.
  * 
  * @see ReportQueryBuilder
  * @see ReportBuilder
  */
 public class ReportGeneratorBuilder {
 
+	// numero massimo di righe di dati di un foglio XLSX (1.048.576 righe, meno la riga di intestazione)
+	private static final int MAX_SHEET_ROWS = 1_048_575;
+	protected static final int MAX_SHEET_NAME_LENGTH = 31;
+	private static final String ARROW_VECTOR = "org.apache.arrow.vector.VectorSchemaRoot";
+	
 	private Class<?> reportClassType;
 	private List<?> reportRows;
 	private String reportName;
 	private String reportQuery;
 	private String reportOrder;
-	private GenerateExcel generatorExcel;
+	private ReportQueryOrder[] reportOrders;
+	private Map<String, Object> reportParameters;
+	private int chunkSize;
+	private String partitionColumn;
+	private int partitions;
+	private long spillHeapBytes;
+	private Path spillDirectory;
+	private final List<ReportSpillBuffer<?>> spillBuffers = Collections.synchronizedList(new ArrayList<>());
+	private ReportPlan reportPlan;
+	private String conditionKey;
+	private ReportCompression csvCompression = ReportCompression.NONE;
+	private ReportBuilder reportBuilder;
 	
 	/**
      * Costruttore privato utilizzato per inizializzare un'istanza di `ReportGeneratorBuilder`.
      *
-     * @param generatorExcel  L'oggetto `GenerateExcel` utilizzato per la generazione di report.
+     * @param reportBuilder   Il `ReportBuilder` che fornisce i servizi per la generazione di report.
      * @param reportClassType Il tipo di classe del report.
      * @param reportName      Il nome del report.
      * @param reportQuery     La query SQL per filtrare i dati (opzionale).
+     * @param reportOrder     La clausola ORDER BY per la query SQL (opzionale).
+     * @param reportParameters I valori dei parametri della query SQL, indicizzati per nome.
      * @param reportRows 	  Lista di righe del tipo della classe del report usato per fogli statici.
      */
-	private ReportGeneratorBuilder(GenerateExcel generatorExcel, Class<?> reportClassType, String reportName, String reportQuery, String reportOrder, List<?> reportRows) {
+	private ReportGeneratorBuilder(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName, String reportQuery, String reportOrder, Map<String, Object> reportParameters, List<?> reportRows) {
 		this.reportClassType = reportClassType;
 		this.reportName = reportName;
-		this.generatorExcel = generatorExcel;
+		this.reportBuilder = reportBuilder;
 		this.reportQuery = reportQuery;
 		this.reportOrder = reportOrder;
+		this.reportParameters = reportParameters;
 		this.reportRows = reportRows;
 	}
 	
 	/**
      * Crea un'istanza di `ReportGeneratorBuilder` senza specificare una query SQL.
      *
-     * @param generatorExcel  L'oggetto `GenerateExcel` utilizzato per la generazione di report.
+     * @param reportBuilder   Il `ReportBuilder` che fornisce i servizi per la generazione di report.
      * @param reportClassType Il tipo di classe del report.
      * @param reportName      Il nome del report.
      * @return Un nuovo oggetto `ReportGeneratorBuilder` senza query SQL specificata.
      */
-	protected static ReportGeneratorBuilder define(GenerateExcel generatorExcel, Class<?> reportClassType, String reportName) {
-		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(generatorExcel, reportClassType, reportName, null, null, null);
+	protected static ReportGeneratorBuilder define(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName) {
+		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(reportBuilder, reportClassType, reportName, null, null, Collections.<String, Object>emptyMap(), null);
 		return reportGeneratorBuilder;
 	}
 	
 	/**
      * Crea un'istanza di `ReportGeneratorBuilder` specificando una query SQL.
      *
-     * @param generatorExcel  L'oggetto `GenerateExcel` utilizzato per la generazione di report.
+     * @param reportBuilder   Il `ReportBuilder` che fornisce i servizi per la generazione di report.
      * @param reportClassType Il tipo di classe del report.
      * @param reportName      Il nome del report.
      * @param reportQuery     La query SQL per filtrare i dati.
      * @return Un nuovo oggetto `ReportGeneratorBuilder` con la query SQL specificata.
      */
-	protected static ReportGeneratorBuilder define(GenerateExcel generatorExcel, Class<?> reportClassType, String reportName, String reportQuery) {
-		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(generatorExcel, reportClassType, reportName, reportQuery, null, null);
+	protected static ReportGeneratorBuilder define(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName, String reportQuery) {
+		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(reportBuilder, reportClassType, reportName, reportQuery, null, Collections.<String, Object>emptyMap(), null);
 		return reportGeneratorBuilder;
 	}
 	
 	/**
 	 * Crea un'istanza di `ReportGeneratorBuilder` specificando una query SQL con clausola di ordinamento ORDER BY.
 	 *
-	 * @param generatorExcel  L'oggetto `GenerateExcel` utilizzato per la generazione di report.
+	 * @param reportBuilder   Il `ReportBuilder` che fornisce i servizi per la generazione di report.
 	 * @param reportClassType Il tipo di classe del report.
 	 * @param reportName      Il nome del report.
 	 * @param reportQuery     La query SQL per filtrare i dati.
 	 * @param reportOrder     La clausola ORDER BY per la query SQL per ordinare i dati.
 	 * @return Un nuovo oggetto `ReportGeneratorBuilder` con la query SQL specificata.
 	 */
-	protected static ReportGeneratorBuilder define(GenerateExcel generatorExcel, Class<?> reportClassType, String reportName, String reportQuery, String reportOrder) {
-		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(generatorExcel, reportClassType, reportName, reportQuery, reportOrder, null);
+	protected static ReportGeneratorBuilder define(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName, String reportQuery, String reportOrder) {
+		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(reportBuilder, reportClassType, reportName, reportQuery, reportOrder, Collections.<String, Object>emptyMap(), null);
+		return reportGeneratorBuilder;
+	}
+	
+	/**
+	 * Crea un'istanza di `ReportGeneratorBuilder` specificando una query SQL parametrica con clausola di ordinamento ORDER BY e i valori dei suoi parametri.
+	 *
+	 * @param reportBuilder    Il `ReportBuilder` che fornisce i servizi per la generazione di report.
+	 * @param reportClassType  Il tipo di classe del report.
+	 * @param reportName       Il nome del report.
+	 * @param reportQuery      La query SQL per filtrare i dati.
+	 * @param reportOrders     Gli ordinamenti della query SQL per ordinare i dati.
+	 * @param reportParameters I valori dei parametri della query SQL, indicizzati per nome.
+	 * @param conditionKey     Le condizioni normalizzate della query per la chiave della cache dei file generati (opzionale).
+	 * @return Un nuovo oggetto `ReportGeneratorBuilder` con la query SQL e i parametri specificati.
+	 */
+	protected static ReportGeneratorBuilder define(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName, String reportQuery, ReportQueryOrder[] reportOrders, Map<String, Object> reportParameters, String conditionKey) {
+		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(reportBuilder, reportClassType, reportName, reportQuery, ReportQueryParser.parse(reportOrders), Collections.unmodifiableMap(reportParameters), null);
+		reportGeneratorBuilder.reportOrders = reportOrders;
+		reportGeneratorBuilder.conditionKey = conditionKey;
+		return reportGeneratorBuilder;
+	}
+	
+	/**
+	 * Crea un'istanza di `ReportGeneratorBuilder` a partire da un piano compilato e dai valori dei suoi parametri.<br>
+	 * Le classi generate, la query e le colonne del file CSV vengono prese dal piano senza essere ricalcolate.
+	 *
+	 * @param reportPlan       Il piano compilato del report.
+	 * @param reportParameters I valori dei parametri della query SQL, indicizzati per nome.
+	 * @return Un nuovo oggetto `ReportGeneratorBuilder` associato al piano specificato.
+	 */
+	protected static ReportGeneratorBuilder define(ReportPlan reportPlan, Map<String, Object> reportParameters) {
+		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(reportPlan.getReportBuilder(), reportPlan.getReportClassType(), reportPlan.getReportName(),
+				reportPlan.getWhereCondition(), ReportQueryParser.parse(reportPlan.getReportOrders()), Collections.unmodifiableMap(reportParameters), null);
+		reportGeneratorBuilder.reportOrders = reportPlan.getReportOrders();
+		reportGeneratorBuilder.reportPlan = reportPlan;
 		return reportGeneratorBuilder;
 	}
 	
 	/**
 	 * Crea un'istanza di `ReportGeneratorBuilder` specificando la lista delle righe del report statico.
 	 *
-	 * @param generatorExcel  L'oggetto `GenerateExcel` utilizzato per la generazione di report.
+	 * @param reportBuilder   Il `ReportBuilder` che fornisce i servizi per la generazione di report.
 	 * @param reportClassType Il tipo di classe del report.
 	 * @param reportName      Il nome del report.
 	 * @param reportRows 	  Lista di righe del tipo della classe del report.
 	 * @return Un nuovo oggetto `ReportGeneratorBuilder` con la query SQL specificata.
 	 */
-	protected static ReportGeneratorBuilder define(GenerateExcel generatorExcel, Class<?> reportClassType, String reportName, List<?> reportRows) {
-		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(generatorExcel, reportClassType, reportName, null, null, reportRows);
+	protected static ReportGeneratorBuilder define(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName, List<?> reportRows) {
+		ReportGeneratorBuilder reportGeneratorBuilder = new ReportGeneratorBuilder(reportBuilder, reportClassType, reportName, null, null, Collections.<String, Object>emptyMap(), reportRows);
 		return reportGeneratorBuilder;
 	}
 	
 	/**
-     * Genera e restituisce un file XLSX basato sulle classi `RowSheet` e `QuerySheetData` o `SheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`.
+     * Abilita l'esecuzione a blocchi della query del report: le righe vengono lette in pagine di `chunkSize` righe, ciascuna consegnata allo scrittore
+     * e poi rilasciata, senza mantenere aperto un unico cursore sull'intero risultato.<br>
+     * Le pagine successive alla prima sono selezionate con un predicato keyset costruito sulle colonne di ordinamento (`ReportQueryOrder`) e sui valori
+     * dell'ultima riga letta, e non con OFFSET: il costo di ogni pagina non cresce con la sua posizione nel risultato.<br><br>
+     * Le colonne di ordinamento devono essere colonne del report e non nulle; per rendere l'ordinamento univoco vengono sempre aggiunti, se non già presenti,
+     * i campi identificativi `@Id` della classe del report, che devono essere a loro volta colonne del report.<br>
+     * Con il formato CSV la memoria occupata resta costante; con il formato XLSX le righe vengono comunque raccolte nel foglio prima della scrittura.
+     *
+     * @param chunkSize Il numero massimo di righe per pagina.
+     * @return L'istanza corrente di `ReportGeneratorBuilder`.
+     * @throws ReportException Se la dimensione della pagina non è positiva.
+     */
+	public ReportGeneratorBuilder chunked(int chunkSize) throws ReportException {
+		if (chunkSize <= 0)
+			throw new ReportException("Dimensione della pagina non valida: " + chunkSize + ".");
+		this.chunkSize = chunkSize;
+		return this;
+	}
+	
+	/**
+     * Abilita l'esecuzione partizionata della query del report: l'intervallo dei valori della colonna specificata viene diviso in `partitions`
+     * intervalli disgiunti, interrogati in parallelo su connessioni separate del pool, e i risultati vengono ricomposti nell'ordine degli intervalli.<br><br>
+     * La colonna deve essere numerica intera (ad esempio un identificativo) o di tipo data. Se il report ha un ordinamento, la prima colonna di ordinamento
+     * deve essere la colonna di partizionamento, così che l'ordine delle righe sia lo stesso dell'esecuzione non partizionata.<br>
+     * Le partizioni vengono eseguite sull'executor condiviso `ReportBuilder.setPartitionExecutor` e ognuna scrive le proprie righe su un file temporaneo
+     * (nella cartella di `spillToDisk`, se impostata), poi letto in ordine durante la scrittura del file.
+     * L'esecuzione partizionata può essere combinata con quella a blocchi di `chunked(int)`, applicata a ciascuna partizione.
+     *
+     * @param partitionColumn La colonna di partizionamento.
+     * @param partitions      Il numero massimo di partizioni eseguite in parallelo.
+     * @return L'istanza corrente di `ReportGeneratorBuilder`.
+     * @throws ReportException Se la colonna non è specificata o se il numero di partizioni non è positivo.
+     */
+	public ReportGeneratorBuilder partitionBy(String partitionColumn, int partitions) throws ReportException {
+		if (partitionColumn == null || partitionColumn.trim().isEmpty())
+			throw new ReportException("Colonna di partizionamento non specificata.");
+		if (partitions <= 0)
+			throw new ReportException("Numero di partizioni non valido: " + partitions + ".");
+		this.partitionColumn = partitionColumn.trim();
+		this.partitions = partitions;
+		return this;
+	}
+	
+	/**
+     * Abilita la memorizzazione su disco delle righe di un report statico nella generazione XLSX: le righe generate vengono create in memoria
+     * finché la loro occupazione stimata resta entro il limite specificato, le successive vengono serializzate in forma binaria compatta su file temporanei
+     * mappati in memoria e ricostruite una alla volta durante la scrittura del foglio.<br>
+     * Un report statico molto grande non raddoppia così l'occupazione della lista di input. I file temporanei vengono rimossi al termine della generazione.<br>
+     * Con i formati CSV e Arrow le righe di input vengono già scritte a blocchi senza creare le righe generate.
+     *
+     * @param heapBudgetBytes L'occupazione massima stimata in byte delle righe generate mantenute in memoria.
+     * @param spillDirectory  La cartella dei file temporanei (se nulla, viene utilizzata la cartella temporanea di sistema).
+     * @return L'istanza corrente di `ReportGeneratorBuilder`.
+     * @throws ReportException Se il limite di memoria non è positivo.
+     */
+	public ReportGeneratorBuilder spillToDisk(long heapBudgetBytes, Path spillDirectory) throws ReportException {
+		if (heapBudgetBytes <= 0)
+			throw new ReportException("Limite di memoria delle righe non valido: " + heapBudgetBytes + ".");
+		this.spillHeapBytes = heapBudgetBytes;
+		this.spillDirectory = spillDirectory;
+		return this;
+	}
+	
+	/**
+     * Imposta la compressione del file CSV, applicata in streaming durante la scrittura delle righe.
+     *
+     * @param csvCompression La compressione del file CSV (`NONE` per nessuna compressione).
+     * @return L'istanza corrente di `ReportGeneratorBuilder`.
+     * @throws ReportException Se la compressione non è specificata.
+     */
+	public ReportGeneratorBuilder csvCompression(ReportCompression csvCompression) throws ReportException {
+		if (csvCompression == null)
+			throw new ReportException("Compressione del file CSV non specificata.");
+		this.csvCompression = csvCompression;
+		return this;
+	}
+	
+	/**
+     * Genera e restituisce un file XLSX basato sulle classi `RowSheet` e `SheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`.<br>
+     * Se sul `ReportBuilder` è impostata una `ReportResultCache`, il file di un report con query viene letto dalla cache quando presente e memorizzato dopo la generazione.
      *
      * @return Un array di byte contenente il file XLSX generato.
      * @throws Exception Se si verificano errori durante la generazione del report.
      */
 	public byte[] generateXlsx() throws Exception {
-		if (reportName == null || reportClassType == null) 
-			throw new ReportException("Report non configurato: 'reportName' o 'reportClassType' non impostati.");
-		List<BaseSheet> baseSheets = reportRows == null 
-				? generateReportQuerySheets()
-				: generateReportDataSheets();
-		return generatorExcel.createBigDataFileXlsx(new ReportExcel(reportName, baseSheets));
+		validate();
+		ReportResultCache reportResultCache = reportBuilder.getReportResultCache();
+		String resultKey = resultKey(reportResultCache, ReportMetrics.FORMAT_XLSX);
+		byte[] reportResult = resultKey != null ? reportResultCache.get(resultKey) : null;
+		if (resultKey != null) ReportMetrics.countResultCache(reportClassType, ReportMetrics.FORMAT_XLSX, reportResult != null);
+		if (reportResult == null) {
+			reportResult = createXlsx();
+			ReportMetrics.countBytes(reportClassType, ReportMetrics.FORMAT_XLSX, reportResult.length);
+			if (resultKey != null) reportResultCache.put(resultKey, reportResult);
+		}
+		return reportResult;
+	}
+	
+	/**
+     * Genera un file XLSX e lo scrive sullo stream di uscita specificato.<br>
+     * Lo stream non viene chiuso al termine della scrittura.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere il file XLSX.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	public void generateXlsx(OutputStream outputStream) throws Exception {
+		outputStream.write(generateXlsx());
+		outputStream.flush();
+	}
+	
+	/**
+     * Genera il file XLSX con la libreria di generazione, registrando le metriche della scrittura e gli eventuali errori.
+     *
+     * @return Un array di byte contenente il file XLSX generato.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	private byte[] createXlsx() throws Exception {
+		try {
+			List<BaseSheet> baseSheets = generateBaseSheets(reportClassType.getSimpleName());
+			long writeStart = System.nanoTime();
+			byte[] reportResult = reportBuilder.getGeneratorExcel().createBigDataFileXlsx(new ReportExcel(reportName, baseSheets));
+			ReportMetrics.recordPhase(reportClassType, ReportMetrics.FORMAT_XLSX, ReportMetrics.PHASE_XLSX_WRITE, writeStart);
+			return reportResult;
+		} catch (Exception e) {
+			ReportMetrics.countFailure(reportClassType, ReportMetrics.FORMAT_XLSX, e);
+			throw e;
+		} finally {
+			releaseSpillBuffers();
+		}
+	}
+	
+	/**
+     * Genera un file XLSX e lo scrive sul canale di uscita specificato.<br>
+     * Il canale non viene chiuso al termine della scrittura.
+     *
+     * @param channel Il canale di uscita su cui scrivere il file XLSX.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	public void generateXlsx(WritableByteChannel channel) throws Exception {
+		generateXlsx(Channels.newOutputStream(channel));
+	}
+	
+	/**
+     * Genera in modo asincrono un file XLSX sull'executor del `ReportBuilder`, senza bloccare il thread chiamante.<br>
+     * Se l'executor rifiuta la richiesta, il future viene completato con l'eccezione `RejectedExecutionException`.
+     *
+     * @return Il future dell'array di byte contenente il file XLSX generato.
+     */
+	public CompletableFuture<byte[]> generateXlsxAsync() {
+		return ReportExecutors.submit(reportBuilder.getReportExecutor(), this::generateXlsx);
+	}
+	
+	/**
+     * Genera in modo asincrono un file XLSX e lo scrive sullo stream di uscita specificato, sull'executor del `ReportBuilder`.<br>
+     * Lo stream non viene chiuso al termine della scrittura.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere il file XLSX.
+     * @return Il future completato al termine della scrittura.
+     */
+	public CompletableFuture<Void> generateXlsxAsync(OutputStream outputStream) {
+		return ReportExecutors.submit(reportBuilder.getReportExecutor(), () -> {
+			generateXlsx(outputStream);
+			return null;
+		});
 	}
 	
 	/**
-     * Genera e restituisce un file CSV basato sulle classi `RowSheet` e `QuerySheetData` o `SheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`.
+     * Genera e restituisce un file CSV basato sulla classe `RowSheet` creata dalla classe `ReportRowClassGenerator`.<br>
+     * Le righe vengono scritte direttamente in formato CSV codificato in UTF-8, senza la generazione di un file XLSX intermedio.<br>
+     * Se sul `ReportBuilder` è impostata una `ReportResultCache`, il file di un report con query viene letto dalla cache quando presente e memorizzato dopo la generazione.
      *
      * @return Un array di byte contenente il file CSV generato.
      * @throws Exception Se si verificano errori durante la generazione del report.
      */
 	public byte[] generateCsv() throws Exception {
-		if (reportName == null || reportClassType == null) 
-			throw new ReportException("Report non configurato: 'reportName' o 'reportClassType' non impostati.");
-		List<BaseSheet> baseSheets = reportRows == null 
-				? generateReportQuerySheets()
-				: generateReportDataSheets();
-		byte[] csvBytes = generatorExcel.createBigDataFileXlsx(new ReportExcel(reportName, baseSheets));
-		try (InputStream stream = new ByteArrayInputStream(csvBytes)) {
-            Workbook workbook = WorkbookFactory.create(stream);
-            return ReportUtil.convertXlsxToCSV(workbook.getSheetAt(0), workbook.getSheetAt(0).getSheetName());
-        } 
+		return generateStreamed(ReportMetrics.FORMAT_CSV);
+	}
+	
+	/**
+     * Genera un file CSV e lo scrive sullo stream di uscita specificato man mano che le righe vengono prodotte.<br>
+     * Lo stream viene svuotato periodicamente durante la scrittura e non viene chiuso al termine.<br>
+     * Il file viene letto dalla `ReportResultCache` quando presente, ma non viene memorizzato dopo la generazione, per non mantenere in memoria le righe scritte.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere il file CSV.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	public void generateCsv(OutputStream outputStream) throws Exception {
+		generateStreamed(ReportMetrics.FORMAT_CSV, outputStream);
+	}
+	
+	/**
+     * Genera un file CSV e lo scrive sul canale di uscita specificato man mano che le righe vengono prodotte.<br>
+     * Il canale non viene chiuso al termine della scrittura.
+     *
+     * @param channel Il canale di uscita su cui scrivere il file CSV.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	public void generateCsv(WritableByteChannel channel) throws Exception {
+		generateCsv(Channels.newOutputStream(channel));
+	}
+	
+	/**
+     * Genera e restituisce un file in formato colonnare Apache Arrow IPC (stream) basato sulla classe `RowSheet` creata dalla classe `ReportRowClassGenerator`.<br>
+     * Le colonne mantengono i tipi nativi e le stringhe sono codificate a dizionario; il file può essere letto direttamente da Spark e pandas.
+     * Richiede le dipendenze opzionali `org.apache.arrow:arrow-vector` e `org.apache.arrow:arrow-memory-unsafe`.<br>
+     * Se sul `ReportBuilder` è impostata una `ReportResultCache`, il file di un report con query viene letto dalla cache quando presente e memorizzato dopo la generazione.
+     *
+     * @return Un array di byte contenente il file Arrow generato.
+     * @throws Exception Se si verificano errori durante la generazione del report o se le dipendenze Arrow non sono presenti.
+     */
+	public byte[] generateArrow() throws Exception {
+		return generateStreamed(ReportMetrics.FORMAT_ARROW);
+	}
+	
+	/**
+     * Genera un file Apache Arrow IPC (stream) e lo scrive sullo stream di uscita specificato a blocchi di righe, man mano che vengono prodotte.<br>
+     * Lo stream non viene chiuso al termine della scrittura.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere il file Arrow.
+     * @throws Exception Se si verificano errori durante la generazione del report o se le dipendenze Arrow non sono presenti.
+     */
+	public void generateArrow(OutputStream outputStream) throws Exception {
+		generateStreamed(ReportMetrics.FORMAT_ARROW, outputStream);
+	}
+	
+	/**
+     * Genera un file Apache Arrow IPC (stream) e lo scrive sul canale di uscita specificato a blocchi di righe, man mano che vengono prodotte.<br>
+     * Il canale non viene chiuso al termine della scrittura.
+     *
+     * @param channel Il canale di uscita su cui scrivere il file Arrow.
+     * @throws Exception Se si verificano errori durante la generazione del report o se le dipendenze Arrow non sono presenti.
+     */
+	public void generateArrow(WritableByteChannel channel) throws Exception {
+		generateArrow(Channels.newOutputStream(channel));
+	}
+	
+	/**
+     * Genera le schede di base del report con il nome di foglio specificato, senza scrivere il file XLSX.<br>
+     * Utilizzato da `ReportWorkbookBuilder` per comporre più report in un unico file.
+     *
+     * @param sheetName Il nome del foglio.
+     * @return Una lista di oggetti `BaseSheet` rappresentanti le schede del report.
+     * @throws Exception Se si verificano errori durante la generazione delle schede.
+     */
+	protected List<BaseSheet> generateBaseSheets(String sheetName) throws Exception {
+		return generateBaseSheets(sheetName, new HashSet<>());
 	}
 	
 	/**
-     * Genera le schede di base del report a partire dalle classi `RowSheet` e `QuerySheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`.
+     * Genera le schede di base del report con il nome di foglio specificato, senza scrivere il file XLSX.<br>
+     * I nomi dei fogli aggiuntivi oltre il limite di righe vengono scelti tra quelli non presenti nell'insieme dei nomi già utilizzati,
+     * condiviso da `ReportWorkbookBuilder` tra tutti i fogli del file.
      *
+     * @param sheetName      Il nome del foglio.
+     * @param usedSheetNames I nomi in minuscolo dei fogli già utilizzati, a cui vengono aggiunti i nomi dei fogli generati (insieme thread-safe se condiviso).
      * @return Una lista di oggetti `BaseSheet` rappresentanti le schede del report.
      * @throws Exception Se si verificano errori durante la generazione delle schede.
+     */
+	protected List<BaseSheet> generateBaseSheets(String sheetName, Set<String> usedSheetNames) throws Exception {
+		validate();
+		return reportRows == null 
+				? generateReportQuerySheets(sheetName, usedSheetNames)
+				: generateReportDataSheets(sheetName, usedSheetNames);
+	}
+	
+	/**
+     * Rimuove i file temporanei delle righe memorizzate su disco dalle schede generate con `generateBaseSheets`, al termine della scrittura del file XLSX.
+     */
+	protected void releaseSpillBuffers() {
+		synchronized (spillBuffers) {
+			for (ReportSpillBuffer<?> spillBuffer : spillBuffers) {
+				spillBuffer.close();
+			}
+			spillBuffers.clear();
+		}
+	}
+	
+	/**
+     * Verifica la configurazione del report prima della generazione: il nome e la classe del report devono essere impostati e,
+     * per un report con query, il `ReportBuilder` deve disporre di un `EntityManagerFactory`.
+     *
+     * @throws ReportException Se il report non è configurato o se l'`EntityManagerFactory` non è disponibile.
+     */
+	private void validate() throws ReportException {
+		if (reportName == null || reportClassType == null) 
+			throw new ReportException("Report non configurato: 'reportName' o 'reportClassType' non impostati.");
+		if (reportRows == null && reportBuilder.getEntityManagerFactory() == null)
+			throw new ReportException("Report con query '" + reportName + "' non disponibile: 'EntityManagerFactory' non configurato. "
+					+ "Utilizzare il 'ReportBuilder' del contesto applicativo oppure impostarlo con 'ReportBuilder.setEntityManagerFactory'.");
+	}
+	
+	/**
+	 * @return Il nome del report.
+	 */
+	protected String getReportName() {
+		return reportName;
+	}
+	
+	/**
+	 * @return Il tipo di classe del report.
+	 */
+	protected Class<?> getReportClassType() {
+		return reportClassType;
+	}
+	
+	/**
+	 * @return `true` se sul report è impostata una compressione del file CSV.
+	 */
+	protected boolean hasFileCompression() {
+		return csvCompression != ReportCompression.NONE;
+	}
+	
+	/**
+     * Genera in modo asincrono un file CSV sull'executor del `ReportBuilder`, senza bloccare il thread chiamante.<br>
+     * Se l'executor rifiuta la richiesta, il future viene completato con l'eccezione `RejectedExecutionException`.
+     *
+     * @return Il future dell'array di byte contenente il file CSV generato.
+     */
+	public CompletableFuture<byte[]> generateCsvAsync() {
+		return ReportExecutors.submit(reportBuilder.getReportExecutor(), this::generateCsv);
+	}
+	
+	/**
+     * Genera in modo asincrono un file CSV e lo scrive sullo stream di uscita specificato man mano che le righe vengono prodotte, sull'executor del `ReportBuilder`.<br>
+     * Lo stream non viene chiuso al termine della scrittura.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere il file CSV.
+     * @return Il future completato al termine della scrittura.
+     */
+	public CompletableFuture<Void> generateCsvAsync(OutputStream outputStream) {
+		return ReportExecutors.submit(reportBuilder.getReportExecutor(), () -> {
+			generateCsv(outputStream);
+			return null;
+		});
+	}
+	
+	/**
+     * Genera e restituisce un file in un formato scritto in streaming (CSV o Arrow), leggendolo dalla `ReportResultCache` quando presente
+     * e memorizzandolo dopo la generazione.
+     *
+     * @param format Il formato del file.
+     * @return Un array di byte contenente il file generato.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	private byte[] generateStreamed(String format) throws Exception {
+		validate();
+		ReportResultCache reportResultCache = reportBuilder.getReportResultCache();
+		String resultKey = resultKey(reportResultCache, format);
+		byte[] reportResult = resultKey != null ? reportResultCache.get(resultKey) : null;
+		if (resultKey != null) ReportMetrics.countResultCache(reportClassType, format, reportResult != null);
+		if (reportResult == null) {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			writeStreamed(format, outputStream);
+			reportResult = outputStream.toByteArray();
+			if (resultKey != null) reportResultCache.put(resultKey, reportResult);
+		}
+		return reportResult;
+	}
+	
+	/**
+     * Genera un file in un formato scritto in streaming (CSV o Arrow) e lo scrive sullo stream di uscita specificato.<br>
+     * Il file viene letto dalla `ReportResultCache` quando presente, ma non viene memorizzato dopo la generazione, per non mantenere in memoria le righe scritte.
+     *
+     * @param format       Il formato del file.
+     * @param outputStream Lo stream di uscita su cui scrivere il file.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	private void generateStreamed(String format, OutputStream outputStream) throws Exception {
+		validate();
+		ReportResultCache reportResultCache = reportBuilder.getReportResultCache();
+		String resultKey = resultKey(reportResultCache, format);
+		byte[] reportResult = resultKey != null ? reportResultCache.get(resultKey) : null;
+		if (resultKey != null) ReportMetrics.countResultCache(reportClassType, format, reportResult != null);
+		if (reportResult != null) {
+			outputStream.write(reportResult);
+			outputStream.flush();
+			return;
+		}
+		writeStreamed(format, outputStream);
+	}
+	
+	/**
+     * Scrive il file nel formato specificato sullo stream di uscita a partire dalle righe del report statico o dalle righe lette dalla query,
+     * registrando le metriche dei byte scritti e gli eventuali errori. Al file CSV viene applicata la compressione impostata.
+     *
+     * @param format       Il formato del file.
+     * @param outputStream Lo stream di uscita su cui scrivere il file.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	private void writeStreamed(String format, OutputStream outputStream) throws Exception {
+		boolean csvFormat = ReportMetrics.FORMAT_CSV.equals(format);
+		if (!csvFormat) checkArrowAvailable();
+		ReportMetrics.CountingOutputStream countingStream = new ReportMetrics.CountingOutputStream(outputStream);
+		try (OutputStream formatStream = csvFormat ? csvCompression.open(countingStream) : ReportCompression.shield(countingStream)) {
+			writeRows(format, formatStream);
+		} catch (Exception e) {
+			ReportMetrics.countFailure(reportClassType, format, e);
+			throw e;
+		}
+		ReportMetrics.countBytes(reportClassType, format, countingStream.getCount());
+	}
+	
+	/**
+     * Verifica la presenza delle dipendenze opzionali Arrow prima di caricare `ReportArrowWriter`, la cui verifica da parte della JVM
+     * richiede le classi Arrow.
+     *
+     * @throws ReportException Se la libreria `arrow-vector` non è presente.
+     */
+	private static void checkArrowAvailable() throws ReportException {
+		try {
+			Class.forName(ARROW_VECTOR, false, ReportGeneratorBuilder.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new ReportException("Formato Arrow non disponibile: aggiungere le dipendenze 'org.apache.arrow:arrow-vector' e 'org.apache.arrow:arrow-memory-unsafe'.", e);
+		}
+	}
+	
+	/**
+     * Scrive le righe del file sullo stream di uscita a partire dalle righe del report statico o dalle righe lette dalla query.<br>
+     * Le righe vengono raccolte per colonne in un `ReportColumnBatch` riutilizzato, scritto a ogni riempimento: le righe del report statico vengono copiate
+     * nel blocco direttamente dalla classe di input, senza creare le righe della classe generata.<br>
+     * La lettura, la conversione e la scrittura delle righe sono interlacciate: la durata della scrittura viene sommata blocco per blocco
+     * e sottratta dalla durata complessiva per ottenere quella della query o della conversione.
+     *
+     * @param format       Il formato del file.
+     * @param outputStream Lo stream di uscita su cui scrivere il file.
+     * @throws Exception Se si verificano errori durante la generazione del report.
      */
 	@SuppressWarnings("unchecked")
-	private <T extends RowSheet> List<BaseSheet> generateReportQuerySheets() throws Exception {
-		Class<T> rowClass = (Class<T>) ReportRowClassGenerator.generateReportRowClass(reportClassType);
-		Class<? extends QuerySheetData<T>> querySheetClass = (Class<? extends QuerySheetData<T>>) ReportSheetClassGenerator.generateReportSheetClass(reportClassType, rowClass, reportQuery, reportOrder);
+	private <T extends RowSheet> void writeRows(String format, OutputStream outputStream) throws Exception {
+		boolean csvFormat = ReportMetrics.FORMAT_CSV.equals(format);
+		String writePhase = csvFormat ? ReportMetrics.PHASE_CSV_WRITE : ReportMetrics.PHASE_ARROW_WRITE;
+		long classStart = System.nanoTime();
+		Class<T> rowClass = (Class<T>) resolveRowClass();
+		Field[] columnFields = reportPlan != null ? reportPlan.getColumnFields() : ReportCsvWriter.resolveColumnFields(rowClass);
+		ReportColumnBatch batch = ReportColumnBatch.define(columnFields, ReportColumnBatch.DEFAULT_CAPACITY);
+		ReportMetrics.recordPhase(reportClassType, format, ReportMetrics.PHASE_CLASS_GENERATION, classStart);
 		
-	    QuerySheetData<T> querySheetInstance = querySheetClass.getDeclaredConstructor(String.class).newInstance(reportClassType.getSimpleName());
-		querySheetInstance.setListRowSheet(new ArrayList<>());
-		
-		List<BaseSheet> baseSheets = new ArrayList<BaseSheet>();
-		baseSheets.add(querySheetInstance);
+		try (ReportRowWriter rowWriter = csvFormat ? new ReportCsvWriter(outputStream, columnFields, reportClassType) : new ReportArrowWriter(outputStream, columnFields)) {
+			rowWriter.writeHeader();
+			long rowsStart = System.nanoTime();
+			long rowCount;
+			if (reportRows != null) {
+				long writeNanos = 0;
+				for (Object reportRow : reportRows) {
+					if (batch.add(reportRow)) {
+						writeNanos += writeBatch(rowWriter, batch);
+					}
+				}
+				writeNanos += writeBatch(rowWriter, batch);
+				rowWriter.finish();
+				ReportMetrics.recordPhaseNanos(reportClassType, format, ReportMetrics.PHASE_ROW_MAPPING, System.nanoTime() - rowsStart - writeNanos);
+				ReportMetrics.recordPhaseNanos(reportClassType, format, writePhase, writeNanos);
+				rowCount = rowWriter.getRowCount();
+			} else if (partitionColumn != null && csvFormat) {
+				// le partizioni leggono e scrivono in parallelo: la durata complessiva viene registrata come durata della query
+				rowWriter.finish();
+				rowCount = writePartitionedCsv(outputStream, rowClass, columnFields, batch);
+				ReportMetrics.recordPhase(reportClassType, format, ReportMetrics.PHASE_QUERY, rowsStart);
+			} else if (partitionColumn != null) {
+				// lo stream Arrow non può essere concatenato: i blocchi delle partizioni vengono scritti su file temporanei e riletti nell'ordine delle partizioni
+				List<ReportSpillBuffer<T>> partitionBuffers = executePartitionBuffers(rowClass);
+				try {
+					for (ReportSpillBuffer<T> partitionBuffer : partitionBuffers) {
+						for (int i = 0; i < partitionBuffer.getSpilledBatchCount(); i++) {
+							rowWriter.writeBatch(partitionBuffer.readSpilledBatch(i));
+						}
+						partitionBuffer.close();
+					}
+				} finally {
+					closePartitionBuffers(partitionBuffers);
+				}
+				rowWriter.finish();
+				ReportMetrics.recordPhase(reportClassType, format, ReportMetrics.PHASE_QUERY, rowsStart);
+				rowCount = rowWriter.getRowCount();
+			} else {
+				long[] writeNanos = { 0 };
+				executeQuery(rowClass, row -> {
+					if (batch.add(row)) {
+						writeNanos[0] += writeBatch(rowWriter, batch);
+					}
+				});
+				writeNanos[0] += writeBatch(rowWriter, batch);
+				long finishStart = System.nanoTime();
+				rowWriter.finish();
+				writeNanos[0] += System.nanoTime() - finishStart;
+				ReportMetrics.recordPhaseNanos(reportClassType, format, writePhase, writeNanos[0]);
+				ReportMetrics.recordPhaseNanos(reportClassType, format, ReportMetrics.PHASE_QUERY, System.nanoTime() - rowsStart - writeNanos[0]);
+				rowCount = rowWriter.getRowCount();
+			}
+			ReportMetrics.countRows(reportClassType, format, rowCount);
+		}
+	}
+	
+	/**
+     * Scrive il blocco di righe con lo scrittore specificato e lo svuota per le righe successive.
+     *
+     * @param rowWriter Lo scrittore delle righe.
+     * @param batch     Il blocco di righe da scrivere.
+     * @return La durata della scrittura in nanosecondi.
+     * @throws IOException     Se si verifica un errore di I/O durante la scrittura.
+     * @throws ReportException Se un valore del blocco non è rappresentabile nel formato del file.
+     */
+	private static long writeBatch(ReportRowWriter rowWriter, ReportColumnBatch batch) throws IOException, ReportException {
+		long writeStart = System.nanoTime();
+		rowWriter.writeBatch(batch);
+		batch.clear();
+		return System.nanoTime() - writeStart;
+	}
+	
+	/**
+     * Esegue in parallelo le partizioni della query del report sull'executor condiviso delle partizioni e ne restituisce le righe, nell'ordine delle partizioni.<br>
+     * Le righe di ogni partizione vengono raccolte per colonne e scritte a blocchi su file temporanei (`ReportSpillBuffer` senza righe in memoria),
+     * così che le partizioni completate in attesa di essere scritte non occupino la memoria della JVM.
+     *
+     * @param <T>      Tipo classe riga generata del report.
+     * @param rowClass La classe di riga del report.
+     * @return Le righe di ciascuna partizione, da chiudere dopo la lettura.
+     * @throws Exception Se si verificano errori durante l'esecuzione delle partizioni.
+     */
+	private <T extends RowSheet> List<ReportSpillBuffer<T>> executePartitionBuffers(Class<T> rowClass) throws Exception {
+		List<ReportPartition> reportPartitions = splitPartitions();
+		List<ReportSpillBuffer<T>> partitionBuffers = new ArrayList<>(reportPartitions.size());
+		try {
+			List<Callable<ReportSpillBuffer<T>>> partitionTasks = new ArrayList<>(reportPartitions.size());
+			for (ReportPartition reportPartition : reportPartitions) {
+				ReportSpillBuffer<T> partitionBuffer = ReportSpillBuffer.create(rowClass, 0, spillDirectory);
+				partitionBuffers.add(partitionBuffer);
+				partitionTasks.add(() -> {
+					executePartition(rowClass, reportPartition, partitionBuffer::append);
+					partitionBuffer.finish();
+					return partitionBuffer;
+				});
+			}
+			return ReportPartition.runAll(reportBuilder.getPartitionExecutor(), partitionTasks);
+		} catch (Exception e) {
+			closePartitionBuffers(partitionBuffers);
+			throw e;
+		}
+	}
+	
+	/**
+     * Rimuove i file temporanei delle partizioni specificate.
+     *
+     * @param partitionBuffers Le righe delle partizioni.
+     */
+	private static void closePartitionBuffers(List<? extends ReportSpillBuffer<?>> partitionBuffers) {
+		for (ReportSpillBuffer<?> partitionBuffer : partitionBuffers) {
+			partitionBuffer.close();
+		}
+	}
+	
+	/**
+     * Scrive sullo stream di uscita le righe del report lette con l'esecuzione partizionata.<br>
+     * Ogni partizione scrive le proprie righe su un file temporaneo; al termine di tutte le partizioni i file vengono copiati in ordine sullo stream e rimossi.
+     *
+     * @param <T>          Tipo classe riga generata del report.
+     * @param outputStream Lo stream di uscita su cui scrivere il file CSV.
+     * @param rowClass     La classe di riga del report.
+     * @param columnFields I campi della classe di riga nell'ordine delle colonne.
+     * @param batch        Il blocco da cui copiare la definizione delle colonne per ciascuna partizione.
+     * @return Il numero di righe scritte.
+     * @throws Exception Se si verificano errori durante l'esecuzione delle partizioni o la scrittura.
+     */
+	private <T extends RowSheet> long writePartitionedCsv(OutputStream outputStream, Class<T> rowClass, Field[] columnFields, ReportColumnBatch batch) throws Exception {
+		List<ReportPartition> reportPartitions = splitPartitions();
+		List<Path> partitionFiles = new ArrayList<>(reportPartitions.size());
+		LongAdder rowCount = new LongAdder();
+		try {
+			List<Callable<Path>> partitionTasks = new ArrayList<>(reportPartitions.size());
+			for (ReportPartition reportPartition : reportPartitions) {
+				Path partitionFile = spillDirectory != null
+						? Files.createTempFile(spillDirectory, "report-partition-", ".csv")
+						: Files.createTempFile("report-partition-", ".csv");
+				partitionFiles.add(partitionFile);
+				partitionTasks.add(() -> {
+					try (OutputStream partitionStream = Files.newOutputStream(partitionFile)) {
+						ReportCsvWriter partitionWriter = new ReportCsvWriter(partitionStream, columnFields, reportClassType);
+						ReportColumnBatch partitionBatch = batch.copyDefinition();
+						executePartition(rowClass, reportPartition, row -> {
+							if (partitionBatch.add(row)) writeBatch(partitionWriter, partitionBatch);
+						});
+						writeBatch(partitionWriter, partitionBatch);
+						rowCount.add(partitionWriter.getRowCount());
+					}
+					return partitionFile;
+				});
+			}
+			for (Path partitionFile : ReportPartition.runAll(reportBuilder.getPartitionExecutor(), partitionTasks)) {
+				Files.copy(partitionFile, outputStream);
+			}
+			return rowCount.sum();
+		} finally {
+			for (Path partitionFile : partitionFiles) {
+				Files.deleteIfExists(partitionFile);
+			}
+		}
+	}
+	
+	/**
+     * Genera le schede di base del report a partire dalle classi `RowSheet` e `SheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`,
+     * con le righe lette dall'esecuzione della query del report con i suoi parametri.
+     *
+     * @param sheetName      Il nome del foglio.
+     * @param usedSheetNames I nomi in minuscolo dei fogli già utilizzati.
+     * @return Una lista di oggetti `BaseSheet` rappresentanti le schede del report.
+     * @throws Exception Se si verificano errori durante la generazione delle schede o l'esecuzione della query.
+     */
+	@SuppressWarnings("unchecked")
+	private <T extends RowSheet> List<BaseSheet> generateReportQuerySheets(String sheetName, Set<String> usedSheetNames) throws Exception {
+		long classStart = System.nanoTime();
+		Class<T> rowClass = (Class<T>) resolveRowClass();
+		Class<? extends SheetData<T>> dataSheetClass = (Class<? extends SheetData<T>>) resolveSheetClass(rowClass);
+		ReportMetrics.recordPhase(reportClassType, ReportMetrics.FORMAT_XLSX, ReportMetrics.PHASE_CLASS_GENERATION, classStart);
 		
-		return baseSheets;
+		List<List<T>> sheetRowLists = new ArrayList<>();
+		ReportQueryExecutor.ReportRowConsumer<T> sheetRowConsumer = sheetRowConsumer(rowClass, sheetRowLists);
+		long queryStart = System.nanoTime();
+		if (partitionColumn != null) {
+			List<ReportSpillBuffer<T>> partitionBuffers = executePartitionBuffers(rowClass);
+			try {
+				for (ReportSpillBuffer<T> partitionBuffer : partitionBuffers) {
+					for (T partitionRow : partitionBuffer) {
+						sheetRowConsumer.accept(partitionRow);
+					}
+					partitionBuffer.close();
+				}
+			} finally {
+				closePartitionBuffers(partitionBuffers);
+			}
+		} else {
+			executeQuery(rowClass, sheetRowConsumer);
+		}
+		ReportMetrics.recordPhase(reportClassType, ReportMetrics.FORMAT_XLSX, ReportMetrics.PHASE_QUERY, queryStart);
+		long rowCount = (long) (sheetRowLists.size() - 1) * MAX_SHEET_ROWS + sheetRowLists.get(sheetRowLists.size() - 1).size();
+		ReportMetrics.countRows(reportClassType, ReportMetrics.FORMAT_XLSX, rowCount);
+		return createSheets(dataSheetClass, sheetName, usedSheetNames, sheetRowLists);
 	}
 	
 	/**
      * Genera le schede di base del report a partire dalle classi `RowSheet` e `SheetData` create dalle classi `ReportRowClassGenerator` e `ReportSheetClassGenerator`.
      *
+     * @param sheetName      Il nome del foglio.
+     * @param usedSheetNames I nomi in minuscolo dei fogli già utilizzati.
      * @return Una lista di oggetti `BaseSheet` rappresentanti le schede del report.
      * @throws Exception Se si verificano errori durante la generazione delle schede.
      */
 	@SuppressWarnings("unchecked")
-	private <T extends RowSheet> List<BaseSheet> generateReportDataSheets() throws Exception {
+	private <T extends RowSheet> List<BaseSheet> generateReportDataSheets(String sheetName, Set<String> usedSheetNames) throws Exception {
+		long classStart = System.nanoTime();
 		Class<T> rowClass = (Class<T>) ReportRowClassGenerator.generateReportRowClass(reportClassType);
 		Class<? extends SheetData<T>> dataSheetClass = (Class<? extends SheetData<T>>) ReportSheetClassGenerator.generateReportSheetClass(reportClassType, rowClass);
+		ReportMetrics.recordPhase(reportClassType, ReportMetrics.FORMAT_XLSX, ReportMetrics.PHASE_CLASS_GENERATION, classStart);
 		
-		SheetData<T> dataSheetInstance = dataSheetClass.getDeclaredConstructor(String.class).newInstance(reportClassType.getSimpleName());
-		List<T> rowSheetList = ReportUtil.generateRows(rowClass, reportRows);
-		dataSheetInstance.setListRowSheet(rowSheetList);
-
-		List<BaseSheet> baseSheets = new ArrayList<BaseSheet>();
-		baseSheets.add(dataSheetInstance);
-		
+		long mappingStart = System.nanoTime();
+		List<List<T>> sheetRowLists = new ArrayList<>();
+		if (spillHeapBytes > 0) {
+			ReportSpillBuffer<T> spillBuffer = ReportSpillBuffer.define(rowClass, reportRows, spillHeapBytes, spillDirectory);
+			spillBuffers.add(spillBuffer);
+			for (int fromIndex = 0; fromIndex < spillBuffer.size() || sheetRowLists.isEmpty(); fromIndex += MAX_SHEET_ROWS) {
+				sheetRowLists.add(spillBuffer.subList(fromIndex, Math.min(fromIndex + MAX_SHEET_ROWS, spillBuffer.size())));
+			}
+		} else {
+			ReportQueryExecutor.ReportRowConsumer<T> sheetRowConsumer = sheetRowConsumer(rowClass, sheetRowLists);
+			ReportRowMapper rowMapper = null;
+			for (Object originalRow : reportRows) {
+				if (rowMapper == null || !rowMapper.supports(originalRow)) {
+					rowMapper = ReportRowMapper.of(originalRow.getClass(), rowClass);
+				}
+				sheetRowConsumer.accept(rowMapper.<T>map(originalRow));
+			}
+		}
+		ReportMetrics.recordPhase(reportClassType, ReportMetrics.FORMAT_XLSX, ReportMetrics.PHASE_ROW_MAPPING, mappingStart);
+		ReportMetrics.countRows(reportClassType, ReportMetrics.FORMAT_XLSX, reportRows.size());
+		return createSheets(dataSheetClass, sheetName, usedSheetNames, sheetRowLists);
+	}
+	
+	/**
+     * Crea il consumer che distribuisce le righe sui fogli man mano che vengono lette: raggiunto il limite di righe del foglio ne viene iniziato uno nuovo
+     * e le righe del foglio completo vengono memorizzate su disco con `ReportSpillBuffer`, per cui in memoria resta solo il foglio corrente.
+     *
+     * @param <T>           Tipo classe riga generata del report.
+     * @param rowClass      La classe di riga del report.
+     * @param sheetRowLists Le righe di ciascun foglio, a cui il consumer aggiunge i fogli (inizialmente vuota).
+     * @return Il consumer delle righe del report.
+     */
+	private <T extends RowSheet> ReportQueryExecutor.ReportRowConsumer<T> sheetRowConsumer(Class<T> rowClass, List<List<T>> sheetRowLists) {
+		sheetRowLists.add(new ArrayList<>());
+		return row -> {
+			int lastIndex = sheetRowLists.size() - 1;
+			List<T> sheetRows = sheetRowLists.get(lastIndex);
+			if (sheetRows.size() == MAX_SHEET_ROWS) {
+				ReportSpillBuffer<T> spillBuffer = ReportSpillBuffer.define(rowClass, sheetRows, 0, spillDirectory);
+				spillBuffers.add(spillBuffer);
+				sheetRowLists.set(lastIndex, spillBuffer);
+				sheetRows = new ArrayList<>();
+				sheetRowLists.add(sheetRows);
+			}
+			sheetRows.add(row);
+		};
+	}
+	
+	/**
+     * Crea un foglio per ciascuna lista di righe specificata. Il primo foglio ha il nome indicato, i successivi il nome seguito da `_2`, `_3`, ...,
+     * saltando i nomi già utilizzati.<br>
+     * I nomi vengono troncati in modo che, compreso il suffisso, non superino `MAX_SHEET_NAME_LENGTH` caratteri. Ogni foglio ripete l'intestazione delle colonne.
+     *
+     * @param <T>            Tipo classe riga generata del report.
+     * @param dataSheetClass La classe di foglio del report.
+     * @param sheetName      Il nome del primo foglio.
+     * @param usedSheetNames I nomi in minuscolo dei fogli già utilizzati, a cui vengono aggiunti i nomi dei fogli creati.
+     * @param sheetRowLists  Le righe di ciascun foglio, al massimo `MAX_SHEET_ROWS` per foglio.
+     * @return Una lista di oggetti `BaseSheet` rappresentanti le schede del report.
+     * @throws Exception Se non è possibile istanziare la classe di foglio.
+     */
+	private <T extends RowSheet> List<BaseSheet> createSheets(Class<? extends SheetData<T>> dataSheetClass, String sheetName, Set<String> usedSheetNames, List<List<T>> sheetRowLists) throws Exception {
+		List<BaseSheet> baseSheets = new ArrayList<BaseSheet>(sheetRowLists.size());
+		String firstSheetName = sheetName(sheetName, "");
+		usedSheetNames.add(firstSheetName.toLowerCase(Locale.ROOT));
+		int sheetNumber = 1;
+		for (int i = 0; i < sheetRowLists.size(); i++) {
+			String currentSheetName = firstSheetName;
+			if (i > 0) {
+				do {
+					currentSheetName = sheetName(sheetName, "_" + (++sheetNumber));
+				} while (!usedSheetNames.add(currentSheetName.toLowerCase(Locale.ROOT)));
+			}
+			SheetData<T> dataSheetInstance = dataSheetClass.getDeclaredConstructor(String.class).newInstance(currentSheetName);
+			dataSheetInstance.setListRowSheet(sheetRowLists.get(i));
+			baseSheets.add(dataSheetInstance);
+		}
 		return baseSheets;
 	}
+	
+	/**
+     * Compone il nome di un foglio troncando il nome di base in modo che, compreso il suffisso, non superi `MAX_SHEET_NAME_LENGTH` caratteri.
+     *
+     * @param sheetName Il nome di base del foglio.
+     * @param suffix    Il suffisso del foglio (vuoto per il primo foglio).
+     * @return Il nome del foglio.
+     */
+	private static String sheetName(String sheetName, String suffix) {
+		int maxLength = MAX_SHEET_NAME_LENGTH - suffix.length();
+		return (sheetName.length() > maxLength ? sheetName.substring(0, maxLength) : sheetName) + suffix;
+	}
+	
+	/**
+     * Esegue la query del report e consegna le righe lette al consumer indicato, in un'unica lettura o a blocchi con paginazione keyset.
+     *
+     * @param <T>         Tipo classe riga generata del report.
+     * @param rowClass    La classe di riga del report.
+     * @param rowConsumer Il consumer a cui consegnare le righe lette.
+     * @throws Exception Se si verificano errori durante l'esecuzione della query.
+     */
+	private <T extends RowSheet> void executeQuery(Class<T> rowClass, ReportQueryExecutor.ReportRowConsumer<T> rowConsumer) throws Exception {
+		executeQuery(rowClass, resolveQuery(rowClass), reportQuery, reportParameters, rowConsumer);
+	}
+	
+	/**
+     * Esegue la query di una partizione del report e consegna le righe lette al consumer indicato.
+     *
+     * @param <T>             Tipo classe riga generata del report.
+     * @param rowClass        La classe di riga del report.
+     * @param reportPartition La partizione da eseguire.
+     * @param rowConsumer     Il consumer a cui consegnare le righe lette.
+     * @throws Exception Se si verificano errori durante l'esecuzione della query.
+     */
+	private <T extends RowSheet> void executePartition(Class<T> rowClass, ReportPartition reportPartition, ReportQueryExecutor.ReportRowConsumer<T> rowConsumer) throws Exception {
+		String partitionQuery = ReportUtil.generateSQLQuery(rowClass, reportClassType.getSimpleName(), reportPartition.getWhereCondition(), reportOrder);
+		executeQuery(rowClass, partitionQuery, reportPartition.getWhereCondition(), reportPartition.getParameters(), rowConsumer);
+	}
+	
+	/**
+     * Esegue la query specificata e consegna le righe lette al consumer indicato, in un'unica lettura o a blocchi con paginazione keyset.
+     *
+     * @param <T>            Tipo classe riga generata del report.
+     * @param rowClass       La classe di riga del report.
+     * @param query          La query JPQL completa, utilizzata dalla lettura non a blocchi.
+     * @param whereCondition La condizione WHERE della query, a cui aggiungere il predicato keyset.
+     * @param parameters     I valori dei parametri della query.
+     * @param rowConsumer    Il consumer a cui consegnare le righe lette.
+     * @throws Exception Se si verificano errori durante l'esecuzione della query.
+     */
+	private <T extends RowSheet> void executeQuery(Class<T> rowClass, String query, String whereCondition, Map<String, Object> parameters, ReportQueryExecutor.ReportRowConsumer<T> rowConsumer) throws Exception {
+		if (chunkSize == 0) {
+			ReportQueryExecutor.stream(reportBuilder.getEntityManagerFactory(), query, parameters, rowClass, rowConsumer);
+			return;
+		}
+		// l'ordinamento delle pagine include i campi identificativi aggiunti dal keyset, per cui entrambe le query vengono generate con il suo ORDER BY
+		ReportKeyset keyset = ReportKeyset.define(reportClassType, rowClass, reportOrders);
+		String firstQuery = ReportUtil.generateSQLQuery(rowClass, reportClassType.getSimpleName(), whereCondition, keyset.getOrderBy());
+		String nextQuery = ReportUtil.generateSQLQuery(rowClass, reportClassType.getSimpleName(), keyset.appendTo(whereCondition), keyset.getOrderBy());
+		ReportQueryExecutor.streamChunks(reportBuilder.getEntityManagerFactory(), firstQuery, nextQuery, parameters, keyset, chunkSize, rowClass, rowConsumer);
+	}
+	
+	/**
+     * Divide la query del report in partizioni sulla colonna di partizionamento, nell'ordine richiesto dall'ordinamento del report.
+     *
+     * @return Le partizioni della query, in ordine di esecuzione.
+     * @throws Exception Se l'ordinamento non è compatibile con la colonna di partizionamento o se le partizioni non possono essere calcolate.
+     */
+	private List<ReportPartition> splitPartitions() throws Exception {
+		boolean descending = false;
+		if (reportOrders != null && reportOrders.length > 0) {
+			if (!columnName(String.valueOf(reportOrders[0].value)).equals(columnName(partitionColumn)))
+				throw new ReportException("Esecuzione partizionata non disponibile: la prima colonna di ordinamento del report '" + reportName + "' deve essere '" + partitionColumn + "'.");
+			descending = reportOrders[0].orderDirection == ReportQueryOrder.OrderDirection.DESC;
+		}
+		List<ReportPartition> reportPartitions = new ArrayList<>(ReportPartition.split(reportBuilder.getEntityManagerFactory(), reportClassType.getSimpleName(),
+				partitionColumn, partitions, reportQuery, reportParameters));
+		if (descending) {
+			Collections.reverse(reportPartitions);
+		}
+		return reportPartitions;
+	}
+	
+	/**
+     * Restituisce il nome della colonna senza l'alias della tabella della query.
+     *
+     * @param column La colonna, con o senza alias.
+     * @return Il nome della colonna.
+     */
+	private static String columnName(String column) {
+		String trimmedColumn = column.trim();
+		return trimmedColumn.startsWith("item.") ? trimmedColumn.substring("item.".length()) : trimmedColumn;
+	}
+	
+	/**
+     * Costruisce la chiave della cache dei file generati dalla classe e dal nome del report, dalle condizioni normalizzate, dagli ordinamenti, dal formato e dalla compressione.<br>
+     * Per i report creati da un piano compilato, o senza condizioni normalizzate, le condizioni sono la query con i valori dei parametri ordinati per nome
+     * e serializzati in modo esatto con `ReportQueryParser.keyValue`.
+     *
+     * @param reportResultCache La cache dei file generati.
+     * @param format            Il formato del file.
+     * @return La chiave del file, oppure `null` se la cache non è impostata o se il report è statico.
+     */
+	private String resultKey(ReportResultCache reportResultCache, String format) {
+		if (reportResultCache == null || reportRows != null) {
+			return null;
+		}
+		String conditions = conditionKey;
+		if (conditions == null) {
+			StringBuilder conditionsBuilder = new StringBuilder(String.valueOf(reportQuery));
+			for (Map.Entry<String, Object> reportParameter : new TreeMap<>(reportParameters).entrySet()) {
+				conditionsBuilder.append(';').append(reportParameter.getKey()).append('=').append(ReportQueryParser.keyValue(reportParameter.getValue()));
+			}
+			conditions = conditionsBuilder.toString();
+		}
+		String compression = ReportMetrics.FORMAT_CSV.equals(format) ? csvCompression.name() : "";
+		return reportClassType.getName() + '|' + reportName + '|' + conditions + '|' + reportOrder + '|' + format + '|' + compression;
+	}
+	
+	/**
+     * Restituisce la classe di riga del piano compilato, oppure la genera a partire dalla classe del report.
+     *
+     * @return La classe di riga del report.
+     * @throws Exception Se si verificano errori durante la generazione della classe.
+     */
+	private Class<? extends RowSheet> resolveRowClass() throws Exception {
+		return reportPlan != null ? reportPlan.getRowClass() : ReportRowClassGenerator.generateReportRowClass(reportClassType);
+	}
+	
+	/**
+     * Restituisce la classe di foglio del piano compilato, oppure la genera a partire dalla classe del report.
+     *
+     * @param rowClass La classe di riga del report.
+     * @return La classe di foglio del report.
+     * @throws Exception Se si verificano errori durante la generazione della classe.
+     */
+	private Class<? extends SheetData<? extends RowSheet>> resolveSheetClass(Class<? extends RowSheet> rowClass) throws Exception {
+		return reportPlan != null ? reportPlan.getSheetClass() : ReportSheetClassGenerator.generateReportSheetClass(reportClassType, rowClass);
+	}
+	
+	/**
+     * Restituisce la query del piano compilato, oppure la genera a partire dalla classe di riga, dalla condizione e dall'ordinamento del report.
+     *
+     * @param rowClass La classe di riga del report.
+     * @return La query JPQL del report.
+     */
+	private String resolveQuery(Class<? extends RowSheet> rowClass) {
+		return reportPlan != null ? reportPlan.getReportQuery() : ReportUtil.generateSQLQuery(rowClass, reportClassType.getSimpleName(), reportQuery, reportOrder);
+	}
 }
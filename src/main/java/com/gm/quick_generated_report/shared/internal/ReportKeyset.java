@@ -0,0 +1,215 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportKeyset.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Id;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.RowSheet;
+
+/**
+ * Questa classe rappresenta il predicato keyset per la paginazione della query di un report sulle colonne di ordinamento `ReportQueryOrder`.<br><br>
+ * Per gli ordinamenti (c1, c2, ..., cn) il predicato seleziona le righe successive all'ultima riga letta:<br>
+ * `(c1 > :k0) OR (c1 = :k0 AND c2 > :k1) OR ... OR (c1 = :k0 AND ... AND cn > :kn-1)`<br>
+ * con l'operatore `<` al posto di `>` per le colonne in ordine discendente. I valori dei parametri vengono letti dai campi della classe di riga.<br><br>
+ * Il predicato seleziona tutte le righe successive solo se le colonne di ordinamento sono nel loro insieme univoche: per questo agli ordinamenti
+ * del report vengono sempre aggiunti, in ordine ascendente, i campi identificativi `@Id` della classe del report non già presenti,
+ * così che righe con gli stessi valori di ordinamento a cavallo di due pagine non vengano perse.<br><br>
+ * I parametri vengono associati con il tipo del campo della classe del report: i valori delle colonne convertite dalla classe generata
+ * (`LocalDate` e enumerazioni) vengono riconvertiti con `ReportRowValues.toSourceValue`, mentre l'ordinamento su campi `LocalDateTime` e `Instant`,
+ * la cui conversione in `Date` perde la precisione oltre il millisecondo, viene rifiutato.
+ *
+ * @see ReportQueryExecutor
+ */
+class ReportKeyset {
+
+	private static final String TABLE_ALIAS = "item.";
+
+	private final String predicate;
+	private final String orderBy;
+	private final Field[] keyFields;
+	private final Class<?>[] sourceTypes;
+
+	/**
+     * Costruttore privato che inizializza il predicato keyset e i campi della classe di riga da cui leggere i valori.
+     *
+     * @param predicate Il predicato keyset con parametri nominali.
+     * @param orderBy   La clausola ORDER BY delle colonne del predicato.
+     * @param keyFields   I campi della classe di riga corrispondenti alle colonne di ordinamento.
+     * @param sourceTypes I tipi dei campi della classe del report con valori convertiti nella classe di riga (`null` per i valori non convertiti).
+     */
+	private ReportKeyset(String predicate, String orderBy, Field[] keyFields, Class<?>[] sourceTypes) {
+		this.predicate = predicate;
+		this.orderBy = orderBy;
+		this.keyFields = keyFields;
+		this.sourceTypes = sourceTypes;
+	}
+
+	/**
+     * Costruisce il predicato keyset per la classe di riga e gli ordinamenti specificati, completati con i campi identificativi della classe del report.
+     *
+     * @param reportClassType La classe del report, da cui leggere i campi identificativi `@Id`.
+     * @param rowClass        La classe generata che rappresenta una riga del report.
+     * @param reportOrders    Gli ordinamenti della query (può essere nullo o vuoto).
+     * @return Il predicato keyset.
+     * @throws ReportException Se la classe del report non ha campi identificativi, se una colonna di ordinamento non è una colonna del report
+     *                         o se il suo valore non può essere ricostruito senza perdita di precisione.
+     */
+	protected static ReportKeyset define(Class<?> reportClassType, Class<? extends RowSheet> rowClass, ReportQueryOrder[] reportOrders) throws ReportException {
+		List<ReportQueryOrder> keyOrders = new ArrayList<>();
+		Set<String> keyFieldNames = new HashSet<>();
+		if (reportOrders != null) {
+			for (ReportQueryOrder reportOrder : reportOrders) {
+				if (reportOrder != null) {
+					keyOrders.add(reportOrder);
+					keyFieldNames.add(fieldName(String.valueOf(reportOrder.value)));
+				}
+			}
+		}
+		List<String> idFieldNames = idFieldNames(reportClassType);
+		if (idFieldNames.isEmpty())
+			throw new ReportException("Paginazione keyset non applicabile: la classe '" + reportClassType.getSimpleName()
+					+ "' non ha un campo '@Id' da utilizzare come colonna di ordinamento univoca.");
+		for (String idFieldName : idFieldNames) {
+			if (keyFieldNames.add(idFieldName)) {
+				keyOrders.add(ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, TABLE_ALIAS + idFieldName));
+			}
+		}
+
+		String[] columns = new String[keyOrders.size()];
+		Field[] keyFields = new Field[keyOrders.size()];
+		Class<?>[] sourceTypes = new Class<?>[keyOrders.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = String.valueOf(keyOrders.get(i).value).trim();
+			try {
+				keyFields[i] = rowClass.getDeclaredField(fieldName(columns[i]));
+				keyFields[i].setAccessible(true);
+			} catch (NoSuchFieldException e) {
+				throw new ReportException("La colonna di ordinamento '" + columns[i] + "' non è una colonna del report.", e);
+			}
+			Class<?> sourceType = sourceType(reportClassType, keyFields[i].getName());
+			if (sourceType != null && ReportRowValues.converter(sourceType) != null) {
+				if (!ReportRowValues.isReversible(sourceType))
+					throw new ReportException("Paginazione keyset non applicabile: la colonna di ordinamento '" + columns[i] + "' di tipo '" + sourceType.getSimpleName()
+							+ "' viene convertita nel report con perdita di precisione.");
+				sourceTypes[i] = sourceType;
+			}
+		}
+		StringBuilder predicateBuilder = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) predicateBuilder.append(" OR ");
+			predicateBuilder.append("( ");
+			for (int j = 0; j < i; j++) {
+				predicateBuilder.append(columns[j]).append(" = :k").append(j).append(" AND ");
+			}
+			String operator = keyOrders.get(i).orderDirection == ReportQueryOrder.OrderDirection.DESC ? " < " : " > ";
+			predicateBuilder.append(columns[i]).append(operator).append(":k").append(i).append(" )");
+		}
+		String orderBy = ReportQueryParser.parse(keyOrders.toArray(new ReportQueryOrder[keyOrders.size()]));
+		return new ReportKeyset(predicateBuilder.toString(), orderBy, keyFields, sourceTypes);
+	}
+
+	/**
+     * @return La clausola ORDER BY delle colonne del predicato: gli ordinamenti del report seguiti dai campi identificativi aggiunti.
+     */
+	protected String getOrderBy() {
+		return orderBy;
+	}
+
+	/**
+     * Restituisce la condizione WHERE specificata in "AND" con il predicato keyset.
+     *
+     * @param whereCondition La condizione WHERE della query (può essere nulla o vuota).
+     * @return La condizione WHERE per le pagine successive alla prima.
+     */
+	protected String appendTo(String whereCondition) {
+		if (StringUtils.isBlank(whereCondition)) {
+			return " ( " + predicate + " ) ";
+		}
+		return " ( " + whereCondition + " ) AND ( " + predicate + " ) ";
+	}
+
+	/**
+     * Restituisce i valori dei parametri del predicato keyset letti dall'ultima riga della pagina.
+     *
+     * @param lastRow L'ultima riga letta.
+     * @return I valori dei parametri del predicato keyset, indicizzati per nome.
+     * @throws ReportException Se non è possibile leggere i valori o se un valore è nullo.
+     */
+	protected Map<String, Object> keyValues(Object lastRow) throws ReportException {
+		Map<String, Object> keyValues = new LinkedHashMap<>();
+		for (int i = 0; i < keyFields.length; i++) {
+			try {
+				Object keyValue = keyFields[i].get(lastRow);
+				if (keyValue == null)
+					throw new ReportException("Paginazione keyset non applicabile: valore nullo nella colonna di ordinamento '" + keyFields[i].getName() + "'.");
+				keyValues.put("k" + i, sourceTypes[i] != null ? ReportRowValues.toSourceValue(sourceTypes[i], keyValue) : keyValue);
+			} catch (IllegalAccessException e) {
+				throw new ReportException(e);
+			}
+		}
+		return keyValues;
+	}
+
+	/**
+     * Restituisce il nome del campo di una colonna di ordinamento, senza l'alias della tabella.
+     *
+     * @param column La colonna di ordinamento, con o senza alias.
+     * @return Il nome del campo.
+     */
+	private static String fieldName(String column) {
+		String trimmedColumn = column.trim();
+		return trimmedColumn.startsWith(TABLE_ALIAS) ? trimmedColumn.substring(TABLE_ALIAS.length()) : trimmedColumn;
+	}
+
+	/**
+     * Restituisce il tipo del campo con il nome specificato della classe del report o delle sue superclassi.
+     *
+     * @param reportClassType La classe del report.
+     * @param fieldName       Il nome del campo.
+     * @return Il tipo del campo, oppure `null` se la classe non ha il campo.
+     */
+	private static Class<?> sourceType(Class<?> reportClassType, String fieldName) {
+		for (Class<?> type = reportClassType; type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers()) && field.getName().equals(fieldName)) {
+					return field.getType();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+     * Restituisce i nomi dei campi annotati con `@Id` della classe del report e delle sue superclassi.
+     *
+     * @param reportClassType La classe del report.
+     * @return I nomi dei campi identificativi, nell'ordine di dichiarazione.
+     */
+	private static List<String> idFieldNames(Class<?> reportClassType) {
+		List<String> idFieldNames = new ArrayList<>();
+		for (Class<?> type = reportClassType; type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers()) && field.isAnnotationPresent(Id.class)) {
+					idFieldNames.add(field.getName());
+				}
+			}
+		}
+		return idFieldNames;
+	}
+}
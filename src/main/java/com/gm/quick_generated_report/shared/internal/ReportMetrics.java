@@ -0,0 +1,208 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportMetrics.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Questa classe registra le metriche Micrometer della generazione dei report nel registro globale `Metrics.globalRegistry`,
+ * a cui l'applicazione può aggiungere il proprio registro (ad esempio quello Prometheus configurato da Spring Boot Actuator).<br><br>
+ * Metriche registrate, con i tag `entity` (nome semplice della classe del report) e `format` (`xlsx`, `csv` o `arrow`):
+ * <ul>
+ * <li>`report.generation.phase`: durata delle fasi della generazione, con il tag `phase` (`class_generation`, `query`, `row_mapping`, `xlsx_write`, `csv_write`, `arrow_write`);</li>
+ * <li>`report.generation.rows`: righe scritte;</li>
+ * <li>`report.generation.bytes`: byte prodotti;</li>
+ * <li>`report.generation.failures`: generazioni fallite, con il tag `exception`;</li>
+ * <li>`report.result.cache`: richieste alla `ReportResultCache`, con il tag `result` (`hit` o `miss`).</li>
+ * </ul>
+ * La metrica `report.class.cache` conta le richieste delle classi generate, con i tag `kind` (`row` o `sheet`) e `result`:
+ * `memory` (classe già caricata), `prebuilt` (classe pre-generata in compilazione), `disk` (cache su file system) o `generated` (generazione con ByteBuddy).<br>
+ * Le metriche vengono aggiornate una volta per report o per fase, mai per riga.
+ *
+ * @see ReportGeneratorBuilder
+ */
+class ReportMetrics {
+
+	protected static final String FORMAT_XLSX = "xlsx";
+	protected static final String FORMAT_CSV = "csv";
+	protected static final String FORMAT_ARROW = "arrow";
+
+	protected static final String PHASE_CLASS_GENERATION = "class_generation";
+	protected static final String PHASE_QUERY = "query";
+	protected static final String PHASE_ROW_MAPPING = "row_mapping";
+	protected static final String PHASE_XLSX_WRITE = "xlsx_write";
+	protected static final String PHASE_CSV_WRITE = "csv_write";
+	protected static final String PHASE_ARROW_WRITE = "arrow_write";
+
+	protected static final String CLASS_ROW = "row";
+	protected static final String CLASS_SHEET = "sheet";
+
+	protected static final String CLASS_MEMORY = "memory";
+	protected static final String CLASS_PREBUILT = "prebuilt";
+	protected static final String CLASS_DISK = "disk";
+	protected static final String CLASS_GENERATED = "generated";
+
+	private static final MeterRegistry REGISTRY = Metrics.globalRegistry;
+
+	private ReportMetrics() {}
+
+	/**
+     * Registra la durata di una fase della generazione a partire dall'istante di inizio specificato.
+     *
+     * @param reportClassType Il tipo di classe del report.
+     * @param format          Il formato del file.
+     * @param phase           La fase della generazione.
+     * @param startNanos      L'istante di inizio della fase, letto con `System.nanoTime()`.
+     */
+	protected static void recordPhase(Class<?> reportClassType, String format, String phase, long startNanos) {
+		recordPhaseNanos(reportClassType, format, phase, System.nanoTime() - startNanos);
+	}
+
+	/**
+     * Registra la durata di una fase della generazione, ad esempio la somma dei tempi di scrittura delle righe.
+     *
+     * @param reportClassType Il tipo di classe del report.
+     * @param format          Il formato del file.
+     * @param phase           La fase della generazione.
+     * @param nanos           La durata della fase in nanosecondi.
+     */
+	protected static void recordPhaseNanos(Class<?> reportClassType, String format, String phase, long nanos) {
+		Timer.builder("report.generation.phase")
+				.description("Durata delle fasi della generazione dei report")
+				.tag("entity", reportClassType.getSimpleName())
+				.tag("format", format)
+				.tag("phase", phase)
+				.register(REGISTRY)
+				.record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+     * Incrementa il numero di righe scritte.
+     *
+     * @param reportClassType Il tipo di classe del report.
+     * @param format          Il formato del file.
+     * @param rows            Il numero di righe scritte.
+     */
+	protected static void countRows(Class<?> reportClassType, String format, long rows) {
+		counter("report.generation.rows", "Righe scritte nei report", reportClassType, format).increment(rows);
+	}
+
+	/**
+     * Incrementa il numero di byte prodotti.
+     *
+     * @param reportClassType Il tipo di classe del report.
+     * @param format          Il formato del file.
+     * @param bytes           Il numero di byte prodotti.
+     */
+	protected static void countBytes(Class<?> reportClassType, String format, long bytes) {
+		counter("report.generation.bytes", "Byte prodotti dai report", reportClassType, format).increment(bytes);
+	}
+
+	/**
+     * Incrementa il numero di generazioni fallite.
+     *
+     * @param reportClassType Il tipo di classe del report.
+     * @param format          Il formato del file.
+     * @param error           L'errore della generazione.
+     */
+	protected static void countFailure(Class<?> reportClassType, String format, Throwable error) {
+		Counter.builder("report.generation.failures")
+				.description("Generazioni dei report fallite")
+				.tag("entity", reportClassType != null ? reportClassType.getSimpleName() : "none")
+				.tag("format", format)
+				.tag("exception", error.getClass().getSimpleName())
+				.register(REGISTRY)
+				.increment();
+	}
+
+	/**
+     * Incrementa il numero di richieste alla cache dei file generati.
+     *
+     * @param reportClassType Il tipo di classe del report.
+     * @param format          Il formato del file.
+     * @param hit             `true` se il file è stato trovato nella cache.
+     */
+	protected static void countResultCache(Class<?> reportClassType, String format, boolean hit) {
+		Counter.builder("report.result.cache")
+				.description("Richieste alla cache dei file generati")
+				.tag("entity", reportClassType.getSimpleName())
+				.tag("format", format)
+				.tag("result", hit ? "hit" : "miss")
+				.register(REGISTRY)
+				.increment();
+	}
+
+	/**
+     * Incrementa il numero di richieste di una classe generata.
+     *
+     * @param kind   La tipologia della classe generata (`row` o `sheet`).
+     * @param result L'origine della classe restituita (`memory`, `prebuilt`, `disk` o `generated`).
+     */
+	protected static void countClassCache(String kind, String result) {
+		Counter.builder("report.class.cache")
+				.description("Richieste delle classi generate dei report")
+				.tag("kind", kind)
+				.tag("result", result)
+				.register(REGISTRY)
+				.increment();
+	}
+
+	/**
+     * Restituisce il contatore con il nome e i tag `entity` e `format` specificati.
+     *
+     * @param name            Il nome del contatore.
+     * @param description     La descrizione del contatore.
+     * @param reportClassType Il tipo di classe del report.
+     * @param format          Il formato del file.
+     * @return Il contatore registrato.
+     */
+	private static Counter counter(String name, String description, Class<?> reportClassType, String format) {
+		return Counter.builder(name)
+				.description(description)
+				.tag("entity", reportClassType.getSimpleName())
+				.tag("format", format)
+				.register(REGISTRY);
+	}
+
+	/**
+	 * Stream di uscita che conta i byte scritti sullo stream sottostante, per la metrica dei byte prodotti dalle scritture in streaming.
+	 */
+	protected static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		protected CountingOutputStream(OutputStream outputStream) {
+			super(outputStream);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		/**
+		 * @return Il numero di byte scritti.
+		 */
+		protected long getCount() {
+			return count;
+		}
+	}
+}
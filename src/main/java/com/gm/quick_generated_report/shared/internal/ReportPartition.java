@@ -0,0 +1,204 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportPartition.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Questa classe rappresenta una partizione della query di un report, ovvero un intervallo disgiunto dei valori della colonna di partizionamento.<br><br>
+ * Le partizioni vengono calcolate dividendo in parti uguali l'intervallo tra il valore minimo e massimo della colonna, letti con una query `MIN`/`MAX`
+ * con le stesse condizioni del report. Sono supportate colonne numeriche intere (`Long`, `Integer`, `Short`, `BigInteger`, `BigDecimal` senza decimali)
+ * e colonne di tipo data.<br>
+ * Ogni partizione viene eseguita su una propria connessione, sull'executor condiviso delle partizioni, e i risultati vengono ricomposti nell'ordine delle partizioni.
+ *
+ * @see ReportGeneratorBuilder
+ */
+class ReportPartition {
+
+	private final String whereCondition;
+	private final Map<String, Object> parameters;
+
+	/**
+     * Costruttore privato che inizializza la partizione.
+     *
+     * @param whereCondition La condizione WHERE del report in "AND" con il predicato dell'intervallo della partizione.
+     * @param parameters     I valori dei parametri della query, inclusi gli estremi dell'intervallo `:r0` e `:r1`.
+     */
+	private ReportPartition(String whereCondition, Map<String, Object> parameters) {
+		this.whereCondition = whereCondition;
+		this.parameters = parameters;
+	}
+
+	/**
+     * Divide la query del report in partizioni disgiunte sulla colonna specificata, in ordine crescente di intervallo.
+     *
+     * @param entityManagerFactory L'`EntityManagerFactory` utilizzato per la lettura dei valori minimo e massimo.
+     * @param tableName            Il nome dell'entità del report.
+     * @param column               La colonna di partizionamento.
+     * @param partitions           Il numero massimo di partizioni.
+     * @param whereCondition       La condizione WHERE del report (può essere nulla o vuota).
+     * @param parameters           I valori dei parametri della condizione WHERE.
+     * @return Le partizioni della query, vuota se il report non ha righe.
+     * @throws Exception Se la query dei valori minimo e massimo non può essere eseguita o se il tipo della colonna non è supportato.
+     */
+	protected static List<ReportPartition> split(EntityManagerFactory entityManagerFactory, String tableName, String column, int partitions,
+			String whereCondition, Map<String, Object> parameters) throws Exception {
+		StringBuilder rangeQuery = new StringBuilder();
+		rangeQuery.append(" SELECT MIN(" + column + "), MAX(" + column + ") ");
+		rangeQuery.append(" FROM " + tableName + " item ");
+		if (!StringUtils.isBlank(whereCondition)) rangeQuery.append(" WHERE " + whereCondition);
+		Object[] range = ReportQueryExecutor.range(entityManagerFactory, rangeQuery.toString(), parameters);
+		if (range[0] == null || range[1] == null) {
+			return Collections.emptyList();
+		}
+
+		// gli intervalli sono calcolati con BigInteger, senza overflow anche per colonne BigInteger o intervalli più ampi di Long.MAX_VALUE
+		BigInteger min = toBigInteger(column, range[0]);
+		BigInteger max = toBigInteger(column, range[1]);
+		BigInteger span = max.subtract(min).add(BigInteger.ONE);
+		int count = span.min(BigInteger.valueOf(Math.max(1, partitions))).intValue();
+		BigInteger[] quotientAndRemainder = span.divideAndRemainder(BigInteger.valueOf(count));
+		BigInteger step = quotientAndRemainder[1].signum() == 0 ? quotientAndRemainder[0] : quotientAndRemainder[0].add(BigInteger.ONE);
+
+		List<ReportPartition> reportPartitions = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			BigInteger lowerBound = min.add(step.multiply(BigInteger.valueOf(i)));
+			if (lowerBound.compareTo(max) > 0) break;
+			BigInteger upperBound = lowerBound.add(step);
+			boolean last = i == count - 1 || upperBound.compareTo(max) > 0;
+			// gli estremi esterni sono i valori minimo e massimo letti, non troncati: una data con nanosecondi oltre il millisecondo resta inclusa
+			String rangePredicate = column + " >= :r0 AND " + column + (last ? " <= :r1" : " < :r1");
+			Map<String, Object> partitionParameters = new LinkedHashMap<>(parameters);
+			partitionParameters.put("r0", i == 0 ? range[0] : fromBigInteger(range[0], lowerBound));
+			partitionParameters.put("r1", last ? range[1] : fromBigInteger(range[0], upperBound));
+			String partitionCondition = StringUtils.isBlank(whereCondition)
+					? " ( " + rangePredicate + " ) "
+					: " ( " + whereCondition + " ) AND ( " + rangePredicate + " ) ";
+			reportPartitions.add(new ReportPartition(partitionCondition, Collections.unmodifiableMap(partitionParameters)));
+			if (last) break;
+		}
+		return reportPartitions;
+	}
+
+	/**
+     * Esegue in parallelo i task specificati, uno per partizione, sull'executor indicato e ne restituisce i risultati nello stesso ordine.<br>
+     * L'executor è condiviso tra i report (`ReportBuilder.getPartitionExecutor`), così che il numero di query di partizione in corso, e quindi
+     * di connessioni occupate, resti limitato indipendentemente dal numero di report generati insieme.<br>
+     * Il thread chiamante esegue direttamente i task che l'executor non ha ancora avviato, nell'ordine dei risultati attesi: un task in esecuzione
+     * sull'executor può così avviare a sua volta dei task sullo stesso executor (ad esempio i fogli di un workbook con query partizionate) senza
+     * attendere thread liberi.<br>
+     * Se un task fallisce, i task non ancora completati vengono annullati e viene rilanciato l'errore.
+     *
+     * @param <R>               Tipo del risultato dei task.
+     * @param partitionExecutor L'executor delle partizioni.
+     * @param tasks             I task delle partizioni.
+     * @return I risultati dei task, nell'ordine dei task.
+     * @throws Exception Se uno dei task fallisce o se l'esecuzione viene interrotta.
+     */
+	protected static <R> List<R> runAll(Executor partitionExecutor, List<Callable<R>> tasks) throws Exception {
+		if (tasks.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<FutureTask<R>> futures = new ArrayList<>(tasks.size());
+		try {
+			for (Callable<R> task : tasks) {
+				FutureTask<R> future = new FutureTask<>(task);
+				futures.add(future);
+				partitionExecutor.execute(future);
+			}
+			List<R> results = new ArrayList<>(tasks.size());
+			for (FutureTask<R> future : futures) {
+				// run() non esegue nulla se il task è già stato avviato dall'executor
+				future.run();
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw new ReportException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			for (FutureTask<R> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * @return La condizione WHERE del report in "AND" con il predicato dell'intervallo della partizione.
+	 */
+	protected String getWhereCondition() {
+		return whereCondition;
+	}
+
+	/**
+	 * @return I valori dei parametri della query della partizione.
+	 */
+	protected Map<String, Object> getParameters() {
+		return parameters;
+	}
+
+	/**
+     * Converte il valore della colonna di partizionamento in un valore intero per il calcolo degli intervalli.
+     *
+     * @param column Il nome della colonna di partizionamento.
+     * @param value  Il valore della colonna.
+     * @return Il valore come `BigInteger`, in millisecondi per le date.
+     * @throws ReportException Se il tipo della colonna non è supportato.
+     */
+	private static BigInteger toBigInteger(String column, Object value) throws ReportException {
+		if (value instanceof BigInteger) {
+			return (BigInteger) value;
+		}
+		if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+			return BigInteger.valueOf(((Number) value).longValue());
+		}
+		if (value instanceof BigDecimal && ((BigDecimal) value).stripTrailingZeros().scale() <= 0) {
+			return ((BigDecimal) value).toBigIntegerExact();
+		}
+		if (value instanceof Date) {
+			return BigInteger.valueOf(((Date) value).getTime());
+		}
+		throw new ReportException("Colonna di partizionamento '" + column + "' non supportata: tipo " + value.getClass().getName() + ".");
+	}
+
+	/**
+     * Converte un estremo interno dell'intervallo nel tipo della colonna di partizionamento.<br>
+     * Gli estremi interni sono compresi tra il valore minimo e massimo della colonna, per cui la conversione è sempre esatta.
+     *
+     * @param sample Un valore della colonna, da cui ricavare il tipo.
+     * @param value  L'estremo dell'intervallo.
+     * @return L'estremo dell'intervallo nel tipo della colonna.
+     */
+	private static Object fromBigInteger(Object sample, BigInteger value) {
+		if (sample instanceof BigInteger) return value;
+		if (sample instanceof BigDecimal) return new BigDecimal(value);
+		if (sample instanceof Integer) return value.intValueExact();
+		if (sample instanceof Short) return value.shortValueExact();
+		if (sample instanceof Date) return new Date(value.longValueExact());
+		return value.longValueExact();
+	}
+}
@@ -0,0 +1,161 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportPlan.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.RowSheet;
+import bld.generator.report.excel.SheetData;
+
+/**
+ * Questa classe rappresenta il piano compilato di un report con query, l'equivalente di un `PreparedStatement` per i report.<br><br>
+ * Il piano viene compilato una sola volta per classe del report, nome e forma delle condizioni e dell'ordinamento: contiene le classi di riga e di foglio
+ * già generate, la query JPQL completa con parametri nominali e le colonne del file CSV.<br>
+ * Ogni esecuzione associa ai parametri i propri valori con `bind(...)`, senza rigenerare la query né ricercare le classi generate.
+ * I piani sono immutabili e possono essere condivisi tra thread.
+ *
+ * @see ReportQueryBuilder
+ * @see ReportGeneratorBuilder
+ */
+public class ReportPlan {
+
+	private final ReportBuilder reportBuilder;
+	private final Class<?> reportClassType;
+	private final String reportName;
+	private final Class<? extends RowSheet> rowClass;
+	private final Class<? extends SheetData<? extends RowSheet>> sheetClass;
+	private final String whereCondition;
+	private final ReportQueryOrder[] reportOrders;
+	private final String reportQuery;
+	private final ReportQueryCondition[] parameterConditions;
+	private final Field[] columnFields;
+
+	/**
+     * Costruttore privato utilizzato per inizializzare il piano compilato.
+     *
+     * @param reportBuilder       Il `ReportBuilder` che fornisce i servizi per la generazione di report.
+     * @param reportClassType     Il tipo di classe del report.
+     * @param reportName          Il nome del report.
+     * @param rowClass            La classe di riga generata.
+     * @param sheetClass          La classe di foglio generata.
+     * @param whereCondition      La condizione WHERE con parametri nominali.
+     * @param reportOrders        Gli ordinamenti della query.
+     * @param reportQuery         La query JPQL completa con parametri nominali.
+     * @param parameterConditions Le condizioni associate ai parametri, nell'ordine dei parametri `p0`, `p1`, ...
+     * @param columnFields        I campi della classe di riga nell'ordine delle colonne.
+     */
+	private ReportPlan(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName, Class<? extends RowSheet> rowClass,
+			Class<? extends SheetData<? extends RowSheet>> sheetClass, String whereCondition, ReportQueryOrder[] reportOrders, String reportQuery,
+			ReportQueryCondition[] parameterConditions, Field[] columnFields) {
+		this.reportBuilder = reportBuilder;
+		this.reportClassType = reportClassType;
+		this.reportName = reportName;
+		this.rowClass = rowClass;
+		this.sheetClass = sheetClass;
+		this.whereCondition = whereCondition;
+		this.reportOrders = reportOrders;
+		this.reportQuery = reportQuery;
+		this.parameterConditions = parameterConditions;
+		this.columnFields = columnFields;
+	}
+
+	/**
+     * Compila il piano di un report generando, se necessario, le classi di riga e di foglio e la query completa.
+     *
+     * @param reportBuilder       Il `ReportBuilder` che fornisce i servizi per la generazione di report.
+     * @param reportClassType     Il tipo di classe del report.
+     * @param reportName          Il nome del report.
+     * @param whereCondition      La condizione WHERE con parametri nominali.
+     * @param reportOrders        Gli ordinamenti della query.
+     * @param parameterConditions Le condizioni associate ai parametri, nell'ordine dei parametri.
+     * @return Il piano compilato.
+     * @throws Exception Se si verifica un errore durante la generazione delle classi.
+     */
+	protected static ReportPlan compile(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName, String whereCondition, ReportQueryOrder[] reportOrders,
+			List<ReportQueryCondition> parameterConditions) throws Exception {
+		Class<? extends RowSheet> rowClass = ReportRowClassGenerator.generateReportRowClass(reportClassType);
+		Class<? extends SheetData<? extends RowSheet>> sheetClass = ReportSheetClassGenerator.generateReportSheetClass(reportClassType, rowClass);
+		String reportQuery = ReportUtil.generateSQLQuery(rowClass, reportClassType.getSimpleName(), whereCondition, ReportQueryParser.parse(reportOrders));
+		return new ReportPlan(reportBuilder, reportClassType, reportName, rowClass, sheetClass, whereCondition, reportOrders, reportQuery,
+				parameterConditions.toArray(new ReportQueryCondition[parameterConditions.size()]), ReportCsvWriter.resolveColumnFields(rowClass));
+	}
+
+	/**
+     * Associa i valori specificati ai parametri del piano e restituisce il generatore del report pronto per l'esecuzione.<br>
+     * I valori seguono l'ordine delle condizioni con valore aggiunte al `ReportQueryBuilder`; per le condizioni LIKE e NOT LIKE il carattere jolly
+     * viene aggiunto secondo la direzione della condizione, per le condizioni IN e NOT IN il valore è una collezione o un array.
+     *
+     * @param values I valori dei parametri.
+     * @return Un oggetto `ReportGeneratorBuilder` che può essere utilizzato per generare il report.
+     * @throws ReportException Se il numero dei valori non corrisponde a quello dei parametri del piano o se un valore è nullo.
+     */
+	public ReportGeneratorBuilder bind(Object... values) throws ReportException {
+		if (values.length != parameterConditions.length)
+			throw new ReportException("Numero di parametri non valido per il report '" + reportName + "': attesi " + parameterConditions.length + ", ricevuti " + values.length + ".");
+		Map<String, Object> reportParameters = new LinkedHashMap<>();
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null)
+				throw new ReportException("Parametro p" + i + " nullo per il report '" + reportName + "'.");
+			ReportQueryCondition parameterCondition = parameterConditions[i];
+			Object value = parameterCondition.likeDirection == null
+					? values[i]
+					: ReportQueryCondition.likeValue(parameterCondition.likeDirection, values[i]);
+			reportParameters.put("p" + i, ReportQueryParser.bindValue(value));
+		}
+		return ReportGeneratorBuilder.define(this, reportParameters);
+	}
+
+	/**
+	 * @return La query JPQL completa con parametri nominali del piano.
+	 */
+	public String getReportQuery() {
+		return reportQuery;
+	}
+
+	/**
+	 * @return Il numero dei parametri del piano.
+	 */
+	public int getParameterCount() {
+		return parameterConditions.length;
+	}
+
+	protected ReportBuilder getReportBuilder() {
+		return reportBuilder;
+	}
+
+	protected Class<?> getReportClassType() {
+		return reportClassType;
+	}
+
+	protected String getReportName() {
+		return reportName;
+	}
+
+	protected Class<? extends RowSheet> getRowClass() {
+		return rowClass;
+	}
+
+	protected Class<? extends SheetData<? extends RowSheet>> getSheetClass() {
+		return sheetClass;
+	}
+
+	protected String getWhereCondition() {
+		return whereCondition;
+	}
+
+	protected ReportQueryOrder[] getReportOrders() {
+		return reportOrders;
+	}
+
+	protected Field[] getColumnFields() {
+		return columnFields;
+	}
+}
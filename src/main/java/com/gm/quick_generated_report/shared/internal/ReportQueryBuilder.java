@@ -6,16 +6,19 @@
 package com.gm.quick_generated_report.shared.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 
-import bld.generator.report.excel.GenerateExcel;
-
 /**
  * Questa classe è responsabile della costruzione di una query SQL basata su condizioni e operatori specificati.<br>
  * Permette di definire condizioni di ricerca basate su colonne, valori e condizioni specificate. <br>
- * Le condizioni possono essere concatenate utilizzando gli operatori logici "AND" e "OR" dell'enum 'ReportQueryOperator' e possono distinguersi in differenti tipologie descritte dall'enum 'ReportQueryCondition'.
+ * Le condizioni possono essere concatenate utilizzando gli operatori logici "AND" e "OR" dell'enum 'ReportQueryOperator' e possono distinguersi in differenti tipologie descritte dall'enum 'ReportQueryCondition'.<br><br>
+ * Con `bindParameters()` i valori delle condizioni non vengono inseriti nel testo della query ma passati come parametri nominali:
+ * la query è la stessa per ogni valore dei filtri e può essere riutilizzata dalla cache dei piani di Hibernate e dal database.
  * 
  * @see ReportBuilder
  */
@@ -23,33 +26,34 @@ public class ReportQueryBuilder {
 
 	private Class<?> reportClassType;
 	private String reportName;
-	private GenerateExcel generatorExcel;
+	private ReportBuilder reportBuilder;
     private List<ReportQueryCondition> reportConditions;
+    private boolean bindParameters;
     
     /**
      * Costruttore privato utilizzato per inizializzare un'istanza di `ReportQueryBuilder`.
      *
-     * @param generatorExcel  L'oggetto `GenerateExcel` utilizzato per la generazione di report.
+     * @param reportBuilder   Il `ReportBuilder` che ha creato il builder e che fornisce i servizi per la generazione di report.
      * @param reportClassType Il tipo di classe del report.
      * @param reportName      Il nome del report.
      */
-    private ReportQueryBuilder(GenerateExcel generatorExcel, Class<?> reportClassType, String reportName) {
+    private ReportQueryBuilder(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName) {
 		this.reportClassType = reportClassType;
 		this.reportName = reportName;
-		this.generatorExcel = generatorExcel;
+		this.reportBuilder = reportBuilder;
 		reportConditions = new ArrayList<>();
     }
     
     /**
      * Crea un'istanza di `ReportQueryBuilder`.
      *
-     * @param generatorExcel  L'oggetto `GenerateExcel` utilizzato per la generazione di report.
+     * @param reportBuilder   Il `ReportBuilder` che ha creato il builder e che fornisce i servizi per la generazione di report.
      * @param reportClassType Il tipo di classe del report.
      * @param reportName      Il nome del report.
      * @return Un nuovo oggetto `ReportQueryBuilder`.
      */
-    protected static ReportQueryBuilder define(GenerateExcel generatorExcel, Class<?> reportClassType, String reportName) {
-    	ReportQueryBuilder builder = new ReportQueryBuilder(generatorExcel, reportClassType, reportName);
+    protected static ReportQueryBuilder define(ReportBuilder reportBuilder, Class<?> reportClassType, String reportName) {
+    	ReportQueryBuilder builder = new ReportQueryBuilder(reportBuilder, reportClassType, reportName);
     	return builder;
     }
 
@@ -64,25 +68,26 @@ public class ReportQueryBuilder {
         return this;
     }
 
+    /**
+     * Abilita la modalità con parametri: i valori delle condizioni vengono passati alla query come parametri nominali invece che come valori letterali.<br>
+     * Gli elenchi delle condizioni IN e NOT IN vengono passati come parametro di tipo collezione.
+     *
+     * @return L'istanza corrente di `ReportQueryBuilder` per consentire la concatenazione delle condizioni.
+     */
+    public ReportQueryBuilder bindParameters() {
+    	bindParameters = true;
+    	return this;
+    }
+
     /**
      * Costruisce la query SQL completa basata sulle condizioni specificate.
      *
      * @return Un oggetto `ReportGeneratorBuilder` che può essere utilizzato per generare un report.
      */
     public ReportGeneratorBuilder build() {
-        StringBuilder sqlQueryBuilder = new StringBuilder();
-        for (int i = 0; i < reportConditions.size(); i++) {
-        	ReportQueryCondition queryCondition = reportConditions.get(i);
-        	if (queryCondition == null || StringUtils.isBlank(ReportQueryParser.parse(queryCondition))) {
-            	continue;
-        	}
-        	if (sqlQueryBuilder.length() > 0) {
-        		sqlQueryBuilder.append(" AND ");
-        	}
-        	sqlQueryBuilder.append(" ( " + ReportQueryParser.parse(queryCondition) + " ) ");
-		}
-        String reportQuery = sqlQueryBuilder.toString();
-        return ReportGeneratorBuilder.define(generatorExcel, reportClassType, reportName, reportQuery);
+    	Map<String, Object> reportParameters = new LinkedHashMap<>();
+        String reportQuery = buildCondition(bindParameters, reportParameters);
+        return ReportGeneratorBuilder.define(reportBuilder, reportClassType, reportName, reportQuery, new ReportQueryOrder[0], reportParameters, buildConditionKey());
     }
 
     /**
@@ -92,19 +97,86 @@ public class ReportQueryBuilder {
      * @return Un oggetto `ReportGeneratorBuilder` che può essere utilizzato per generare un report.
      */
     public ReportGeneratorBuilder build(ReportQueryOrder ...reportQueryOrder) {
+    	Map<String, Object> reportParameters = new LinkedHashMap<>();
+    	String reportQuery = buildCondition(bindParameters, reportParameters);
+    	return ReportGeneratorBuilder.define(reportBuilder, reportClassType, reportName, reportQuery, reportQueryOrder, reportParameters, buildConditionKey());
+    }
+    
+    /**
+     * Compila il piano del report con le condizioni e l'ordinamento specificati, oppure restituisce quello già compilato per la stessa forma.<br>
+     * Le condizioni aggiunte definiscono la forma della query: colonne, operatori e direzioni delle condizioni LIKE. I loro valori servono solo a
+     * definire quali condizioni sono presenti e vengono sostituiti dai valori passati a `ReportPlan.bind(...)` a ogni esecuzione.
+     *
+     * @param reportQueryOrder La clausola ORDER BY per la query SQL per ordinare i dati.
+     * @return Il piano compilato del report.
+     * @throws Exception Se si verifica un errore durante la generazione delle classi del report.
+     */
+    public ReportPlan prepare(ReportQueryOrder ...reportQueryOrder) throws Exception {
+    	String whereCondition = buildCondition(true, new LinkedHashMap<>());
+    	String orderBy = ReportQueryParser.parse(reportQueryOrder);
+    	List<ReportQueryCondition> parameterConditions = new ArrayList<>();
+    	// l'operatore e la direzione LIKE di ogni parametro fanno parte della chiave: LIKE LEFT e LIKE RIGHT producono la stessa condizione `colonna LIKE :pN`
+    	StringBuilder planKey = new StringBuilder(reportClassType.getName()).append('|').append(reportName).append('|').append(whereCondition).append('|').append(orderBy);
+    	for (ReportQueryCondition queryCondition : reportConditions) {
+    		if (queryCondition != null && queryCondition.rightValue != null) {
+    			parameterConditions.add(queryCondition);
+    			planKey.append('|').append(queryCondition.binaryCondition).append(':').append(queryCondition.likeDirection);
+    		}
+    	}
+    	return reportBuilder.getReportPlan(planKey.toString(), () -> ReportPlan.compile(reportBuilder, reportClassType, reportName, whereCondition, reportQueryOrder, parameterConditions));
+    }
+    
+    /**
+     * Costruisce la condizione WHERE concatenando in "AND" le condizioni specificate. Ogni condizione viene convertita una sola volta.
+     *
+     * @param bindMode         `true` per passare i valori delle condizioni come parametri nominali.
+     * @param reportParameters La mappa a cui aggiungere i valori dei parametri, in modalità con parametri.
+     * @return La condizione WHERE della query.
+     */
+    private String buildCondition(boolean bindMode, Map<String, Object> reportParameters) {
     	StringBuilder sqlQueryBuilder = new StringBuilder();
-    	for (int i = 0; i < reportConditions.size(); i++) {
-    		ReportQueryCondition queryCondition = reportConditions.get(i);
-    		if (queryCondition == null || StringUtils.isBlank(ReportQueryParser.parse(queryCondition))) {
+    	for (ReportQueryCondition queryCondition : reportConditions) {
+    		if (queryCondition == null) {
+    			continue;
+    		}
+    		String sqlCondition = bindMode
+    				? ReportQueryParser.parse(queryCondition, reportParameters)
+    				: ReportQueryParser.parse(queryCondition);
+    		if (StringUtils.isBlank(sqlCondition)) {
     			continue;
     		}
     		if (sqlQueryBuilder.length() > 0) {
     			sqlQueryBuilder.append(" AND ");
     		}
-    		sqlQueryBuilder.append(" ( " + ReportQueryParser.parse(queryCondition) + " ) ");
+    		sqlQueryBuilder.append(" ( " + sqlCondition + " ) ");
+    	}
+    	return sqlQueryBuilder.toString();
+    }
+    
+    /**
+     * Costruisce la forma normalizzata delle condizioni per la chiave della cache dei file generati: le condizioni, con i loro valori serializzati
+     * in modo esatto con `ReportQueryParser.keyValue`, vengono ordinate così che lo stesso insieme di condizioni aggiunte in ordine diverso produca la stessa chiave.
+     *
+     * @return Le condizioni normalizzate, oppure `null` se la cache dei file generati non è impostata.
+     */
+    private String buildConditionKey() {
+    	if (reportBuilder.getReportResultCache() == null) {
+    		return null;
+    	}
+    	List<String> sqlConditions = new ArrayList<>();
+    	for (ReportQueryCondition queryCondition : reportConditions) {
+    		if (queryCondition == null) {
+    			continue;
+    		}
+    		String keyCondition = queryCondition.column + queryCondition.binaryCondition.toString();
+    		if (queryCondition.rightValue != null) {
+    			keyCondition += ReportQueryParser.keyValue(queryCondition.rightValue);
+    		}
+    		if (!StringUtils.isBlank(keyCondition)) {
+    			sqlConditions.add(keyCondition.trim());
+    		}
     	}
-    	String reportQuery = sqlQueryBuilder.toString();
-    	String reportOrder = ReportQueryParser.parse(reportQueryOrder);
-    	return ReportGeneratorBuilder.define(generatorExcel, reportClassType, reportName, reportQuery, reportOrder);
+    	Collections.sort(sqlConditions);
+    	return String.join(" AND ", sqlConditions);
     }
 }
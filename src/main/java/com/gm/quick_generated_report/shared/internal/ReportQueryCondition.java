@@ -51,13 +51,22 @@ public class ReportQueryCondition {
 	protected final String column;
 	protected final Object rightValue;
 	protected final BinaryCondition binaryCondition;
+	protected final LikeConditionDirection likeDirection;
 	
 	private ReportQueryCondition(BinaryCondition binaryCondition,
 								String column,
 								Object rightValue) {
+		this(binaryCondition, column, rightValue, null);
+	}
+	
+	private ReportQueryCondition(BinaryCondition binaryCondition,
+								String column,
+								Object rightValue,
+								LikeConditionDirection likeDirection) {
 		this.binaryCondition = binaryCondition;
 		this.column = column;
 		this.rightValue = rightValue;
+		this.likeDirection = likeDirection;
 	}
 	
 	/**
@@ -140,18 +149,7 @@ public class ReportQueryCondition {
      */
 	public static ReportQueryCondition like(LikeConditionDirection likeDirection, String column, Object rightValue) {
 		if (column == null || rightValue == null) return null;
-		switch (likeDirection) {
-			case CENTER:
-				rightValue = "%" + rightValue + "%";
-				break;
-			case LEFT:
-				rightValue = "%" + rightValue;
-				break;
-			case RIGHT:
-				rightValue = rightValue + "%";
-				break;
-		}
-		return new ReportQueryCondition(BinaryCondition.LIKE, column, rightValue);
+		return new ReportQueryCondition(BinaryCondition.LIKE, column, likeValue(likeDirection, rightValue), likeDirection);
 	}
 	
 	/**
@@ -164,18 +162,7 @@ public class ReportQueryCondition {
      */
 	public static ReportQueryCondition notLike(LikeConditionDirection likeDirection, String column, Object rightValue) {
 		if (column == null || rightValue == null) return null;
-		switch (likeDirection) {
-			case CENTER:
-				rightValue = "%" + rightValue + "%";
-				break;
-			case LEFT:
-				rightValue = "%" + rightValue;
-				break;
-			case RIGHT:
-				rightValue = rightValue + "%";
-				break;
-		}
-		return new ReportQueryCondition(BinaryCondition.NOT_LIKE, column, rightValue);
+		return new ReportQueryCondition(BinaryCondition.NOT_LIKE, column, likeValue(likeDirection, rightValue), likeDirection);
 	}
 	
 	/**
@@ -199,4 +186,24 @@ public class ReportQueryCondition {
 	public static ReportQueryCondition notInList(String column, Object rightValue) {
 		return (column == null || rightValue == null) ? null : new ReportQueryCondition(BinaryCondition.IS_NOT_IN_LIST, column, rightValue);
 	}
+	
+	/**
+     * Restituisce il valore della condizione LIKE o NOT LIKE con il carattere jolly `%` nella posizione indicata dalla direzione.
+     *
+     * @param likeDirection La direzione della condizione (LEFT, RIGHT o CENTER).
+     * @param rightValue    Il valore di destra della condizione.
+     * @return Il valore con il carattere jolly.
+     */
+	protected static Object likeValue(LikeConditionDirection likeDirection, Object rightValue) {
+		switch (likeDirection) {
+			case CENTER:
+				return "%" + rightValue + "%";
+			case LEFT:
+				return "%" + rightValue;
+			case RIGHT:
+				return rightValue + "%";
+			default:
+				return rightValue;
+		}
+	}
 }
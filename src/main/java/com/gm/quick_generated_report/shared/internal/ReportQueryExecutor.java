@@ -0,0 +1,161 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportQueryExecutor.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Questa classe è responsabile dell'esecuzione delle query JPQL generate da `ReportUtil.generateSQLQuery` e della consegna delle righe risultanti una alla volta.<br>
+ * Le righe vengono lette in streaming dal cursore del database, senza materializzare l'intero risultato in memoria, oppure a blocchi con paginazione keyset.
+ *
+ * @see ReportGeneratorBuilder
+ */
+class ReportQueryExecutor {
+
+	private static final int FETCH_SIZE = 1000;
+
+	/**
+	 * Interfaccia funzionale per la consegna delle righe lette dalla query.
+	 *
+	 * @param <T> Tipo classe riga generata del report.
+	 */
+	interface ReportRowConsumer<T> {
+		void accept(T row) throws Exception;
+	}
+
+	private ReportQueryExecutor() {}
+
+	/**
+	 * Esegue la query specificata con i parametri indicati e consegna ogni riga letta al consumer indicato.
+	 *
+	 * @param <T>                  Tipo classe riga generata del report.
+	 * @param entityManagerFactory L'`EntityManagerFactory` utilizzato per l'apertura della connessione.
+	 * @param query                La query JPQL da eseguire.
+	 * @param parameters           I valori dei parametri nominali della query, indicizzati per nome.
+	 * @param rowClass             La classe generata che rappresenta una riga del report.
+	 * @param rowConsumer          Il consumer a cui consegnare le righe lette.
+	 * @throws Exception Se la query non può essere eseguita o se il consumer genera un errore.
+	 */
+	protected static <T> void stream(EntityManagerFactory entityManagerFactory, String query, Map<String, Object> parameters, Class<T> rowClass, ReportRowConsumer<T> rowConsumer) throws Exception {
+		if (entityManagerFactory == null)
+			throw new ReportException("Report con query non disponibile: 'EntityManagerFactory' non configurato nel contesto applicativo.");
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			// lettura senza transazione: una transazione locale non è ammessa da un EntityManagerFactory JTA e non è necessaria per una query di sola lettura
+			TypedQuery<T> typedQuery = entityManager.createQuery(query, rowClass);
+			typedQuery.setHint("org.hibernate.fetchSize", FETCH_SIZE);
+			typedQuery.setHint("org.hibernate.readOnly", true);
+			bindParameters(typedQuery, parameters);
+			try (Stream<T> rows = typedQuery.getResultStream()) {
+				Iterator<T> rowIterator = rows.iterator();
+				while (rowIterator.hasNext()) {
+					rowConsumer.accept(rowIterator.next());
+				}
+			}
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	/**
+	 * Esegue la query specificata a blocchi di `chunkSize` righe con paginazione keyset e consegna ogni riga letta al consumer indicato.<br>
+	 * La prima pagina è letta con la query senza predicato keyset, le successive con il predicato costruito sui valori dell'ultima riga della pagina
+	 * precedente. Al termine di ogni pagina il contesto di persistenza viene svuotato, così che le righe già consegnate possano essere rilasciate.
+	 *
+	 * @param <T>                  Tipo classe riga generata del report.
+	 * @param entityManagerFactory L'`EntityManagerFactory` utilizzato per l'apertura della connessione.
+	 * @param firstQuery           La query JPQL della prima pagina.
+	 * @param nextQuery            La query JPQL delle pagine successive, con il predicato keyset.
+	 * @param parameters           I valori dei parametri nominali della query, indicizzati per nome.
+	 * @param keyset               Il predicato keyset da cui leggere i valori dei parametri delle pagine successive.
+	 * @param chunkSize            Il numero massimo di righe per pagina.
+	 * @param rowClass             La classe generata che rappresenta una riga del report.
+	 * @param rowConsumer          Il consumer a cui consegnare le righe lette.
+	 * @throws Exception Se la query non può essere eseguita o se il consumer genera un errore.
+	 */
+	protected static <T> void streamChunks(EntityManagerFactory entityManagerFactory, String firstQuery, String nextQuery, Map<String, Object> parameters,
+			ReportKeyset keyset, int chunkSize, Class<T> rowClass, ReportRowConsumer<T> rowConsumer) throws Exception {
+		if (entityManagerFactory == null)
+			throw new ReportException("Report con query non disponibile: 'EntityManagerFactory' non configurato nel contesto applicativo.");
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			Map<String, Object> keyValues = null;
+			while (true) {
+				TypedQuery<T> typedQuery = entityManager.createQuery(keyValues == null ? firstQuery : nextQuery, rowClass);
+				typedQuery.setHint("org.hibernate.fetchSize", Math.min(chunkSize, FETCH_SIZE));
+				typedQuery.setHint("org.hibernate.readOnly", true);
+				typedQuery.setMaxResults(chunkSize);
+				bindParameters(typedQuery, parameters);
+				if (keyValues != null) {
+					bindParameters(typedQuery, keyValues);
+				}
+				List<T> rows = typedQuery.getResultList();
+				for (T row : rows) {
+					rowConsumer.accept(row);
+				}
+				if (rows.size() < chunkSize) {
+					break;
+				}
+				keyValues = keyset.keyValues(rows.get(rows.size() - 1));
+				entityManager.clear();
+			}
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	/**
+	 * Esegue una query di aggregazione con una sola riga di risultato, ad esempio `SELECT MIN(...), MAX(...)`.
+	 *
+	 * @param entityManagerFactory L'`EntityManagerFactory` utilizzato per l'apertura della connessione.
+	 * @param query                La query JPQL da eseguire.
+	 * @param parameters           I valori dei parametri nominali della query, indicizzati per nome.
+	 * @return I valori della riga di risultato.
+	 * @throws ReportException Se l'`EntityManagerFactory` non è configurato.
+	 */
+	protected static Object[] range(EntityManagerFactory entityManagerFactory, String query, Map<String, Object> parameters) throws ReportException {
+		if (entityManagerFactory == null)
+			throw new ReportException("Report con query non disponibile: 'EntityManagerFactory' non configurato nel contesto applicativo.");
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			Query rangeQuery = entityManager.createQuery(query);
+			rangeQuery.setHint("org.hibernate.readOnly", true);
+			bindParameters(rangeQuery, parameters);
+			return (Object[]) rangeQuery.getSingleResult();
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	/**
+	 * Associa alla query i valori dei parametri nominali specificati.
+	 *
+	 * @param query      La query a cui associare i parametri.
+	 * @param parameters I valori dei parametri nominali, indicizzati per nome.
+	 */
+	private static void bindParameters(Query query, Map<String, Object> parameters) {
+		for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+			if (parameter.getValue() instanceof Date) {
+				// stessa precisione della conversione TO_DATE('YYYY-MM-DD HH24:MI:SS') delle query con valori letterali
+				query.setParameter(parameter.getKey(), (Date) parameter.getValue(), TemporalType.TIMESTAMP);
+			} else {
+				query.setParameter(parameter.getKey(), parameter.getValue());
+			}
+		}
+	}
+}
@@ -5,10 +5,16 @@
 */
 package com.gm.quick_generated_report.shared.internal;
 
+import java.lang.reflect.Array;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Questa classe è responsabile della conversione del modello rappresentativo di una condizione "WHERE" di una query SQL in una stringa SQL corrispondente.<br>
@@ -28,7 +34,32 @@ class ReportQueryParser {
 		StringBuilder queryConditionBuilder = new StringBuilder();
 		queryConditionBuilder.append(queryCondition.column);
 		queryConditionBuilder.append(queryCondition.binaryCondition.toString());
-		queryConditionBuilder.append(formatValue(queryCondition.rightValue));
+		if (queryCondition.rightValue != null) {
+			queryConditionBuilder.append(formatValue(queryCondition.rightValue));
+		}
+		return queryConditionBuilder.toString();
+	}
+	
+	/**
+     * Converte il modello di query specificato in una stringa SQL con parametro nominale al posto del valore.<br>
+     * Il valore della condizione viene aggiunto alla mappa dei parametri con nome `p0`, `p1`, ... in base al numero di parametri già presenti;
+     * gli elenchi delle condizioni IN e NOT IN vengono passati come parametro di tipo collezione, espanso dal provider JPA.
+     *
+     * @param queryCondition Il modello di query da convertire.
+     * @param parameters     La mappa dei parametri della query a cui aggiungere il valore della condizione.
+     * @return La stringa SQL parametrica corrispondente alla query.
+     */
+	protected static String parse(ReportQueryCondition queryCondition, Map<String, Object> parameters) {
+		StringBuilder queryConditionBuilder = new StringBuilder();
+		queryConditionBuilder.append(queryCondition.column);
+		queryConditionBuilder.append(queryCondition.binaryCondition.toString());
+		if (queryCondition.rightValue != null) {
+			String parameterName = "p" + parameters.size();
+			parameters.put(parameterName, bindValue(queryCondition.rightValue));
+			boolean listCondition = queryCondition.binaryCondition == ReportQueryCondition.BinaryCondition.IS_IN_LIST
+					|| queryCondition.binaryCondition == ReportQueryCondition.BinaryCondition.IS_NOT_IN_LIST;
+			queryConditionBuilder.append(listCondition ? "(:" + parameterName + ")" : ":" + parameterName);
+		}
 		return queryConditionBuilder.toString();
 	}
 	
@@ -62,8 +93,87 @@ class ReportQueryParser {
             return "TO_DATE('" + formatter.format(value) + "', 'YYYY-MM-DD HH24:MI:SS')";
         } else if (value instanceof String) {
         	return "'" + String.valueOf(value) + "'";
+        } else if (value instanceof Collection || value.getClass().isArray()) {
+        	List<String> formattedValues = new ArrayList<>();
+        	for (Object element : (List<?>) bindValue(value)) {
+        		formattedValues.add(formatValue(element));
+        	}
+        	return "(" + String.join(", ", formattedValues) + ")";
         } else {
             return String.valueOf(value);
         }
     }
+    
+    /**
+     * Restituisce il valore da associare al parametro della query, convertendo gli array in liste per le condizioni IN e NOT IN.<br>
+     * Gli array di tipi primitivi (`int[]`, `long[]`, ...) vengono espansi elemento per elemento con `java.lang.reflect.Array`.
+     *
+     * @param value Il valore della condizione.
+     * @return Il valore del parametro.
+     */
+    protected static Object bindValue(Object value) {
+    	if (value instanceof Object[]) return Arrays.asList((Object[]) value);
+    	if (value instanceof Collection) return new ArrayList<>((Collection<?>) value);
+    	if (value != null && value.getClass().isArray()) {
+    		int length = Array.getLength(value);
+    		List<Object> values = new ArrayList<>(length);
+    		for (int i = 0; i < length; i++) {
+    			values.add(Array.get(value, i));
+    		}
+    		return values;
+    	}
+    	return value;
+    }
+    
+    /**
+     * Serializza il valore di una condizione o di un parametro per la chiave della cache dei file generati, in modo esatto e indipendente dalla
+     * modalità della query: le date con i millisecondi (e i nanosecondi di `Timestamp`), i tipi `java.time` con la loro rappresentazione ISO completa,
+     * gli array e le collezioni elemento per elemento. Ogni valore è preceduto dal nome della sua classe, così che valori di tipo diverso con la stessa
+     * rappresentazione testuale producano chiavi diverse.
+     *
+     * @param value Il valore da serializzare.
+     * @return Il valore serializzato.
+     */
+    protected static String keyValue(Object value) {
+    	StringBuilder keyBuilder = new StringBuilder();
+    	appendKeyValue(keyBuilder, value);
+    	return keyBuilder.toString();
+    }
+    
+    /**
+     * Aggiunge il valore serializzato per la chiave della cache dei file generati, espandendo ricorsivamente gli array e le collezioni.
+     *
+     * @param keyBuilder Il builder della chiave.
+     * @param value      Il valore da serializzare.
+     */
+    private static void appendKeyValue(StringBuilder keyBuilder, Object value) {
+    	if (value == null) {
+    		keyBuilder.append("null");
+    		return;
+    	}
+    	if (value instanceof Collection || value.getClass().isArray()) {
+    		keyBuilder.append('[');
+    		List<?> elements = (List<?>) bindValue(value);
+    		for (int i = 0; i < elements.size(); i++) {
+    			if (i > 0) keyBuilder.append(',');
+    			appendKeyValue(keyBuilder, elements.get(i));
+    		}
+    		keyBuilder.append(']');
+    		return;
+    	}
+    	keyBuilder.append(value.getClass().getName()).append(':');
+    	if (value instanceof Timestamp) {
+    		keyBuilder.append(((Timestamp) value).getTime()).append('.').append(((Timestamp) value).getNanos());
+    	} else if (value instanceof Date) {
+    		keyBuilder.append(((Date) value).getTime());
+    	} else if (value instanceof Calendar) {
+    		keyBuilder.append(((Calendar) value).getTimeInMillis()).append('@').append(((Calendar) value).getTimeZone().getID());
+    	} else if (value instanceof Enum) {
+    		keyBuilder.append(((Enum<?>) value).name());
+    	} else if (value instanceof CharSequence) {
+    		keyBuilder.append('\'').append(value.toString().replace("'", "''")).append('\'');
+    	} else {
+    		keyBuilder.append(value);
+    	}
+    }
 }
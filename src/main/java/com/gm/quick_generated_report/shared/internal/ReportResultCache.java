@@ -0,0 +1,243 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportResultCache.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Questa classe rappresenta la cache dei file generati dai report con query, da impostare sul `ReportBuilder` con `setReportResultCache`.<br><br>
+ * La chiave di un file è composta dalla classe del report, dal nome del report, dalle condizioni normalizzate (ordinate, così che lo stesso insieme di
+ * condizioni aggiunte in ordine diverso produca la stessa chiave), dagli ordinamenti `ReportQueryOrder` e dal formato del file.<br>
+ * Ogni file resta valido per il tempo di vita specificato; oltre il limite di memoria vengono rimossi i file usati meno di recente.
+ * I file più grandi della soglia impostata con `spillToDisk` vengono mantenuti su disco invece che in memoria, con un proprio limite di occupazione.<br><br>
+ * I report statici, generati da una lista di righe, non vengono memorizzati nella cache.
+ *
+ * @see ReportBuilder
+ * @see ReportGeneratorBuilder
+ */
+public class ReportResultCache {
+
+	private final long maxHeapBytes;
+	private final long ttlMillis;
+	private long diskThresholdBytes = Long.MAX_VALUE;
+	private long maxDiskBytes;
+	private Path diskDirectory;
+
+	// ordine di accesso: il primo elemento è quello usato meno di recente
+	private final LinkedHashMap<String, ReportResultEntry> reportResults = new LinkedHashMap<>(16, 0.75f, true);
+	private long heapBytes;
+	private long diskBytes;
+
+	/**
+     * Costruttore privato che inizializza la cache.
+     *
+     * @param maxHeapBytes La dimensione massima in byte dei file mantenuti in memoria.
+     * @param ttlMillis    Il tempo di vita di un file in millisecondi.
+     */
+	private ReportResultCache(long maxHeapBytes, long ttlMillis) {
+		this.maxHeapBytes = maxHeapBytes;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+     * Crea una cache con il limite di memoria e il tempo di vita specificati, senza memorizzazione su disco.
+     *
+     * @param maxHeapBytes La dimensione massima in byte dei file mantenuti in memoria.
+     * @param timeToLive   Il tempo di vita di un file dalla sua generazione.
+     * @return Una nuova cache vuota.
+     * @throws ReportException Se il limite di memoria o il tempo di vita non sono positivi.
+     */
+	public static ReportResultCache define(long maxHeapBytes, Duration timeToLive) throws ReportException {
+		if (maxHeapBytes <= 0)
+			throw new ReportException("Limite di memoria della cache non valido: " + maxHeapBytes + ".");
+		if (timeToLive == null || timeToLive.isNegative() || timeToLive.isZero())
+			throw new ReportException("Tempo di vita della cache non valido: " + timeToLive + ".");
+		return new ReportResultCache(maxHeapBytes, timeToLive.toMillis());
+	}
+
+	/**
+     * Abilita la memorizzazione su disco dei file più grandi della soglia specificata, che non occupano così la memoria della JVM.
+     *
+     * @param diskThresholdBytes La dimensione in byte oltre la quale un file viene mantenuto su disco.
+     * @param maxDiskBytes       La dimensione massima in byte dei file mantenuti su disco.
+     * @param diskDirectory      La cartella dei file su disco, creata se non esiste (se nulla, viene utilizzata `report/result_cache`).
+     * @return L'istanza corrente di `ReportResultCache`.
+     * @throws ReportException Se i limiti non sono positivi o se la cartella non può essere creata.
+     */
+	public synchronized ReportResultCache spillToDisk(long diskThresholdBytes, long maxDiskBytes, Path diskDirectory) throws ReportException {
+		if (diskThresholdBytes <= 0 || maxDiskBytes <= 0)
+			throw new ReportException("Limiti su disco della cache non validi: soglia " + diskThresholdBytes + ", massimo " + maxDiskBytes + ".");
+		Path directory = diskDirectory != null ? diskDirectory : Paths.get("report", "result_cache");
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new ReportException("Impossibile creare la cartella della cache: " + directory + ".", e);
+		}
+		this.diskThresholdBytes = diskThresholdBytes;
+		this.maxDiskBytes = maxDiskBytes;
+		this.diskDirectory = directory;
+		return this;
+	}
+
+	/**
+     * Rimuove dalla cache tutti i file dei report della classe specificata, ad esempio dopo una modifica dei dati dell'entità.
+     *
+     * @param reportClassType Il tipo di classe del report.
+     */
+	public synchronized void invalidate(Class<?> reportClassType) {
+		String keyPrefix = reportClassType.getName() + '|';
+		Iterator<Map.Entry<String, ReportResultEntry>> iterator = reportResults.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, ReportResultEntry> reportResult = iterator.next();
+			if (reportResult.getKey().startsWith(keyPrefix)) {
+				iterator.remove();
+				release(reportResult.getValue());
+			}
+		}
+	}
+
+	/**
+     * Rimuove dalla cache tutti i file.
+     */
+	public synchronized void invalidateAll() {
+		for (ReportResultEntry reportResult : reportResults.values()) {
+			release(reportResult);
+		}
+		reportResults.clear();
+	}
+
+	/**
+     * Restituisce il file memorizzato con la chiave specificata, se presente e non scaduto.
+     *
+     * @param key La chiave del file.
+     * @return Il contenuto del file, oppure `null` se non presente o scaduto.
+     */
+	protected byte[] get(String key) {
+		ReportResultEntry reportResult;
+		synchronized (this) {
+			reportResult = reportResults.get(key);
+			if (reportResult == null) {
+				return null;
+			}
+			if (reportResult.expiresAt <= System.currentTimeMillis()) {
+				reportResults.remove(key);
+				release(reportResult);
+				return null;
+			}
+		}
+		if (reportResult.data != null) {
+			return reportResult.data;
+		}
+		try {
+			return Files.readAllBytes(reportResult.file);
+		} catch (NoSuchFileException e) {
+			// rimosso nel frattempo da un'altra richiesta
+			return null;
+		} catch (IOException e) {
+			synchronized (this) {
+				if (reportResults.remove(key, reportResult)) release(reportResult);
+			}
+			return null;
+		}
+	}
+
+	/**
+     * Memorizza il file con la chiave specificata, rimuovendo i file usati meno di recente se viene superato il limite di memoria o di disco.<br>
+     * I file più grandi del limite non vengono memorizzati.
+     *
+     * @param key  La chiave del file.
+     * @param data Il contenuto del file.
+     */
+	protected void put(String key, byte[] data) {
+		long expiresAt = System.currentTimeMillis() + ttlMillis;
+		Path directory;
+		synchronized (this) {
+			directory = data.length > diskThresholdBytes ? diskDirectory : null;
+		}
+		ReportResultEntry reportResult;
+		if (directory == null) {
+			if (data.length > maxHeapBytes) return;
+			reportResult = new ReportResultEntry(data, null, data.length, expiresAt);
+		} else {
+			if (data.length > maxDiskBytes) return;
+			try {
+				Path file = Files.createTempFile(directory, "report-result-", ".bin");
+				Files.write(file, data);
+				reportResult = new ReportResultEntry(null, file, data.length, expiresAt);
+			} catch (IOException e) {
+				return;
+			}
+		}
+		synchronized (this) {
+			ReportResultEntry previous = reportResults.put(key, reportResult);
+			if (previous != null) release(previous);
+			if (reportResult.data != null) heapBytes += reportResult.size; else diskBytes += reportResult.size;
+			evict();
+		}
+	}
+
+	/**
+     * Rimuove i file scaduti e poi quelli usati meno di recente finché l'occupazione di memoria e di disco rientra nei limiti.
+     */
+	private void evict() {
+		long now = System.currentTimeMillis();
+		Iterator<ReportResultEntry> iterator = reportResults.values().iterator();
+		while (iterator.hasNext() && (heapBytes > maxHeapBytes || diskBytes > maxDiskBytes)) {
+			ReportResultEntry reportResult = iterator.next();
+			boolean overBudget = reportResult.data != null ? heapBytes > maxHeapBytes : diskBytes > maxDiskBytes;
+			if (overBudget || reportResult.expiresAt <= now) {
+				iterator.remove();
+				release(reportResult);
+			}
+		}
+	}
+
+	/**
+     * Aggiorna l'occupazione della cache per un file rimosso ed elimina il file su disco associato.
+     *
+     * @param reportResult Il file rimosso dalla cache.
+     */
+	private void release(ReportResultEntry reportResult) {
+		if (reportResult.data != null) {
+			heapBytes -= reportResult.size;
+			return;
+		}
+		diskBytes -= reportResult.size;
+		try {
+			Files.deleteIfExists(reportResult.file);
+		} catch (IOException e) {
+			reportResult.file.toFile().deleteOnExit();
+		}
+	}
+
+	/**
+	 * Un file della cache, mantenuto in memoria (`data`) oppure su disco (`file`).
+	 */
+	private static class ReportResultEntry {
+
+		private final byte[] data;
+		private final Path file;
+		private final long size;
+		private final long expiresAt;
+
+		private ReportResultEntry(byte[] data, Path file, long size, long expiresAt) {
+			this.data = data;
+			this.file = file;
+			this.size = size;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
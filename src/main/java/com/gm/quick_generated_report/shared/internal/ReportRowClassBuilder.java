@@ -9,56 +9,57 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
 import net.bytebuddy.dynamic.DynamicType.Builder;
-import net.bytebuddy.implementation.FieldAccessor;
 import net.bytebuddy.implementation.Implementation;
 import net.bytebuddy.implementation.StubMethod;
 
 /**
  * Questa classe è responsabile della creazione di classi a runtime che rappresentano righe di fogli del Report. <br>
- * Utilizza la classe ReportRowClassSpec per definire i campi, i costruttori, i getter e i setter necessari per le classi generiche di riga del Report.
+ * Utilizza la classe ReportRowClassSpec per definire i campi, i costruttori, i getter e i setter necessari per le classi generiche di riga del Report.<br>
+ * Ogni istanza possiede il proprio builder, per cui la generazione di classi di riga differenti può avvenire in parallelo.
  * 
  * @see ReportRowClassGenerator
  */
 class ReportRowClassBuilder {
 
-	private static Builder<?> builder = null;
+	private Builder<?> builder;
 	private Implementation interceptor = StubMethod.INSTANCE;
 	private List<Class<?>> types = new ArrayList<>();
 	
 	private ReportRowClassBuilder(Builder<?> builder) {
-        ReportRowClassBuilder.builder = builder;
+        this.builder = builder;
     }
 	
 	protected static ReportRowClassBuilder defineBuilder(Builder<?> builder) {
 		return new ReportRowClassBuilder(builder);
     }
 	
-	protected ReportRowClassBuilder defineField(Field field, int fieldIndex) {
-    	ReportRowClassBuilder.builder = ReportRowClassSpec.defineField(ReportRowClassBuilder.builder, field, fieldIndex);
+	protected ReportRowClassBuilder defineField(Field field, int fieldIndex, String columnName) {
+    	builder = ReportRowClassSpec.defineField(builder, field, fieldIndex, columnName);
         return this;
     }
 
 	protected ReportRowClassBuilder defineGetter(Field field) {
-    	ReportRowClassBuilder.builder = ReportRowClassSpec.defineGetter(ReportRowClassBuilder.builder, field);
+    	builder = ReportRowClassSpec.defineGetter(builder, field);
         return this;
     }
 
 	protected ReportRowClassBuilder defineSetter(Field field) {
-    	ReportRowClassBuilder.builder = ReportRowClassSpec.defineSetter(ReportRowClassBuilder.builder, field);
+    	builder = ReportRowClassSpec.defineSetter(builder, field);
         return this;
     }
     
-	protected ReportRowClassBuilder defineConstructor() {
+	protected ReportRowClassBuilder defineConstructor() throws ReportException {
     	Class<?>[] argumentTypes = types.toArray(new Class<?>[types.size()]);
-    	ReportRowClassBuilder.builder = ReportRowClassSpec.defineConstructor(ReportRowClassBuilder.builder, interceptor, argumentTypes);
+    	builder = ReportRowClassSpec.defineConstructor(builder, interceptor, argumentTypes);
     	return this;
     }
 
-	protected ReportRowClassBuilder intercept(Field field, int fieldIndex) {
+	protected ReportRowClassBuilder intercept(Field field, int fieldIndex) throws ReportException {
     	types.add(field.getType());
-    	interceptor = FieldAccessor.ofField(field.getName())
-				.setsArgumentAt(fieldIndex)
+    	interceptor = ReportRowClassSpec.defineArgument(field, fieldIndex)
 				.andThen(interceptor);
     	return this;
     }
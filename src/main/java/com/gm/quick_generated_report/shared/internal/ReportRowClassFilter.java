@@ -8,6 +8,11 @@ package com.gm.quick_generated_report.shared.internal;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
@@ -15,33 +20,59 @@ import java.util.function.Predicate;
 
 /**
  * Questa classe fornisce i filtri utilizzati per filtrare i campi di una classe generata a runtime. <br>
- * I filtri consentono di specificare il tipo di dato dei campi, escludere il campo `serialVersionUID`, e filtrare i campi non statici.
+ * I filtri consentono di specificare il tipo di dato dei campi, escludere il campo `serialVersionUID`, e filtrare i campi non statici.<br>
+ * L'insieme dei tipi consentiti è costante e condiviso da tutti i predicati; i campi filtrati di ogni classe sono memorizzati in `ReportSchema`.
  * 
  * @see ReportRowClassGenerator
+ * @see ReportSchema
  */
 class ReportRowClassFilter {
 
+	private static final Set<Class<?>> ALLOWED_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			Long.class, Double.class, String.class, Integer.class, Boolean.class, BigDecimal.class, Date.class,
+			long.class, int.class, double.class, boolean.class,
+			LocalDate.class, LocalDateTime.class, Instant.class)));
+
     /**
      * Restituisce un predicato per filtrare i campi generati nella classe `RowSheet` che hanno i tipi di dati consentiti:<br>
-     * LONG, DOUBLE, STRING, INTEGER, BOOLEAN, BIGDECIMAL, DATE.
+     * LONG, DOUBLE, STRING, INTEGER, BOOLEAN, BIGDECIMAL, DATE, i primitivi long, int, double e boolean, LOCALDATE, LOCALDATETIME, INSTANT e le enumerazioni.
      *
      * @return Il predicato per il filtro dei tipi di dati consentiti.
      */
 	protected static Predicate<Field> filterFieldType() {
 		Predicate<Field> allowedTypesPredicate = field -> {
-            Set<Class<?>> allowedTypes = new HashSet<>();
-            allowedTypes.add(Long.class);
-            allowedTypes.add(Double.class);
-            allowedTypes.add(String.class);
-            allowedTypes.add(Integer.class);
-            allowedTypes.add(Boolean.class);
-            allowedTypes.add(BigDecimal.class);
-            allowedTypes.add(Date.class);
-            return allowedTypes.contains(field.getType());
+            return filterType().test(field.getType());
+        };
+        return allowedTypesPredicate;
+	}
+	
+    /**
+     * Restituisce un predicato per filtrare i tipi di dati consentiti nella classe `RowSheet`:<br>
+     * LONG, DOUBLE, STRING, INTEGER, BOOLEAN, BIGDECIMAL, DATE, i primitivi long, int, double e boolean, LOCALDATE, LOCALDATETIME, INSTANT e le enumerazioni.
+     *
+     * @return Il predicato per il filtro dei tipi di dati consentiti.
+     */
+	protected static Predicate<Class<?>> filterType() {
+		Predicate<Class<?>> allowedTypesPredicate = type -> {
+            return type != null && (ALLOWED_TYPES.contains(type) || type.isEnum());
         };
         return allowedTypesPredicate;
 	}
 	
+	/**
+     * Restituisce il tipo della colonna della classe `RowSheet` per il tipo di un campo della classe di input:
+     * le date `java.time` diventano `Date` e le enumerazioni `String`, mentre gli altri tipi, compresi i primitivi, vengono mantenuti.
+     *
+     * @param type Il tipo del campo della classe di input.
+     * @return Il tipo della colonna della classe generata.
+     * @see ReportRowValues
+     */
+	protected static Class<?> reportType(Class<?> type) {
+		if (type == LocalDate.class || type == LocalDateTime.class || type == Instant.class) return Date.class;
+		if (type.isEnum()) return String.class;
+		return type;
+	}
+	
 	/**
      * Restituisce un predicato per filtrare il campo `serialVersionUID` richiesto dall'interfaccia Serializable.
      *
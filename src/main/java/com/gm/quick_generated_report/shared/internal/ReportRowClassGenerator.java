@@ -6,11 +6,6 @@
 package com.gm.quick_generated_report.shared.internal;
 
 import java.lang.reflect.Field;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
 
 import bld.generator.report.excel.RowSheet;
 import net.bytebuddy.ByteBuddy;
@@ -21,7 +16,8 @@ import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
 /**
  * Questa classe è responsabile della generazione a runtime di una classe basata su un'input di classe specifico.<br><br>
  * La classe generata avrà campi filtrati in base ai criteri definiti da `ReportRowClassFilter`, insieme ai rispettivi metodi getter e setter, e un costruttore all-arguments.<br><br>
- * La classe generata sarà caricata sia nel ClassLoader `ReportClassLoader` che nel ClassLoader predefinito del contesto applicativo, e verrà infine salvata su file system.
+ * La classe generata sarà caricata sia nel ClassLoader `ReportClassLoader` che nel ClassLoader predefinito del contesto applicativo, e il suo bytecode verrà salvato in modo asincrono nella cache su file system `ReportClassCache`, da cui viene ricaricato alle successive esecuzioni.<br>
+ * Se la classe è stata pre-generata in fase di compilazione da `ReportClassProcessor`, viene utilizzata la classe presente nel classpath senza generarla a runtime.
  * 
  * @see ReportGeneratorBuilder
  */
@@ -40,11 +36,38 @@ class ReportRowClassGenerator {
 		// creazione del nome della classe generata con suffisso "ReportRow"
         String generatedClassName = inputClass.getSimpleName() + "ReportRow";
         
-        // restituisco la classe generata se è già stata inserita nel ClassLoader
+        // restituisco la classe generata se è già stata inserita nel ClassLoader, altrimenti viene generata una sola volta
         ReportClassLoader reportClassLoader = ReportClassLoader.newInstance(ReportRowClassGenerator.class.getClassLoader());
-        Class<?> rowClass = reportClassLoader.findClass(generatedClassName);
-        if (rowClass != null) {
-        	return (Class<? extends RowSheet>) rowClass;
+        String[] classSource = { ReportMetrics.CLASS_MEMORY };
+        Class<?> rowClass = reportClassLoader.defineIfAbsent(generatedClassName, () -> defineReportRowClass(inputClass, generatedClassName, classSource));
+        ReportMetrics.countClassCache(ReportMetrics.CLASS_ROW, classSource[0]);
+        return (Class<? extends RowSheet>) rowClass;
+	}
+	
+    /**
+     * Genera e carica la classe di riga di report con il nome specificato.
+     *
+     * @param inputClass         La classe di input da cui generare la classe di riga.
+     * @param generatedClassName Il nome della classe generata.
+     * @param classSource        L'origine della classe restituita, aggiornata per le metriche della cache delle classi.
+     * @return La classe generata che estende `RowSheet`.
+     * @throws Exception Se si verifica un errore durante la generazione.
+     */
+	private static Class<?> defineReportRowClass(Class<?> inputClass, String generatedClassName, String[] classSource) throws Exception {
+        
+        // utilizzo della classe pre-generata in fase di compilazione, se presente
+        Class<?> prebuiltClass = ReportUtil.findPrebuiltClass(generatedClassName, inputClass.getClassLoader(), RowSheet.class);
+        if (prebuiltClass != null) {
+        	classSource[0] = ReportMetrics.CLASS_PREBUILT;
+        	return prebuiltClass;
+        }
+        
+        // utilizzo del bytecode salvato nella cache su file system da una precedente esecuzione, se presente
+        String cacheKey = ReportClassCache.cacheKey(generatedClassName, inputClass);
+        Class<?> cachedClass = ReportClassCache.loadClass(cacheKey, generatedClassName, ReportRowClassGenerator.class.getClassLoader());
+        if (cachedClass != null) {
+        	classSource[0] = ReportMetrics.CLASS_DISK;
+        	return cachedClass;
         }
         
         // creazione del builder di generazione della classe, nel Loader per il caricamento della classe nel ClassLoader
@@ -54,18 +77,15 @@ class ReportRowClassGenerator {
             .implement(RowSheet.class);
         ReportRowClassBuilder reportRowClassBuilder = ReportRowClassBuilder.defineBuilder(builder);
 
-        // recupero e filtraggio dei soli campi permessi a partire da quelli della classe di input
-        Field[] fields = Arrays.stream(inputClass.getDeclaredFields())
-                .filter(ReportRowClassFilter.filterFieldSerialVersionUID())
-                .filter(ReportRowClassFilter.filterFieldType())
-                .filter(ReportRowClassFilter.filterFieldNoStatic())
-                .toArray(Field[]::new);
+        // recupero dei soli campi permessi dallo schema della classe di input, condiviso con le query e le copie delle righe
+        ReportSchema schema = ReportSchema.of(inputClass);
+        Field[] fields = schema.getFields();
         
         // crezione dei campi della classe generata
         for (int i = 0; i < fields.length; i++) {
             Field field = fields[i];
             builder = reportRowClassBuilder
-            		.defineField(field, i) // generazione del campo con tipo dinamico
+            		.defineField(field, i, schema.getColumnName(i)) // generazione del campo con tipo dinamico
             		.defineGetter(field)   // generazione metodo accessorio GETTER
             		.defineSetter(field)   // generazione metodo accessorio SETTER
             		.intercept(field, i)   // associazione del campo all'implementazione del costruttore
@@ -79,20 +99,14 @@ class ReportRowClassGenerator {
         
         // generazione di una nuova classe con gli stessi metodi della classe in input e che estenda RowSheet
 		Unloaded<?> classUnloaded = builder.make();
-		rowClass = classUnloaded
+		Class<?> rowClass = classUnloaded
 				.load(ReportRowClassGenerator.class.getClassLoader(), ClassLoadingStrategy.Default.INJECTION)
             	.getLoaded();
-		reportClassLoader.loadClass(generatedClassName);
         
-		// salvataggio su file system ReportRow.class per solo visualizzazione di test
-        String targetDirectory = "report";
-        String packageName = "generated_classes";
-        String className = generatedClassName;
-        Path packagePath = Paths.get(targetDirectory, packageName.split("\\."));
-        Files.createDirectories(packagePath);
-        Path filePath = packagePath.resolve(className + ".class");
-        Files.write(filePath, classUnloaded.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		// salvataggio asincrono del bytecode nella cache su file system
+        ReportClassCache.store(cacheKey, generatedClassName, classUnloaded.getBytes());
+        classSource[0] = ReportMetrics.CLASS_GENERATED;
         
-        return (Class<? extends RowSheet>) rowClass;
+        return rowClass;
 	}
 }
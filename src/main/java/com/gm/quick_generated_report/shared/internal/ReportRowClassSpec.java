@@ -6,6 +6,7 @@
 package com.gm.quick_generated_report.shared.internal;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Date;
@@ -13,6 +14,8 @@ import java.util.List;
 
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
 import bld.generator.report.excel.annotation.ExcelCellLayout;
 import bld.generator.report.excel.annotation.ExcelColumn;
 import bld.generator.report.excel.annotation.ExcelDate;
@@ -22,10 +25,12 @@ import net.bytebuddy.description.modifier.Visibility;
 import net.bytebuddy.dynamic.DynamicType.Builder;
 import net.bytebuddy.implementation.FieldAccessor;
 import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.matcher.ElementMatchers;
 
 /**
  * Questa classe fornisce metodi di supporto per la generazione di classi a runtime che rappresentano righe di fogli del Report. <br>
- * Queste classi generiche includono campi primitivi (String, Number, Boolean e Date), metodi getter e setter per ciascun campo, e un
+ * Queste classi generiche includono campi primitivi (String, Number, Boolean e Date, con le date `java.time` convertite in Date e le enumerazioni in String), metodi getter e setter per ciascun campo, e un
  * costruttore all-arguments.<br><br>
  * 
  * Le sottoclassi possono utilizzare i metodi forniti da questa classe per definire i campi,
@@ -41,39 +46,64 @@ class ReportRowClassSpec {
      * @param builder    Il builder della classe generata.
      * @param field      Il campo da definire.
      * @param fieldIndex L'indice del campo.
+     * @param columnName Il nome della colonna del report, calcolato da `ReportSchema`.
      * @return Il builder aggiornato.
      */
-	protected static Builder<?> defineField(Builder<?> builder, Field field, int fieldIndex) {
+	protected static Builder<?> defineField(Builder<?> builder, Field field, int fieldIndex, String columnName) {
+		Class<?> reportType = ReportRowClassFilter.reportType(field.getType());
 		List<AnnotationDescription> fieldAnnotations = new ArrayList<>();
-		if (field.getType() == Date.class) {
+		if (reportType == Date.class) {
 			fieldAnnotations.add(AnnotationDescription.Builder.ofType(ExcelDate.class)
 					.define("format", ColumnDateFormat.YYYY_MM_DD)
 					.build());
 		}
 		fieldAnnotations.add(AnnotationDescription.Builder.ofType(ExcelColumn.class)
-				.define("columnName", ReportUtil.generateReportColumn(field.getName()))
+				.define("columnName", columnName)
 				.define("indexColumn", Double.valueOf(fieldIndex))
 				.build());
 		fieldAnnotations.add(AnnotationDescription.Builder.ofType(ExcelCellLayout.class)
 				.define("horizontalAlignment", HorizontalAlignment.CENTER)
 				.build());
 		
-		return builder.defineField(field.getName(), field.getType(), Modifier.PRIVATE)
+		return builder.defineField(field.getName(), reportType, Modifier.PRIVATE)
 				.annotateField(fieldAnnotations);
 	}
 
 	/**
-     * Definisce un costruttore nella classe generata a runtime.
+     * Definisce un costruttore nella classe generata a runtime, che invoca il costruttore di `Object` prima delle assegnazioni dei campi.
      *
      * @param builder        Il builder della classe generata.
      * @param interceptor    L'interceptor per il costruttore.
      * @param argumentTypes  I tipi di argomenti per il costruttore.
      * @return Il builder aggiornato.
+     * @throws ReportException Se il costruttore di `Object` non è accessibile.
+     */
+	protected static Builder<?> defineConstructor(Builder<?> builder, Implementation interceptor, Class<?>[] argumentTypes) throws ReportException {
+		try {
+			return builder.defineConstructor(Visibility.PUBLIC)
+	                .withParameters(argumentTypes)
+	                .intercept(MethodCall.invoke(Object.class.getConstructor()).andThen(interceptor));
+		} catch (NoSuchMethodException e) {
+			throw new ReportException(e);
+		}
+	}
+
+	/**
+     * Definisce l'assegnazione di un argomento del costruttore al campo della classe generata a runtime.<br>
+     * Gli argomenti hanno il tipo dei campi della classe di input, così che il costruttore possa essere usato nelle query JPQL con `SELECT new`;
+     * i valori dei tipi convertiti (`java.time` ed enumerazioni) vengono assegnati attraverso il metodo di conversione di `ReportRowValues`.
+     *
+     * @param field      Il campo della classe di input.
+     * @param fieldIndex L'indice dell'argomento del costruttore.
+     * @return L'assegnazione dell'argomento al campo.
+     * @throws ReportException Se il metodo di conversione non è accessibile.
      */
-	protected static Builder<?> defineConstructor(Builder<?> builder, Implementation interceptor, Class<?>[] argumentTypes) {
-		return builder.defineConstructor(Visibility.PUBLIC)
-                .withParameters(argumentTypes)
-                .intercept(interceptor);
+	protected static Implementation.Composable defineArgument(Field field, int fieldIndex) throws ReportException {
+		Method converter = ReportRowValues.converter(field.getType());
+		if (converter == null) {
+			return FieldAccessor.ofField(field.getName()).setsArgumentAt(fieldIndex);
+		}
+		return MethodCall.invoke(converter).withArgument(fieldIndex).setsField(ElementMatchers.named(field.getName()));
 	}
 
 	/**
@@ -86,7 +116,7 @@ class ReportRowClassSpec {
 	protected static Builder<?> defineSetter(Builder<?> builder, Field field) {
 		String setterName = "set" + field.getName().substring(0, 1).toUpperCase() + field.getName().substring(1);
 		return builder.defineMethod(setterName, Void.TYPE, Modifier.PUBLIC)
-				.withParameter(field.getType(), field.getName(), Modifier.FINAL)
+				.withParameter(ReportRowClassFilter.reportType(field.getType()), field.getName(), Modifier.FINAL)
 				.intercept(FieldAccessor.ofField(field.getName()));
 	}
 
@@ -99,7 +129,7 @@ class ReportRowClassSpec {
      */
 	protected static Builder<?> defineGetter(Builder<?> builder, Field field) {
 		String setterName = "get" + field.getName().substring(0, 1).toUpperCase() + field.getName().substring(1);
-		return builder.defineMethod(setterName, field.getType(), Modifier.PUBLIC)
+		return builder.defineMethod(setterName, ReportRowClassFilter.reportType(field.getType()), Modifier.PUBLIC)
 				.intercept(FieldAccessor.ofField(field.getName()));
 	}
 }
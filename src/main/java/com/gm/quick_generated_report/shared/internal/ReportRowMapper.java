@@ -0,0 +1,142 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportRowMapper.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.RowSheet;
+
+/**
+ * Questa classe è responsabile della copia dei valori da una riga della classe di input a una riga della classe generata `RowSheet`.<br><br>
+ * Per ogni coppia (classe di input, classe di riga generata) il mapper viene costruito una sola volta: i campi dei rispettivi `ReportSchema` vengono associati per nome e tipo
+ * e per ciascuna associazione viene composta una catena di `MethodHandle` getter/setter.<br>
+ * La copia di una riga non esegue quindi alcuna introspezione né allocazione di array, ma solo l'invocazione delle catene già risolte.<br>
+ * I campi primitivi vengono copiati senza boxing; le date `java.time` e le enumerazioni vengono convertite con i metodi di `ReportRowValues`.
+ *
+ * @see ReportUtil
+ */
+class ReportRowMapper {
+
+	private static final MethodType ROW_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType FIELD_COPIER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final ClassValue<ConcurrentMap<Class<?>, ReportRowMapper>> ROW_MAPPERS = new ClassValue<ConcurrentMap<Class<?>, ReportRowMapper>>() {
+		@Override
+		protected ConcurrentMap<Class<?>, ReportRowMapper> computeValue(Class<?> sourceClass) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private final Class<?> sourceClass;
+	private final MethodHandle rowConstructor;
+	private final MethodHandle[] fieldCopiers;
+
+	/**
+	 * Costruttore privato che risolve il costruttore della classe di riga e le catene di copia dei campi.
+	 *
+	 * @param sourceClass La classe delle righe di input.
+	 * @param rowClass    La classe di riga generata.
+	 * @throws ReportException Se i campi o il costruttore non sono accessibili.
+	 */
+	private ReportRowMapper(Class<?> sourceClass, Class<? extends RowSheet> rowClass) throws ReportException {
+		this.sourceClass = sourceClass;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Constructor<?> constructor = rowClass.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			this.rowConstructor = lookup.unreflectConstructor(constructor).asType(ROW_CONSTRUCTOR_TYPE);
+
+			ReportSchema sourceSchema = ReportSchema.of(sourceClass);
+			ReportSchema rowSchema = ReportSchema.of(rowClass);
+			List<MethodHandle> copiers = new ArrayList<>();
+			for (int i = 0; i < sourceSchema.getFieldCount(); i++) {
+				Field sourceField = sourceSchema.getField(i);
+				int rowIndex = rowSchema.indexOf(sourceField.getName());
+				if (rowIndex < 0) {
+					continue;
+				}
+				Field rowField = rowSchema.getField(rowIndex);
+				if (ReportRowClassFilter.reportType(sourceField.getType()).equals(rowField.getType())) {
+					// getter (sorgente) seguito dalla conversione del valore, per le date java.time e le enumerazioni
+					MethodHandle getter = sourceSchema.getGetter(i);
+					Method converter = ReportRowValues.converter(sourceField.getType());
+					if (converter != null) {
+						getter = MethodHandles.filterReturnValue(getter, lookup.unreflect(converter).asType(MethodType.methodType(rowField.getType(), sourceField.getType())));
+					}
+					// setter (riga, valore) con il valore calcolato dal getter (sorgente): (riga, sorgente)
+					MethodHandle copier = MethodHandles.filterArguments(lookup.unreflectSetter(rowField), 1, getter);
+					copiers.add(copier.asType(FIELD_COPIER_TYPE));
+				}
+			}
+			this.fieldCopiers = copiers.toArray(new MethodHandle[copiers.size()]);
+		} catch (ReflectiveOperationException | SecurityException e) {
+			throw new ReportException(e);
+		}
+	}
+
+	/**
+	 * Restituisce il mapper per la coppia di classi specificata, costruendolo alla prima richiesta.
+	 *
+	 * @param sourceClass La classe delle righe di input.
+	 * @param rowClass    La classe di riga generata.
+	 * @return Il mapper per la coppia di classi.
+	 * @throws ReportException Se il mapper non può essere costruito.
+	 */
+	protected static ReportRowMapper of(Class<?> sourceClass, Class<? extends RowSheet> rowClass) throws ReportException {
+		ConcurrentMap<Class<?>, ReportRowMapper> rowMappers = ROW_MAPPERS.get(sourceClass);
+		ReportRowMapper rowMapper = rowMappers.get(rowClass);
+		if (rowMapper == null) {
+			rowMapper = new ReportRowMapper(sourceClass, rowClass);
+			ReportRowMapper existingRowMapper = rowMappers.putIfAbsent(rowClass, rowMapper);
+			if (existingRowMapper != null) {
+				rowMapper = existingRowMapper;
+			}
+		}
+		return rowMapper;
+	}
+
+	/**
+	 * Verifica se il mapper è applicabile alla riga di input specificata.
+	 *
+	 * @param sourceRow La riga di input.
+	 * @return `true` se la classe della riga è quella per cui è stato costruito il mapper.
+	 */
+	protected boolean supports(Object sourceRow) {
+		return sourceRow.getClass() == sourceClass;
+	}
+
+	/**
+	 * Crea una nuova riga della classe generata copiando i valori dalla riga di input.
+	 *
+	 * @param <R>       Tipo classe riga generata del report.
+	 * @param sourceRow La riga di input.
+	 * @return La riga generata.
+	 * @throws ReportException Se si verifica un errore durante la copia.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <R extends RowSheet> R map(Object sourceRow) throws ReportException {
+		try {
+			Object generatedRow = (Object) rowConstructor.invokeExact();
+			for (MethodHandle fieldCopier : fieldCopiers) {
+				fieldCopier.invokeExact(generatedRow, sourceRow);
+			}
+			return (R) generatedRow;
+		} catch (Throwable e) {
+			throw new ReportException(e);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportRowValues.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Questa classe fornisce le conversioni dei valori dei campi della classe di input nei tipi delle colonne della classe di riga generata `RowSheet`:
+ * <ul>
+ * <li>`LocalDate`, `LocalDateTime` e `Instant` → `Date`, nel fuso orario di sistema, formattate con `ExcelDate`;</li>
+ * <li>enumerazioni → `String`, con il nome della costante.</li>
+ * </ul>
+ * I tipi primitivi (`int`, `long`, `double`, `boolean`) non richiedono conversioni e vengono mantenuti nella classe generata.<br>
+ * Le conversioni sono invocate dai costruttori delle classi generate a runtime o in compilazione, per cui la classe è pubblica; non fa parte dell'API dei report.
+ *
+ * @see ReportRowClassFilter
+ * @see ReportRowMapper
+ */
+public final class ReportRowValues {
+
+	private ReportRowValues() {}
+
+	/**
+     * @param value La data.
+     * @return La data all'inizio del giorno nel fuso orario di sistema, oppure `null`.
+     */
+	public static Date toDate(LocalDate value) {
+		return value != null ? Date.from(value.atStartOfDay(ZoneId.systemDefault()).toInstant()) : null;
+	}
+
+	/**
+     * @param value La data e ora.
+     * @return La data e ora nel fuso orario di sistema, oppure `null`.
+     */
+	public static Date toDate(LocalDateTime value) {
+		return value != null ? Date.from(value.atZone(ZoneId.systemDefault()).toInstant()) : null;
+	}
+
+	/**
+     * @param value L'istante.
+     * @return La data dell'istante, oppure `null`.
+     */
+	public static Date toDate(Instant value) {
+		return value != null ? Date.from(value) : null;
+	}
+
+	/**
+     * @param value La costante dell'enumerazione.
+     * @return Il nome della costante, oppure `null`.
+     */
+	public static String toText(Enum<?> value) {
+		return value != null ? value.name() : null;
+	}
+
+	/**
+     * Restituisce i millisecondi di un valore di tipo data della classe di input o della classe generata, senza creare un oggetto `Date` intermedio.
+     *
+     * @param value Il valore di tipo `Date`, `LocalDate`, `LocalDateTime` o `Instant`, non nullo.
+     * @return I millisecondi dall'epoca.
+     */
+	protected static long toEpochMillis(Object value) {
+		if (value instanceof Date) return ((Date) value).getTime();
+		if (value instanceof LocalDate) return ((LocalDate) value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		if (value instanceof LocalDateTime) return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		return ((Instant) value).toEpochMilli();
+	}
+
+	/**
+     * Riconverte il valore di una colonna della classe generata nel tipo del campo della classe di input, per le sole conversioni senza perdita di informazioni:
+     * `Date` → `LocalDate` (inizio del giorno nel fuso orario di sistema) e `String` → enumerazione.
+     *
+     * @param sourceType Il tipo del campo della classe di input, `LocalDate` o un'enumerazione.
+     * @param value      Il valore della colonna della classe generata, non nullo.
+     * @return Il valore nel tipo del campo della classe di input.
+     * @throws ReportException Se la conversione del tipo non è reversibile senza perdita di informazioni.
+     */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected static Object toSourceValue(Class<?> sourceType, Object value) throws ReportException {
+		if (sourceType == LocalDate.class) return ((Date) value).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+		if (sourceType.isEnum()) return Enum.valueOf((Class<? extends Enum>) sourceType, (String) value);
+		throw new ReportException("Il valore di tipo '" + sourceType.getName() + "' non può essere ricostruito senza perdita di informazioni dalla colonna del report.");
+	}
+
+	/**
+     * @param sourceType Il tipo del campo della classe di input.
+     * @return `true` se il valore della colonna della classe generata può essere riconvertito con `toSourceValue`.
+     */
+	protected static boolean isReversible(Class<?> sourceType) {
+		return sourceType == LocalDate.class || sourceType.isEnum();
+	}
+
+	/**
+     * Restituisce il metodo di conversione del tipo di un campo della classe di input nel tipo della colonna della classe generata.
+     *
+     * @param sourceType Il tipo del campo della classe di input.
+     * @return Il metodo di conversione, oppure `null` se il tipo viene mantenuto.
+     * @throws ReportException Se il metodo di conversione non è accessibile.
+     */
+	protected static Method converter(Class<?> sourceType) throws ReportException {
+		try {
+			if (sourceType == LocalDate.class || sourceType == LocalDateTime.class || sourceType == Instant.class)
+				return ReportRowValues.class.getMethod("toDate", sourceType);
+			if (sourceType.isEnum())
+				return ReportRowValues.class.getMethod("toText", Enum.class);
+			return null;
+		} catch (NoSuchMethodException e) {
+			throw new ReportException(e);
+		}
+	}
+}
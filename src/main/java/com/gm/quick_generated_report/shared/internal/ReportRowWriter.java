@@ -0,0 +1,56 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportRowWriter.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.IOException;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Interfaccia degli scrittori in streaming delle righe del report, implementata da `ReportCsvWriter` e `ReportArrowWriter`.<br>
+ * Le righe vengono scritte a blocchi `ReportColumnBatch`, nell'ordine di lettura, dopo l'intestazione e prima del completamento del file.
+ *
+ * @see ReportGeneratorBuilder
+ */
+interface ReportRowWriter extends AutoCloseable {
+
+	/**
+	 * Scrive l'intestazione del file.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	void writeHeader() throws IOException;
+
+	/**
+	 * Scrive le righe di un blocco del report. Il blocco può essere svuotato e riutilizzato dopo la scrittura.
+	 *
+	 * @param batch Il blocco di righe da scrivere.
+	 * @throws IOException     Se si verifica un errore di I/O durante la scrittura.
+	 * @throws ReportException Se un valore del blocco non è rappresentabile nel formato del file.
+	 */
+	void writeBatch(ReportColumnBatch batch) throws IOException, ReportException;
+
+	/**
+	 * Completa il file e svuota i buffer sullo stream di uscita, senza chiuderlo.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	void finish() throws IOException;
+
+	/**
+	 * @return Il numero di righe scritte, esclusa l'intestazione.
+	 */
+	long getRowCount();
+
+	/**
+	 * Rilascia le risorse dello scrittore, senza chiudere lo stream di uscita.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante il rilascio.
+	 */
+	@Override
+	default void close() throws IOException {
+	}
+}
@@ -0,0 +1,195 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportSchema.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.annotation.ExcelColumn;
+
+/**
+ * Questa classe descrive lo schema di una classe di input o di una classe di riga generata `RowSheet`, calcolato una sola volta per classe
+ * e condiviso dai generatori delle classi, dal costruttore delle query e dalle copie delle righe.<br><br>
+ * Lo schema contiene:
+ * <ul>
+ * <li>i campi ammessi da `ReportRowClassFilter`, nell'ordine di dichiarazione e già resi accessibili;</li>
+ * <li>i nomi delle colonne del report calcolati con `ReportUtil.generateReportColumn`;</li>
+ * <li>i `MethodHandle` getter dei campi;</li>
+ * <li>l'elenco delle colonne della SELECT (`item.campo, ...`);</li>
+ * <li>per le classi generate, i campi annotati con `ExcelColumn` nell'ordine delle colonne.</li>
+ * </ul>
+ * Gli schemi sono memorizzati con `ClassValue`, per cui vengono rilasciati insieme alla classe descritta; lo schema non viene mai modificato dopo la costruzione.
+ *
+ * @see ReportRowClassFilter
+ */
+class ReportSchema {
+
+	private static final ClassValue<ReportSchema> SCHEMAS = new ClassValue<ReportSchema>() {
+		@Override
+		protected ReportSchema computeValue(Class<?> schemaClass) {
+			return new ReportSchema(schemaClass);
+		}
+	};
+
+	private final Class<?> schemaClass;
+	private final Field[] fields;
+	private final String[] columnNames;
+	private final List<String> fieldNames;
+	private final Map<String, Integer> fieldIndexes;
+	private final String selectColumns;
+	private final Field[] columnFields;
+	private final MethodHandle[] getters;
+	private final RuntimeException accessError;
+
+	/**
+	 * Costruttore privato che esegue l'introspezione della classe.
+	 *
+	 * @param schemaClass La classe di input o la classe di riga generata.
+	 */
+	private ReportSchema(Class<?> schemaClass) {
+		this.schemaClass = schemaClass;
+		this.fields = Arrays.stream(schemaClass.getDeclaredFields())
+				.filter(ReportRowClassFilter.filterFieldSerialVersionUID())
+				.filter(ReportRowClassFilter.filterFieldType())
+				.filter(ReportRowClassFilter.filterFieldNoStatic())
+				.toArray(Field[]::new);
+		this.columnNames = new String[fields.length];
+		String[] names = new String[fields.length];
+		Map<String, Integer> indexes = new HashMap<>();
+		for (int i = 0; i < fields.length; i++) {
+			names[i] = fields[i].getName();
+			columnNames[i] = ReportUtil.generateReportColumn(names[i]);
+			indexes.put(names[i], i);
+		}
+		this.fieldNames = Collections.unmodifiableList(Arrays.asList(names));
+		this.fieldIndexes = Collections.unmodifiableMap(indexes);
+		this.selectColumns = ReportUtil.generateSQLColumns(fieldNames);
+		this.columnFields = Arrays.stream(schemaClass.getDeclaredFields())
+				.filter(field -> field.isAnnotationPresent(ExcelColumn.class))
+				.sorted(Comparator.comparingDouble(field -> field.getAnnotation(ExcelColumn.class).indexColumn()))
+				.toArray(Field[]::new);
+
+		// i getter vengono risolti subito: un errore di accesso viene conservato e segnalato solo a chi li richiede
+		MethodHandle[] resolvedGetters = new MethodHandle[fields.length];
+		RuntimeException error = null;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			for (Field columnField : columnFields) {
+				columnField.setAccessible(true);
+			}
+			for (int i = 0; i < fields.length; i++) {
+				fields[i].setAccessible(true);
+				resolvedGetters[i] = lookup.unreflectGetter(fields[i]);
+			}
+		} catch (IllegalAccessException e) {
+			error = new IllegalStateException(e);
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		this.getters = error == null ? resolvedGetters : null;
+		this.accessError = error;
+	}
+
+	/**
+	 * Restituisce lo schema della classe specificata, calcolandolo alla prima richiesta.
+	 *
+	 * @param schemaClass La classe di input o la classe di riga generata.
+	 * @return Lo schema della classe.
+	 */
+	protected static ReportSchema of(Class<?> schemaClass) {
+		return SCHEMAS.get(schemaClass);
+	}
+
+	/**
+	 * @return La classe descritta dallo schema.
+	 */
+	protected Class<?> getSchemaClass() {
+		return schemaClass;
+	}
+
+	/**
+	 * @return Il numero dei campi ammessi.
+	 */
+	protected int getFieldCount() {
+		return fields.length;
+	}
+
+	/**
+	 * @return Una copia dei campi ammessi, nell'ordine di dichiarazione.
+	 */
+	protected Field[] getFields() {
+		return fields.clone();
+	}
+
+	/**
+	 * @param index L'indice del campo.
+	 * @return Il campo ammesso con l'indice specificato.
+	 */
+	protected Field getField(int index) {
+		return fields[index];
+	}
+
+	/**
+	 * @param index L'indice del campo.
+	 * @return Il nome della colonna del report per il campo con l'indice specificato.
+	 */
+	protected String getColumnName(int index) {
+		return columnNames[index];
+	}
+
+	/**
+	 * @return I nomi dei campi ammessi, nell'ordine di dichiarazione (lista non modificabile).
+	 */
+	protected List<String> getFieldNames() {
+		return fieldNames;
+	}
+
+	/**
+	 * @param fieldName Il nome del campo.
+	 * @return L'indice del campo ammesso con il nome specificato, oppure -1 se non presente.
+	 */
+	protected int indexOf(String fieldName) {
+		Integer index = fieldIndexes.get(fieldName);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * @return L'elenco delle colonne della SELECT (`item.campo, ...`), nell'ordine del costruttore della classe di riga.
+	 */
+	protected String getSelectColumns() {
+		return selectColumns;
+	}
+
+	/**
+	 * @return Una copia dei campi annotati con `ExcelColumn`, nell'ordine delle colonne e già resi accessibili.
+	 */
+	protected Field[] getColumnFields() {
+		return columnFields.clone();
+	}
+
+	/**
+	 * Restituisce il getter del campo con l'indice specificato, con tipo `(classe)tipoCampo`.
+	 *
+	 * @param index L'indice del campo.
+	 * @return Il getter del campo.
+	 * @throws ReportException Se i campi della classe non sono accessibili.
+	 */
+	protected MethodHandle getGetter(int index) throws ReportException {
+		if (accessError != null) {
+			throw new ReportException(accessError);
+		}
+		return getters[index];
+	}
+}
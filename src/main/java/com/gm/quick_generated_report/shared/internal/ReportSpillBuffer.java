@@ -0,0 +1,369 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportSpillBuffer.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.RowSheet;
+
+/**
+ * Questa classe rappresenta la lista delle righe generate di un report statico con un limite di memoria, utilizzata dalla generazione XLSX
+ * quando è abilitata con `ReportGeneratorBuilder.spillToDisk`.<br><br>
+ * Le righe vengono create nella memoria della JVM finché la loro occupazione stimata resta entro il limite; le righe successive vengono raccolte
+ * in blocchi `ReportColumnBatch`, serializzate in forma binaria compatta su file temporanei e rilette con la mappatura in memoria dei file.<br>
+ * La lettura di una riga memorizzata su disco ricostruisce la riga della classe generata dal blocco che la contiene, mantenendo in memoria un solo blocco:
+ * le righe vengono così create una alla volta durante la scrittura del foglio e possono essere rilasciate subito dopo.<br>
+ * La lista può anche essere riempita riga per riga con `append`, ad esempio dalle partizioni della query di un report, che con un limite di memoria nullo
+ * scrivono tutte le righe su disco; i blocchi memorizzati possono essere riletti direttamente con `readSpilledBatch`.<br>
+ * I file temporanei vengono rimossi alla chiusura della lista.
+ *
+ * @param <R> Tipo classe riga generata del report.
+ * @see ReportGeneratorBuilder
+ */
+class ReportSpillBuffer<R extends RowSheet> extends AbstractList<R> implements AutoCloseable {
+
+	private static final long SEGMENT_BYTES = 256L * 1024 * 1024;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final MethodType ROW_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType VALUE_SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	// occupazione stimata di una riga generata: intestazione dell'oggetto e, per colonna, riferimento e valore
+	private static final int ROW_HEADER_BYTES = 16;
+	private static final int REFERENCE_BYTES = 4;
+	private static final int PRIMITIVE_BYTES = 8;
+	private static final int BOXED_BYTES = 16;
+	private static final int DATE_BYTES = 24;
+	private static final int DECIMAL_BYTES = 64;
+	private static final int STRING_BYTES = 72;
+
+	private final Class<R> rowClass;
+	private final long heapBudgetBytes;
+	private final long rowHeapBytes;
+	private final Path spillDirectory;
+	private final MethodHandle rowConstructor;
+	private final MethodHandle[] valueSetters;
+	private final List<R> heapRows = new ArrayList<>();
+	private final ReportColumnBatch writeBatch;
+	private final ReportColumnBatch readBatch;
+	private final int batchCapacity;
+
+	private final List<Path> segmentFiles = new ArrayList<>();
+	private final List<MappedByteBuffer> segmentBuffers = new ArrayList<>();
+	private long[] batchOffsets = new long[16];
+	private int[] batchSegments = new int[16];
+	private int batchCount = 0;
+	private int spilledRows = 0;
+	private int readBatchIndex = -1;
+	private DataOutputStream segmentOutput;
+	private ReportRowMapper rowMapper;
+
+	/**
+	 * Costruttore privato che risolve il costruttore e i setter della classe di riga.
+	 *
+	 * @param rowClass        La classe di riga generata.
+	 * @param columnFields    I campi della classe di riga nell'ordine delle colonne.
+	 * @param heapBudgetBytes L'occupazione massima stimata in byte delle righe create in memoria.
+	 * @param spillDirectory  La cartella dei file temporanei (se nulla, viene utilizzata la cartella temporanea di sistema).
+	 * @throws ReportException Se il costruttore o i campi non sono accessibili o se il tipo di una colonna non è supportato.
+	 */
+	private ReportSpillBuffer(Class<R> rowClass, Field[] columnFields, long heapBudgetBytes, Path spillDirectory) throws ReportException {
+		this.rowClass = rowClass;
+		this.heapBudgetBytes = heapBudgetBytes;
+		this.rowHeapBytes = estimateRowBytes(columnFields);
+		this.spillDirectory = spillDirectory;
+		this.batchCapacity = ReportColumnBatch.DEFAULT_CAPACITY;
+		this.writeBatch = ReportColumnBatch.define(columnFields, batchCapacity);
+		this.readBatch = writeBatch.copyDefinition();
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Constructor<R> constructor = rowClass.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			this.rowConstructor = lookup.unreflectConstructor(constructor).asType(ROW_CONSTRUCTOR_TYPE);
+			this.valueSetters = new MethodHandle[columnFields.length];
+			for (int i = 0; i < columnFields.length; i++) {
+				columnFields[i].setAccessible(true);
+				valueSetters[i] = lookup.unreflectSetter(columnFields[i]).asType(VALUE_SETTER_TYPE);
+			}
+		} catch (ReflectiveOperationException | SecurityException e) {
+			throw new ReportException(e);
+		}
+	}
+
+	/**
+	 * Crea la lista delle righe generate delle righe di input specificate, memorizzando su disco le righe oltre il limite di memoria.
+	 *
+	 * @param <R>             Tipo classe riga generata del report.
+	 * @param rowClass        La classe di riga generata.
+	 * @param originalRows    Le righe di input del report statico.
+	 * @param heapBudgetBytes L'occupazione massima stimata in byte delle righe create in memoria.
+	 * @param spillDirectory  La cartella dei file temporanei (se nulla, viene utilizzata la cartella temporanea di sistema).
+	 * @return La lista delle righe generate, da chiudere al termine della scrittura.
+	 * @throws ReportException Se le righe non possono essere convertite o scritte su disco.
+	 */
+	protected static <R extends RowSheet> ReportSpillBuffer<R> define(Class<R> rowClass, List<?> originalRows, long heapBudgetBytes, Path spillDirectory) throws ReportException {
+		ReportSpillBuffer<R> spillBuffer = create(rowClass, heapBudgetBytes, spillDirectory);
+		try {
+			for (Object originalRow : originalRows) {
+				spillBuffer.append(originalRow);
+			}
+			spillBuffer.finish();
+			return spillBuffer;
+		} catch (ReportException | RuntimeException e) {
+			spillBuffer.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Crea una lista vuota da riempire con `append` e da completare con `finish` prima della lettura, ad esempio con le righe lette dalla query
+	 * di una partizione. Con un limite di memoria nullo tutte le righe vengono memorizzate su disco.
+	 *
+	 * @param <R>             Tipo classe riga generata del report.
+	 * @param rowClass        La classe di riga generata.
+	 * @param heapBudgetBytes L'occupazione massima stimata in byte delle righe create in memoria.
+	 * @param spillDirectory  La cartella dei file temporanei (se nulla, viene utilizzata la cartella temporanea di sistema).
+	 * @return La lista vuota, da chiudere al termine della lettura.
+	 * @throws ReportException Se il costruttore o i campi della classe di riga non sono accessibili.
+	 */
+	protected static <R extends RowSheet> ReportSpillBuffer<R> create(Class<R> rowClass, long heapBudgetBytes, Path spillDirectory) throws ReportException {
+		return new ReportSpillBuffer<>(rowClass, ReportCsvWriter.resolveColumnFields(rowClass), heapBudgetBytes, spillDirectory);
+	}
+
+	/**
+	 * Aggiunge una riga alla lista: la riga viene creata in memoria finché la lista resta entro il limite di memoria e nessuna riga è stata
+	 * memorizzata su disco, altrimenti viene raccolta nel blocco corrente, scritto su disco a ogni riempimento.
+	 *
+	 * @param originalRow La riga di input o la riga della classe generata.
+	 * @throws ReportException Se la riga non può essere convertita o scritta su disco.
+	 */
+	protected void append(Object originalRow) throws ReportException {
+		try {
+			if (batchCount == 0 && writeBatch.size() == 0 && hasHeapRoom()) {
+				if (rowMapper == null || !rowMapper.supports(originalRow)) {
+					rowMapper = ReportRowMapper.of(originalRow.getClass(), rowClass);
+				}
+				heapRows.add(rowMapper.<R>map(originalRow));
+			} else if (writeBatch.add(originalRow)) {
+				spillBatch();
+			}
+		} catch (IOException e) {
+			throw new ReportException("Impossibile scrivere le righe del report su disco.", e);
+		}
+	}
+
+	/**
+	 * Scrive su disco l'ultimo blocco e mappa in memoria i file temporanei: dopo la chiamata la lista può essere letta.
+	 *
+	 * @throws ReportException Se le righe non possono essere scritte su disco.
+	 */
+	protected void finish() throws ReportException {
+		try {
+			spillBatch();
+			mapSegments();
+		} catch (IOException e) {
+			throw new ReportException("Impossibile scrivere le righe del report su disco.", e);
+		}
+	}
+
+	/**
+	 * @return Il numero dei blocchi di righe memorizzati su disco.
+	 */
+	protected int getSpilledBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * Legge un blocco di righe memorizzato su disco senza ricostruire le righe della classe generata, ad esempio per scriverlo direttamente in un file Arrow.<br>
+	 * Il blocco restituito è condiviso e resta valido fino alla lettura successiva.
+	 *
+	 * @param batchIndex L'indice del blocco, tra 0 e `getSpilledBatchCount() - 1`.
+	 * @return Il blocco di righe letto.
+	 */
+	protected ReportColumnBatch readSpilledBatch(int batchIndex) {
+		loadBatch(batchIndex);
+		return readBatch;
+	}
+
+	@Override
+	public R get(int index) {
+		if (index < heapRows.size()) {
+			return heapRows.get(index);
+		}
+		int spilledIndex = index - heapRows.size();
+		if (spilledIndex < 0 || spilledIndex >= spilledRows)
+			throw new IndexOutOfBoundsException("Indice: " + index + ", righe: " + size());
+		loadBatch(spilledIndex / batchCapacity);
+		return createRow(spilledIndex % batchCapacity);
+	}
+
+	/**
+	 * Carica nel blocco di lettura il blocco memorizzato su disco con l'indice specificato, se non già caricato.
+	 *
+	 * @param batchIndex L'indice del blocco.
+	 */
+	private void loadBatch(int batchIndex) {
+		if (batchIndex != readBatchIndex) {
+			ByteBuffer segmentBuffer = segmentBuffers.get(batchSegments[batchIndex]).duplicate();
+			segmentBuffer.position((int) batchOffsets[batchIndex]);
+			readBatch.readFrom(segmentBuffer);
+			readBatchIndex = batchIndex;
+		}
+	}
+
+	@Override
+	public int size() {
+		return heapRows.size() + spilledRows;
+	}
+
+	/**
+	 * @return Il numero di righe memorizzate su disco.
+	 */
+	protected int getSpilledRows() {
+		return spilledRows;
+	}
+
+	/**
+	 * Rimuove i file temporanei e rilascia le righe in memoria.
+	 */
+	@Override
+	public void close() {
+		if (segmentOutput != null) {
+			try {
+				segmentOutput.close();
+			} catch (IOException e) {
+				// il file viene comunque rimosso
+			}
+			segmentOutput = null;
+		}
+		segmentBuffers.clear();
+		heapRows.clear();
+		for (Path segmentFile : segmentFiles) {
+			try {
+				Files.deleteIfExists(segmentFile);
+			} catch (IOException e) {
+				// file ancora mappato su alcuni sistemi operativi: viene rimosso all'uscita della JVM
+				segmentFile.toFile().deleteOnExit();
+			}
+		}
+		segmentFiles.clear();
+	}
+
+	/**
+	 * @return `true` se una nuova riga in memoria resta entro il limite di memoria.
+	 */
+	private boolean hasHeapRoom() {
+		return (heapRows.size() + 1) * rowHeapBytes <= heapBudgetBytes;
+	}
+
+	/**
+	 * Serializza il blocco corrente nel file temporaneo, iniziando un nuovo file quando quello corrente supera `SEGMENT_BYTES`, e lo svuota.
+	 *
+	 * @throws IOException Se si verifica un errore di I/O durante la scrittura.
+	 */
+	private void spillBatch() throws IOException {
+		if (writeBatch.size() == 0) {
+			return;
+		}
+		if (segmentOutput == null || segmentOutput.size() >= SEGMENT_BYTES) {
+			if (segmentOutput != null) segmentOutput.close();
+			Path segmentFile = spillDirectory != null
+					? Files.createTempFile(spillDirectory, "report-spill-", ".bin")
+					: Files.createTempFile("report-spill-", ".bin");
+			segmentFiles.add(segmentFile);
+			segmentOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segmentFile), BUFFER_SIZE));
+		}
+		if (batchCount == batchOffsets.length) {
+			batchOffsets = Arrays.copyOf(batchOffsets, batchCount * 2);
+			batchSegments = Arrays.copyOf(batchSegments, batchCount * 2);
+		}
+		batchOffsets[batchCount] = segmentOutput.size();
+		batchSegments[batchCount] = segmentFiles.size() - 1;
+		batchCount++;
+		spilledRows += writeBatch.size();
+		writeBatch.writeTo(segmentOutput);
+		writeBatch.clear();
+	}
+
+	/**
+	 * Chiude il file temporaneo corrente e mappa in memoria in sola lettura tutti i file scritti.
+	 *
+	 * @throws IOException Se i file non possono essere mappati.
+	 */
+	private void mapSegments() throws IOException {
+		if (segmentOutput != null) {
+			segmentOutput.close();
+			segmentOutput = null;
+		}
+		for (Path segmentFile : segmentFiles) {
+			try (FileChannel segmentChannel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+				segmentBuffers.add(segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size()));
+			}
+		}
+	}
+
+	/**
+	 * Crea una riga della classe generata con i valori della riga specificata del blocco letto.
+	 *
+	 * @param row L'indice della riga nel blocco letto.
+	 * @return La riga generata.
+	 */
+	@SuppressWarnings("unchecked")
+	private R createRow(int row) {
+		try {
+			Object generatedRow = (Object) rowConstructor.invokeExact();
+			for (int column = 0; column < valueSetters.length; column++) {
+				valueSetters[column].invokeExact(generatedRow, readBatch.getValue(column, row));
+			}
+			return (R) generatedRow;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Impossibile ricostruire la riga del report memorizzata su disco.", e);
+		}
+	}
+
+	/**
+	 * Stima l'occupazione in memoria di una riga generata in base ai tipi delle colonne.
+	 *
+	 * @param columnFields I campi della classe di riga.
+	 * @return L'occupazione stimata in byte.
+	 */
+	private static long estimateRowBytes(Field[] columnFields) {
+		long rowBytes = ROW_HEADER_BYTES;
+		for (Field columnField : columnFields) {
+			Class<?> type = columnField.getType();
+			if (type.isPrimitive()) {
+				rowBytes += PRIMITIVE_BYTES;
+				continue;
+			}
+			rowBytes += REFERENCE_BYTES;
+			if (type == String.class) rowBytes += STRING_BYTES;
+			else if (type == BigDecimal.class) rowBytes += DECIMAL_BYTES;
+			else if (type == Date.class) rowBytes += DATE_BYTES;
+			else rowBytes += BOXED_BYTES;
+		}
+		return rowBytes;
+	}
+}
@@ -5,21 +5,10 @@
 */
 package com.gm.quick_generated_report.shared.internal;
 
-import java.io.IOException;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.Proxy;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
 
 import com.gm.quick_generated_report.shared.exception.ReportException;
 
@@ -61,19 +50,54 @@ class ReportUtil {
      * @return La query SQL generata.
      */
 	protected static <T extends RowSheet> String generateSQLQuery(Class<T> rowClass, String tableName, String whereCondition, String orderBy) {
-    	// generazione delle colonne per SELECT
+        return buildSQLQuery(rowClass.getName(), ReportSchema.of(rowClass).getSelectColumns(), tableName, whereCondition, orderBy);
+    }
+	
+    /**
+     * Genera una query SQL per il recupero dei dati da una tabella del database a partire dal nome della classe di riga e dai nomi delle sue colonne.
+     *
+     * @param rowClassName    Il nome completo della classe che rappresenta una riga nella tabella.
+     * @param columnNames     I nomi dei campi della classe di riga, nell'ordine del costruttore.
+     * @param tableName       Il nome della tabella del database.
+     * @param whereCondition  La condizione WHERE per la query (può essere nullo o vuoto).
+     * @param orderBy  		  La clausola ORDER BY per la query SQL per ordinare i dati..
+     * @return La query SQL generata.
+     */
+	protected static String generateSQLQuery(String rowClassName, List<String> columnNames, String tableName, String whereCondition, String orderBy) {
+        return buildSQLQuery(rowClassName, generateSQLColumns(columnNames), tableName, whereCondition, orderBy);
+    }
+
+    /**
+     * Genera l'elenco delle colonne della SELECT con l'alias `item`.<br>
+     * Esempio: columnNames: ["codice", "partitaIva"] in "item.codice, item.partitaIva"
+     *
+     * @param columnNames I nomi dei campi della classe di riga, nell'ordine del costruttore.
+     * @return L'elenco delle colonne separate da virgola.
+     */
+	protected static String generateSQLColumns(List<String> columnNames) {
     	StringBuilder columnsBuilder = new StringBuilder();
-        Field[] fields = rowClass.getDeclaredFields();
-        for (Field field : fields) {
+        for (String columnName : columnNames) {
             if (columnsBuilder.length() > 0) {
             	columnsBuilder.append(", ");
             }
-            columnsBuilder.append("item.").append(field.getName());
+            columnsBuilder.append("item.").append(columnName);
         }
-        String tableColumns = columnsBuilder.toString();
-    	// generazione della query
+        return columnsBuilder.toString();
+    }
+
+    /**
+     * Compone la query SQL a partire dall'elenco delle colonne della SELECT già generato.
+     *
+     * @param rowClassName    Il nome completo della classe che rappresenta una riga nella tabella.
+     * @param tableColumns    L'elenco delle colonne della SELECT.
+     * @param tableName       Il nome della tabella del database.
+     * @param whereCondition  La condizione WHERE per la query (può essere nullo o vuoto).
+     * @param orderBy  		  La clausola ORDER BY per la query SQL per ordinare i dati..
+     * @return La query SQL generata.
+     */
+	private static String buildSQLQuery(String rowClassName, String tableColumns, String tableName, String whereCondition, String orderBy) {
         StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append(" SELECT new " + rowClass.getName() + "( " +  tableColumns +  " ) ");
+        queryBuilder.append(" SELECT new " + rowClassName + "( " +  tableColumns +  " ) ");
         queryBuilder.append(" FROM " + tableName + " item ");
         if (!StringUtils.isBlank(whereCondition)) queryBuilder.append(" WHERE " + whereCondition);
         if (!StringUtils.isBlank(orderBy)) queryBuilder.append(" ORDER BY " + orderBy);
@@ -81,6 +105,23 @@ class ReportUtil {
         return queryBuilder.toString();
     }
 	
+    /**
+     * Cerca una classe generata in fase di compilazione da `ReportClassProcessor` con il nome specificato.
+     *
+     * @param className     Il nome della classe generata.
+     * @param classLoader   Il ClassLoader in cui cercare la classe.
+     * @param expectedType  Il tipo che la classe generata deve estendere o implementare.
+     * @return La classe pre-generata, o `null` se non presente nel classpath.
+     */
+	protected static Class<?> findPrebuiltClass(String className, ClassLoader classLoader, Class<?> expectedType) {
+		try {
+			Class<?> prebuiltClass = Class.forName(className, true, classLoader);
+			return expectedType.isAssignableFrom(prebuiltClass) ? prebuiltClass : null;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+	}
+	
 	/**
      * Genera una lista di righe del report a partire dai dati in ingresso
      *
@@ -90,16 +131,20 @@ class ReportUtil {
 	 * @throws ReportException 
      */
 	protected static <R extends RowSheet, S> List<R> generateRows(Class<R> generatedRowClass, List<S> originalRows) throws ReportException {
-		List<R> generatedRows = new ArrayList<R>();
+		List<R> generatedRows = new ArrayList<R>(originalRows.size());
+		ReportRowMapper rowMapper = null;
 		for (S originalRow : originalRows) {
-			R generatedRow = createGeneratedRow(generatedRowClass, originalRow);
+			if (rowMapper == null || !rowMapper.supports(originalRow)) {
+				rowMapper = ReportRowMapper.of(originalRow.getClass(), generatedRowClass);
+			}
+			R generatedRow = rowMapper.map(originalRow);
 			generatedRows.add(generatedRow);
 		}
 		return generatedRows;
 	}
 	
 	/**
-	 * Converte la riga della classe di input in una riga del report.
+	 * Converte la riga della classe di input in una riga del report tramite il `ReportRowMapper` della coppia di classi.
 	 * 
 	 * @param <R>                   Tipo classe riga generata del report.
 	 * @param <S>                   Tipo classe riga originale.
@@ -108,109 +153,7 @@ class ReportUtil {
 	 * @return                      Oggetto della riga generata a partire dalla riga originale.
 	 * @throws ReportException      Eccezione che indica un errore durante la conversione.
 	 */
-    private static <R extends RowSheet, S> R createGeneratedRow(Class<R> generatedRowClass, S originalRow) throws ReportException {
-        try {
-            R generatedRow = generatedRowClass.getDeclaredConstructor().newInstance();
-            Field[] generatedRowFields = generatedRowClass.getDeclaredFields();
-            Field[] originalRowFields = Arrays.stream(originalRow.getClass().getDeclaredFields())
-                    .filter(ReportRowClassFilter.filterFieldSerialVersionUID())
-                    .filter(ReportRowClassFilter.filterFieldType())
-                    .filter(ReportRowClassFilter.filterFieldNoStatic())
-                    .toArray(Field[]::new);
-            for (Field originalRowField : originalRowFields) {
-                originalRowField.setAccessible(true);
-                for (Field generatedRowField : generatedRowFields) {
-                    generatedRowField.setAccessible(true);
-                    if (!StringUtils.isBlank(originalRowField.getName()) && originalRowField.getName().equals(generatedRowField.getName()) && originalRowField.getType().equals(generatedRowField.getType())) {
-                        Object value = originalRowField.get(originalRow);
-                        generatedRowField.set(generatedRow, value);
-                        break;
-                    }
-                }
-            }
-            return generatedRow;
-        } catch (Exception e) {
-            throw new ReportException(e);
-        }
-    }
-    
-   /**
-     * Modifica il valore di una specifica chiave di annotazione.
-     *
-     * @param annotation L'annotazione il cui valore deve essere modificato.
-     * @param key        La chiave dell'annotazione il cui valore deve essere cambiato.
-     * @param newValue   Il nuovo valore per la chiave dell'annotazione.
-     */
-    @SuppressWarnings("unchecked")
-	protected static void changeAnnotationValue(Annotation annotation, String key, Object newValue){
-        Object handler = Proxy.getInvocationHandler(annotation);
-        Field field;
-        try {
-        	field = handler.getClass().getDeclaredField("memberValues");
-        } catch (NoSuchFieldException | SecurityException e) {
-            throw new IllegalStateException(e);
-        }
-        field.setAccessible(true);
-        Map<String, Object> memberValues;
-        try {
-            memberValues = (Map<String, Object>) field.get(handler);
-        } catch (IllegalArgumentException | IllegalAccessException e) {
-            throw new IllegalStateException(e);
-        }
-        memberValues.put(key,newValue);
-    }
-    
-    /**
-     * Converte un foglio XLSX nel formato CSV.
-     *
-     * @param sheet     Il foglio XLSX da convertire.
-     * @param sheetName Il nome del foglio.
-     * @return I dati CSV come array di byte.
-     * @throws IOException Se si verifica un errore di I/O durante la conversione.
-     */
-	protected static byte[] convertXlsxToCSV(Sheet sheet, String sheetName) throws IOException {
-        StringBuilder data = new StringBuilder();
-        Iterator<Row> rowIterator = sheet.iterator();
-        while (rowIterator.hasNext()) {
-            Row row = rowIterator.next();
-            Iterator<Cell> cellIterator = row.cellIterator();
-            while (cellIterator.hasNext()) {
-                Cell cell = cellIterator.next();
-                CellType type = cell.getCellType();
-                appendCellValue(data, cell, type);
-                if (cell.getColumnIndex() != row.getLastCellNum() - 1) {
-                    data.append(",");
-                }
-            }
-            data.append('\n');
-        }
-        return data.toString().getBytes();
-    }
-    
-    /**
-     * Appende il valore di una cella al StringBuilder in base al tipo di cella.
-     *
-     * @param data Il StringBuilder in cui appendere il valore della cella.
-     * @param cell La cella di cui ottenere il valore.
-     * @param type Il tipo di cella (BOOLEAN, NUMERIC, STRING, o altro).
-     */
-    private static void appendCellValue(StringBuilder data, Cell cell, CellType type) {
-        switch (type) {
-            case BOOLEAN:
-                data.append(cell.getBooleanCellValue());
-                break;
-            case NUMERIC:
-                data.append(cell.getNumericCellValue());
-                break;
-            case STRING:
-                String cellValue = cell.getStringCellValue();
-                if (!cellValue.isEmpty()) {
-                    cellValue = cellValue.replaceAll("\"", "\"\"");
-                    data.append("\"").append(cellValue).append("\"");
-                }
-                break;
-            default:
-                data.append(cell);
-        }
+    protected static <R extends RowSheet, S> R createGeneratedRow(Class<R> generatedRowClass, S originalRow) throws ReportException {
+        return ReportRowMapper.of(originalRow.getClass(), generatedRowClass).map(originalRow);
     }
 }
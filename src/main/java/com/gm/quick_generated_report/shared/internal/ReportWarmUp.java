@@ -0,0 +1,103 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportWarmUp.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import javax.persistence.Entity;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.RowSheet;
+
+/**
+ * Questa classe è responsabile della pre-generazione delle classi dei report, in modo che la prima richiesta di ogni report non paghi il costo
+ * della generazione a runtime.<br>
+ * Le classi di riga e di foglio vengono generate in parallelo su un `ForkJoinPool`, sfruttando il registro concorrente di `ReportClassLoader`.
+ *
+ * @see ReportBuilder
+ */
+class ReportWarmUp {
+
+	private ReportWarmUp() {}
+
+	/**
+     * Cerca le classi annotate con `@Entity` nel package specificato e nei suoi sotto-package.
+     *
+     * @param basePackage Il package da scansionare.
+     * @return La lista delle classi trovate.
+     * @throws ReportException Se una delle classi trovate non può essere caricata.
+     */
+	protected static List<Class<?>> scan(String basePackage) throws ReportException {
+		ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+		scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+		List<Class<?>> reportClassTypes = new ArrayList<>();
+		for (BeanDefinition beanDefinition : scanner.findCandidateComponents(basePackage)) {
+			try {
+				reportClassTypes.add(ClassUtils.forName(beanDefinition.getBeanClassName(), ReportWarmUp.class.getClassLoader()));
+			} catch (ClassNotFoundException | LinkageError e) {
+				throw new ReportException("Classe del report non caricabile: " + beanDefinition.getBeanClassName(), e);
+			}
+		}
+		return reportClassTypes;
+	}
+
+	/**
+     * Genera in parallelo sul pool specificato le classi di riga e di foglio delle classi dei report indicate.
+     *
+     * @param forkJoinPool     Il pool su cui eseguire la generazione.
+     * @param reportClassTypes Le classi dei report da pre-generare.
+     * @return L'esito della pre-generazione per ciascuna classe, nello stesso ordine delle classi in input.
+     * @throws ReportException Se la pre-generazione viene interrotta.
+     */
+	protected static List<ReportWarmUpResult> run(ForkJoinPool forkJoinPool, List<Class<?>> reportClassTypes) throws ReportException {
+		try {
+			return forkJoinPool.submit(() -> reportClassTypes.parallelStream()
+					.map(ReportWarmUp::generateReportClasses)
+					.collect(Collectors.toList()))
+					.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ReportException("Pre-generazione delle classi dei report interrotta.", e);
+		} catch (ExecutionException e) {
+			throw new ReportException(e.getCause());
+		}
+	}
+
+	/**
+     * Genera la classe di riga e la classe di foglio di una classe di report, misurandone i tempi.
+     *
+     * @param reportClassType La classe del report.
+     * @return L'esito della pre-generazione.
+     */
+	private static ReportWarmUpResult generateReportClasses(Class<?> reportClassType) {
+		Duration rowClassDuration = Duration.ZERO;
+		Duration sheetClassDuration = Duration.ZERO;
+		try {
+			long start = System.nanoTime();
+			Class<? extends RowSheet> rowClass = ReportRowClassGenerator.generateReportRowClass(reportClassType);
+			rowClassDuration = Duration.ofNanos(System.nanoTime() - start);
+
+			start = System.nanoTime();
+			ReportSheetClassGenerator.generateReportSheetClass(reportClassType, rowClass);
+			sheetClassDuration = Duration.ofNanos(System.nanoTime() - start);
+
+			return new ReportWarmUpResult(reportClassType, rowClassDuration, sheetClassDuration, null);
+		} catch (Exception e) {
+			return new ReportWarmUpResult(reportClassType, rowClassDuration, sheetClassDuration, e);
+		}
+	}
+}
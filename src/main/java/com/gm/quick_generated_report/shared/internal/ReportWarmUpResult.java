@@ -0,0 +1,89 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportWarmUpResult.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.time.Duration;
+
+/**
+ * Questa classe rappresenta l'esito della pre-generazione delle classi di un report eseguita da `ReportBuilder.warmUp`.<br>
+ * Riporta, per la classe del report, il tempo impiegato nella generazione della classe di riga e della classe di foglio,
+ * oppure l'errore che ha interrotto la generazione.
+ *
+ * @see ReportBuilder
+ */
+public class ReportWarmUpResult {
+
+	private final Class<?> reportClassType;
+	private final Duration rowClassDuration;
+	private final Duration sheetClassDuration;
+	private final Exception error;
+
+	/**
+     * Costruttore utilizzato per inizializzare l'esito della pre-generazione.
+     *
+     * @param reportClassType         Il tipo di classe del report.
+     * @param rowClassDuration        Il tempo impiegato per la generazione della classe di riga.
+     * @param sheetClassDuration      Il tempo impiegato per la generazione della classe di foglio.
+     * @param error                   L'errore che ha interrotto la generazione, o `null` se completata.
+     */
+	protected ReportWarmUpResult(Class<?> reportClassType, Duration rowClassDuration, Duration sheetClassDuration, Exception error) {
+		this.reportClassType = reportClassType;
+		this.rowClassDuration = rowClassDuration;
+		this.sheetClassDuration = sheetClassDuration;
+		this.error = error;
+	}
+
+	/**
+	 * @return Il tipo di classe del report.
+	 */
+	public Class<?> getReportClassType() {
+		return reportClassType;
+	}
+
+	/**
+	 * @return Il tempo impiegato per la generazione della classe di riga, o `Duration.ZERO` se non generata.
+	 */
+	public Duration getRowClassDuration() {
+		return rowClassDuration;
+	}
+
+	/**
+	 * @return Il tempo impiegato per la generazione della classe di foglio, o `Duration.ZERO` se non generata.
+	 */
+	public Duration getSheetClassDuration() {
+		return sheetClassDuration;
+	}
+
+	/**
+	 * @return Il tempo complessivo impiegato per la generazione delle classi del report.
+	 */
+	public Duration getTotalDuration() {
+		return rowClassDuration.plus(sheetClassDuration);
+	}
+
+	/**
+	 * @return L'errore che ha interrotto la generazione, o `null` se la generazione è stata completata.
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	/**
+	 * @return `true` se tutte le classi del report sono state generate correttamente.
+	 */
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return reportClassType.getName()
+				+ " [row=" + rowClassDuration.toMillis() + "ms"
+				+ ", sheet=" + sheetClassDuration.toMillis() + "ms"
+				+ (error == null ? "" : ", error=" + error)
+				+ "]";
+	}
+}
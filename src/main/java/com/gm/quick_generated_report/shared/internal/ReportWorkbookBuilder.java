@@ -0,0 +1,200 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportWorkbookBuilder.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.BaseSheet;
+import bld.generator.report.excel.data.ReportExcel;
+
+/**
+ * Questa classe è responsabile della generazione di un unico file XLSX composto da più fogli, uno per ciascun report aggiunto.<br><br>
+ * Ogni foglio è definito da un `ReportGeneratorBuilder`, con la propria classe, le proprie condizioni o la propria lista di righe, e prende il nome del report.<br>
+ * Le query e la conversione delle righe dei fogli vengono eseguite in parallelo sull'executor condiviso delle partizioni (`ReportBuilder.setPartitionExecutor`),
+ * così che le esportazioni concorrenti non creino thread propri; il file XLSX viene poi scritto una sola volta con tutti i fogli.<br><br>
+ * I nomi finali dei fogli, compresi quelli dei fogli aggiuntivi di un report oltre il limite di righe, devono essere univoci senza distinzione tra
+ * maiuscole e minuscole e di al massimo `MAX_SHEET_NAME_LENGTH` caratteri, come richiesto da Excel.
+ * Un foglio con una compressione del file CSV viene rifiutato, perché non applicabile al file XLSX.
+ * Le metriche di scrittura e di errore del file vengono registrate per la classe di ciascun foglio.
+ *
+ * @see ReportBuilder
+ * @see ReportGeneratorBuilder
+ */
+public class ReportWorkbookBuilder {
+
+	private static final int MAX_SHEET_NAME_LENGTH = ReportGeneratorBuilder.MAX_SHEET_NAME_LENGTH;
+
+	private String workbookName;
+	private ReportBuilder reportBuilder;
+	private List<ReportGeneratorBuilder> reportSheets;
+
+	/**
+     * Costruttore privato utilizzato per inizializzare un'istanza di `ReportWorkbookBuilder`.
+     *
+     * @param reportBuilder Il `ReportBuilder` che fornisce i servizi per la generazione di report.
+     * @param workbookName  Il nome del file XLSX.
+     */
+	private ReportWorkbookBuilder(ReportBuilder reportBuilder, String workbookName) {
+		this.reportBuilder = reportBuilder;
+		this.workbookName = workbookName;
+		this.reportSheets = new ArrayList<>();
+	}
+
+	/**
+     * Crea un'istanza di `ReportWorkbookBuilder`.
+     *
+     * @param reportBuilder Il `ReportBuilder` che fornisce i servizi per la generazione di report.
+     * @param workbookName  Il nome del file XLSX.
+     * @return Un nuovo oggetto `ReportWorkbookBuilder` senza fogli.
+     */
+	protected static ReportWorkbookBuilder define(ReportBuilder reportBuilder, String workbookName) {
+		ReportWorkbookBuilder reportWorkbookBuilder = new ReportWorkbookBuilder(reportBuilder, workbookName);
+		return reportWorkbookBuilder;
+	}
+
+	/**
+     * Aggiunge un foglio al file XLSX. Il nome del foglio è il nome del report del generatore specificato.
+     *
+     * @param reportSheet Il generatore del report del foglio, creato da `ReportBuilder` o da `ReportQueryBuilder`.
+     * @return L'istanza corrente di `ReportWorkbookBuilder` per consentire la concatenazione dei fogli.
+     */
+	public ReportWorkbookBuilder addSheet(ReportGeneratorBuilder reportSheet) {
+		reportSheets.add(reportSheet);
+		return this;
+	}
+
+	/**
+     * Genera e restituisce il file XLSX con tutti i fogli aggiunti, nell'ordine di aggiunta.
+     *
+     * @return Un array di byte contenente il file XLSX generato.
+     * @throws Exception Se si verificano errori durante la generazione di uno dei fogli o del file.
+     */
+	public byte[] generateXlsx() throws Exception {
+		return createXlsx();
+	}
+
+	/**
+     * Genera il file XLSX e lo scrive sullo stream di uscita specificato.<br>
+     * Lo stream non viene chiuso al termine della scrittura.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere il file XLSX.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	public void generateXlsx(OutputStream outputStream) throws Exception {
+		outputStream.write(createXlsx());
+		outputStream.flush();
+	}
+
+	/**
+     * Verifica i fogli, genera le loro schede e scrive il file XLSX con la libreria di generazione, registrando per la classe di ciascun foglio
+     * la durata della scrittura o l'errore.
+     *
+     * @return Un array di byte contenente il file XLSX generato.
+     * @throws Exception Se i fogli non sono validi o se si verificano errori durante la generazione.
+     */
+	private byte[] createXlsx() throws Exception {
+		if (workbookName == null || reportSheets.isEmpty())
+			throw new ReportException("Report non configurato: 'workbookName' non impostato o nessun foglio aggiunto.");
+		Set<String> reportNames = new HashSet<>();
+		for (ReportGeneratorBuilder reportSheet : reportSheets) {
+			if (reportSheet.hasFileCompression())
+				throw new ReportException("Il foglio '" + reportSheet.getReportName() + "' ha una compressione del file CSV, non applicabile a un foglio del file XLSX.");
+			checkSheetName(reportSheet.getReportName(), reportNames);
+		}
+		try {
+			List<BaseSheet> baseSheets = generateBaseSheets(reportNames);
+			Set<String> sheetNames = new HashSet<>();
+			for (BaseSheet baseSheet : baseSheets) {
+				checkSheetName(baseSheet.getSheetName(), sheetNames);
+			}
+			long writeStart = System.nanoTime();
+			byte[] reportResult = reportBuilder.getGeneratorExcel().createBigDataFileXlsx(new ReportExcel(workbookName, baseSheets));
+			for (ReportGeneratorBuilder reportSheet : reportSheets) {
+				ReportMetrics.recordPhase(reportSheet.getReportClassType(), ReportMetrics.FORMAT_XLSX, ReportMetrics.PHASE_XLSX_WRITE, writeStart);
+			}
+			return reportResult;
+		} catch (Exception e) {
+			for (ReportGeneratorBuilder reportSheet : reportSheets) {
+				ReportMetrics.countFailure(reportSheet.getReportClassType(), ReportMetrics.FORMAT_XLSX, e);
+			}
+			throw e;
+		} finally {
+			for (ReportGeneratorBuilder reportSheet : reportSheets) {
+				reportSheet.releaseSpillBuffers();
+			}
+		}
+	}
+
+	/**
+     * Verifica che il nome di un foglio sia valido per Excel e non già utilizzato, senza distinzione tra maiuscole e minuscole.
+     *
+     * @param sheetName  Il nome del foglio.
+     * @param sheetNames I nomi dei fogli già verificati, a cui aggiungere il nome.
+     * @throws ReportException Se il nome è vuoto, più lungo di `MAX_SHEET_NAME_LENGTH` caratteri o duplicato.
+     */
+	private static void checkSheetName(String sheetName, Set<String> sheetNames) throws ReportException {
+		if (sheetName == null || sheetName.trim().isEmpty())
+			throw new ReportException("Nome del foglio non impostato.");
+		if (sheetName.length() > MAX_SHEET_NAME_LENGTH)
+			throw new ReportException("Nome del foglio '" + sheetName + "' più lungo di " + MAX_SHEET_NAME_LENGTH + " caratteri.");
+		if (!sheetNames.add(sheetName.toLowerCase(Locale.ROOT)))
+			throw new ReportException("Nome del foglio duplicato: '" + sheetName + "'.");
+	}
+
+	/**
+     * Genera il file XLSX e lo scrive sul canale di uscita specificato.<br>
+     * Il canale non viene chiuso al termine della scrittura.
+     *
+     * @param channel Il canale di uscita su cui scrivere il file XLSX.
+     * @throws Exception Se si verificano errori durante la generazione del report.
+     */
+	public void generateXlsx(WritableByteChannel channel) throws Exception {
+		generateXlsx(Channels.newOutputStream(channel));
+	}
+
+	/**
+     * Genera in modo asincrono il file XLSX sull'executor del `ReportBuilder`, senza bloccare il thread chiamante.
+     *
+     * @return Il future dell'array di byte contenente il file XLSX generato.
+     */
+	public CompletableFuture<byte[]> generateXlsxAsync() {
+		return ReportExecutors.submit(reportBuilder.getReportExecutor(), this::generateXlsx);
+	}
+
+	/**
+     * Genera in parallelo sull'executor delle partizioni le schede di base di tutti i fogli e le restituisce nell'ordine di aggiunta dei fogli.<br>
+     * I fogli aggiuntivi di un report oltre il limite di righe non riutilizzano i nomi degli altri report né quelli già assegnati.
+     *
+     * @param reportNames I nomi in minuscolo dei report.
+     * @return La lista delle schede di base del file XLSX.
+     * @throws Exception Se si verificano errori durante la generazione di uno dei fogli.
+     */
+	private List<BaseSheet> generateBaseSheets(Set<String> reportNames) throws Exception {
+		Set<String> usedSheetNames = ConcurrentHashMap.newKeySet();
+		usedSheetNames.addAll(reportNames);
+		List<Callable<List<BaseSheet>>> sheetTasks = new ArrayList<>(reportSheets.size());
+		for (ReportGeneratorBuilder reportSheet : reportSheets) {
+			sheetTasks.add(() -> reportSheet.generateBaseSheets(reportSheet.getReportName(), usedSheetNames));
+		}
+		List<BaseSheet> baseSheets = new ArrayList<>();
+		for (List<BaseSheet> sheetBaseSheets : ReportPartition.runAll(reportBuilder.getPartitionExecutor(), sheetTasks)) {
+			baseSheets.addAll(sheetBaseSheets);
+		}
+		return baseSheets;
+	}
+}
@@ -0,0 +1,33 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportZstdStream.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Questa classe isola i riferimenti alla dipendenza opzionale `com.github.luben:zstd-jni`: viene caricata da `ReportCompression` solo per la
+ * compressione `ZSTD` e dopo aver verificato la presenza della dipendenza.
+ *
+ * @see ReportCompression
+ */
+class ReportZstdStream {
+
+	private ReportZstdStream() {}
+
+	/**
+     * Apre lo stream di compressione Zstandard sullo stream di uscita specificato.
+     *
+     * @param outputStream Lo stream di uscita su cui scrivere i dati compressi.
+     * @return Lo stream di compressione Zstandard.
+     * @throws IOException Se non è possibile aprire lo stream di compressione.
+     */
+	protected static OutputStream open(OutputStream outputStream) throws IOException {
+		return new ZstdOutputStream(outputStream);
+	}
+}
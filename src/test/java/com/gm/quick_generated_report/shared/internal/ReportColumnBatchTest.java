@@ -0,0 +1,115 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportColumnBatchTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Test della memorizzazione per colonne delle righe e della loro serializzazione binaria, con i valori nulli e il dizionario delle stringhe.
+ */
+class ReportColumnBatchTest {
+
+	private static final ReportTestRow FIRST = new ReportTestRow(1L, "nord", 10, 0.5d, new BigDecimal("12.345"), true, new Date(1_600_000_000_000L));
+	private static final ReportTestRow EMPTY = new ReportTestRow(null, null, null, null, null, null, null);
+	private static final ReportTestRow THIRD = new ReportTestRow(-3L, "nord", -1, Double.NaN, BigDecimal.ZERO, false, new Date(0));
+
+	private static ReportColumnBatch batch(int capacity) throws ReportException {
+		return ReportColumnBatch.define(ReportCsvWriter.resolveColumnFields(ReportTestRow.class), capacity);
+	}
+
+	private static ReportColumnBatch roundTrip(ReportColumnBatch batch) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			batch.writeTo(output);
+		}
+		ReportColumnBatch readBatch = batch.copyDefinition();
+		readBatch.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+		return readBatch;
+	}
+
+	private static void assertRow(ReportTestRow expected, ReportColumnBatch batch, int row) {
+		Object[] values = new Object[batch.getColumnCount()];
+		for (int column = 0; column < values.length; column++) {
+			values[column] = batch.getValue(column, row);
+		}
+		assertArrayEquals(expected.values(), values);
+	}
+
+	@Test
+	void roundTripsValuesNullsAndDictionary() throws Exception {
+		ReportColumnBatch batch = batch(8);
+		batch.add(FIRST);
+		batch.add(EMPTY);
+		batch.add(THIRD);
+
+		ReportColumnBatch readBatch = roundTrip(batch);
+
+		assertEquals(3, readBatch.size());
+		assertRow(FIRST, readBatch, 0);
+		assertRow(EMPTY, readBatch, 1);
+		assertRow(THIRD, readBatch, 2);
+		for (int column = 0; column < readBatch.getColumnCount(); column++) {
+			assertTrue(readBatch.isNull(column, 1));
+			assertFalse(readBatch.isNull(column, 0));
+		}
+		assertEquals(Collections.singletonList("nord"), readBatch.getDictionary(1));
+		assertEquals(readBatch.getDictionaryIndex(1, 0), readBatch.getDictionaryIndex(1, 2));
+	}
+
+	@Test
+	void roundTripsReusedBatchWithNewDictionary() throws Exception {
+		ReportColumnBatch batch = batch(8);
+		batch.add(FIRST);
+		roundTrip(batch);
+		batch.clear();
+		ReportTestRow other = new ReportTestRow(2L, "sud", 1, 1d, BigDecimal.ONE, true, new Date(1L));
+		batch.add(other);
+		batch.add(EMPTY);
+
+		ReportColumnBatch readBatch = roundTrip(batch);
+
+		assertEquals(2, readBatch.size());
+		assertRow(other, readBatch, 0);
+		assertRow(EMPTY, readBatch, 1);
+		assertEquals(Arrays.asList("sud"), readBatch.getDictionary(1));
+	}
+
+	@Test
+	void roundTripsEmptyBatch() throws Exception {
+		assertEquals(0, roundTrip(batch(8)).size());
+	}
+
+	@Test
+	void signalsFullBatch() throws Exception {
+		ReportColumnBatch batch = batch(2);
+
+		assertFalse(batch.add(FIRST));
+		assertTrue(batch.add(THIRD));
+		batch.clear();
+		assertEquals(0, batch.size());
+	}
+
+	@Test
+	void rejectsInvalidCapacity() {
+		assertThrows(ReportException.class, () -> batch(0));
+	}
+}
@@ -0,0 +1,118 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportCompressionTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test della compressione dei file CSV senza la dipendenza opzionale `zstd-jni`: la classe `ReportCompression` viene caricata da un
+ * ClassLoader che non vede le classi `com.github.luben`, come in un modulo che non aggiunge la dipendenza.
+ */
+class ReportCompressionTest {
+
+	private static final byte[] CSV = "codice;descrizione\n1;\"riga; uno\"\n".getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void writesUncompressedWithoutZstd() throws Exception {
+		assertArrayEquals(CSV, write(compression("NONE")));
+	}
+
+	@Test
+	void writesGzipWithoutZstd() throws Exception {
+		try (InputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(write(compression("GZIP"))))) {
+			ByteArrayOutputStream csvStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			for (int read = gzipStream.read(buffer); read != -1; read = gzipStream.read(buffer)) {
+				csvStream.write(buffer, 0, read);
+			}
+			assertArrayEquals(CSV, csvStream.toByteArray());
+		}
+	}
+
+	@Test
+	void rejectsZstdWithoutZstd() throws Exception {
+		InvocationTargetException e = assertThrows(InvocationTargetException.class, () -> write(compression("ZSTD")));
+		assertEquals("com.gm.quick_generated_report.shared.exception.ReportException", e.getCause().getClass().getName());
+	}
+
+	/**
+	 * Carica la costante di `ReportCompression` specificata da un ClassLoader senza le classi `zstd-jni`.
+	 */
+	private static Object compression(String name) throws Exception {
+		ClassLoader classLoader = new HiddenZstdClassLoader(ReportCompression.class.getProtectionDomain().getCodeSource().getLocation(),
+				ReportCompressionTest.class.getClassLoader());
+		Class<?> compressionClass = Class.forName(ReportCompression.class.getName(), true, classLoader);
+		assertEquals(classLoader, compressionClass.getClassLoader());
+		for (Object compression : compressionClass.getEnumConstants()) {
+			if (((Enum<?>) compression).name().equals(name)) {
+				return compression;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * Scrive il file CSV di prova con `open` della compressione specificata e restituisce i byte scritti.
+	 */
+	private static byte[] write(Object compression) throws Exception {
+		Method open = compression.getClass().getDeclaredMethod("open", OutputStream.class);
+		open.setAccessible(true);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (OutputStream compressionStream = (OutputStream) open.invoke(compression, outputStream)) {
+			compressionStream.write(CSV);
+		}
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * ClassLoader che carica per primo le classi della libreria e non trova le classi `com.github.luben`.
+	 */
+	private static class HiddenZstdClassLoader extends URLClassLoader {
+
+		private HiddenZstdClassLoader(URL classes, ClassLoader parent) {
+			super(new URL[] { classes }, parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.startsWith("com.github.luben.")) {
+				throw new ClassNotFoundException(name);
+			}
+			if (!name.startsWith("com.gm.quick_generated_report.")) {
+				return super.loadClass(name, resolve);
+			}
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> loadedClass = findLoadedClass(name);
+				if (loadedClass == null) {
+					try {
+						loadedClass = findClass(name);
+					} catch (ClassNotFoundException e) {
+						return super.loadClass(name, resolve);
+					}
+				}
+				if (resolve) {
+					resolveClass(loadedClass);
+				}
+				return loadedClass;
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportCsvWriterTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import org.junit.jupiter.api.Test;
+
+import bld.generator.report.excel.RowSheet;
+import bld.generator.report.excel.annotation.ExcelColumn;
+
+/**
+ * Test della scrittura delle righe in formato CSV: intestazione, valori per tipo, valori nulli e testi con doppi apici, separatori e a capo.
+ */
+class ReportCsvWriterTest {
+
+	static class ReportTimestampRow implements RowSheet {
+		@ExcelColumn(columnName = "UPDATED", indexColumn = 0.0)
+		private Date updated;
+
+		ReportTimestampRow(Date updated) {
+			this.updated = updated;
+		}
+	}
+
+	private static final String HEADER = "\"ID\",\"DESCRIPTION\",\"QUANTITY\",\"WEIGHT\",\"AMOUNT\",\"ACTIVE\",\"CREATED DATE\"\n";
+
+	private static String write(ReportTestRow... rows) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ReportCsvWriter csvWriter = new ReportCsvWriter(outputStream, ReportTestRow.class);
+		ReportColumnBatch batch = ReportColumnBatch.define(ReportCsvWriter.resolveColumnFields(ReportTestRow.class), 2);
+		csvWriter.writeHeader();
+		for (ReportTestRow row : rows) {
+			if (batch.add(row)) {
+				csvWriter.writeBatch(batch);
+				batch.clear();
+			}
+		}
+		csvWriter.writeBatch(batch);
+		csvWriter.finish();
+		assertEquals(rows.length, csvWriter.getRowCount());
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void writesHeaderAndTypedValues() throws Exception {
+		ReportTestRow row = new ReportTestRow(1L, "nord", 10, 0.5d, new BigDecimal("1E+3"), true, new GregorianCalendar(2024, Calendar.FEBRUARY, 29).getTime());
+
+		assertEquals(HEADER + "1,\"nord\",10,0.5,1000,true,2024-02-29\n", write(row));
+	}
+
+	@Test
+	void escapesQuotesSeparatorsAndNewLines() throws Exception {
+		ReportTestRow row = new ReportTestRow(1L, "riga \"uno\", con\nritorno\r\na capo", null, null, null, null, null);
+
+		assertEquals(HEADER + "1,\"riga \"\"uno\"\", con\nritorno\r\na capo\",,,,,\n", write(row));
+	}
+
+	@Test
+	void writesNullsAsEmptyFieldsAndEmptyTextAsQuotes() throws Exception {
+		ReportTestRow nullRow = new ReportTestRow(null, null, null, null, null, null, null);
+		ReportTestRow emptyRow = new ReportTestRow(2L, "", null, null, null, false, null);
+		ReportTestRow lastRow = new ReportTestRow(3L, "\"", null, null, null, null, null);
+
+		assertEquals(HEADER + ",,,,,,\n2,\"\",,,,false,\n3,\"\"\"\",,,,,\n", write(nullRow, emptyRow, lastRow));
+	}
+
+	@Test
+	void writesDateWithoutExcelDateAsTimestamp() throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ReportCsvWriter csvWriter = new ReportCsvWriter(outputStream, ReportTimestampRow.class);
+		ReportColumnBatch batch = ReportColumnBatch.define(ReportCsvWriter.resolveColumnFields(ReportTimestampRow.class), 1);
+		batch.add(new ReportTimestampRow(new GregorianCalendar(2024, Calendar.FEBRUARY, 29, 10, 15, 30).getTime()));
+		csvWriter.writeHeader();
+		csvWriter.writeBatch(batch);
+		csvWriter.finish();
+
+		assertEquals("\"UPDATED\"\n2024-02-29T10:15:30.000\n", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,37 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportExecutorsTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test dell'executor a thread virtuali (o del pool limitato sulle JVM senza thread virtuali): esecuzione, chiusura e attesa della terminazione.
+ */
+class ReportExecutorsTest {
+
+	@Test
+	void runsTasksAndShutsDown() throws Exception {
+		ExecutorService executor = ReportExecutors.newVirtualThreadExecutor(2);
+		try {
+			assertEquals("ok", ReportExecutors.submit(executor, () -> "ok").get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+
+		assertTrue(executor.isShutdown());
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(executor.isTerminated());
+		assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+	}
+}
@@ -0,0 +1,164 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportKeysetTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.Id;
+
+import org.junit.jupiter.api.Test;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+import bld.generator.report.excel.RowSheet;
+
+/**
+ * Test del predicato keyset e della paginazione a blocchi con valori di ordinamento duplicati.
+ */
+class ReportKeysetTest {
+
+	static class KeysetEntity {
+		@Id
+		private Long id;
+		private String category;
+	}
+
+	static class KeysetEntityWithoutId {
+		private Long id;
+		private String category;
+	}
+
+	static class KeysetRow implements RowSheet {
+		private Long id;
+		private String category;
+
+		KeysetRow(Long id, String category) {
+			this.id = id;
+			this.category = category;
+		}
+	}
+
+	enum KeysetStatus {
+		OPEN, CLOSED
+	}
+
+	static class KeysetTypedEntity {
+		@Id
+		private Long id;
+		private LocalDate day;
+		private KeysetStatus status;
+		private LocalDateTime moment;
+		private Instant instant;
+	}
+
+	static class KeysetTypedRow implements RowSheet {
+		private Long id;
+		private Date day;
+		private String status;
+		private Date moment;
+		private Date instant;
+
+		KeysetTypedRow(Long id, Date day, String status) {
+			this.id = id;
+			this.day = day;
+			this.status = status;
+		}
+	}
+
+	@Test
+	void appendsIdentifierAsTieBreaker() throws Exception {
+		ReportKeyset keyset = ReportKeyset.define(KeysetEntity.class, KeysetRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.DESC, "item.category") });
+
+		assertEquals(" ( item.x = :p0 ) AND ( ( item.category < :k0 ) OR ( item.category = :k0 AND item.id > :k1 ) ) ", keyset.appendTo("item.x = :p0"));
+		assertEquals("item.category DESC , item.id ASC ", keyset.getOrderBy());
+		assertEquals(Arrays.asList("B", 7L), new ArrayList<>(keyset.keyValues(new KeysetRow(7L, "B")).values()));
+	}
+
+	@Test
+	void doesNotRepeatIdentifierAlreadyOrdered() throws Exception {
+		ReportKeyset keyset = ReportKeyset.define(KeysetEntity.class, KeysetRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.DESC, "id") });
+
+		assertEquals(" ( ( id < :k0 ) ) ", keyset.appendTo(null));
+		assertEquals("id DESC ", keyset.getOrderBy());
+	}
+
+	@Test
+	void rejectsEntityWithoutIdentifier() {
+		assertThrows(ReportException.class, () -> ReportKeyset.define(KeysetEntityWithoutId.class, KeysetRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "category") }));
+	}
+
+	@Test
+	void rejectsOrderColumnOutsideReport() {
+		assertThrows(ReportException.class, () -> ReportKeyset.define(KeysetEntity.class, KeysetRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "missing") }));
+	}
+
+	@Test
+	void bindsConvertedValuesWithReportClassType() throws Exception {
+		ReportKeyset keyset = ReportKeyset.define(KeysetTypedEntity.class, KeysetTypedRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "day"),
+						ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "status") });
+		LocalDate day = LocalDate.of(2024, 2, 29);
+		Date dayDate = Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+		assertEquals(Arrays.asList(day, KeysetStatus.CLOSED, 3L), new ArrayList<>(keyset.keyValues(new KeysetTypedRow(3L, dayDate, "CLOSED")).values()));
+	}
+
+	@Test
+	void rejectsOrderColumnConvertedWithPrecisionLoss() {
+		assertThrows(ReportException.class, () -> ReportKeyset.define(KeysetTypedEntity.class, KeysetTypedRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "moment") }));
+		assertThrows(ReportException.class, () -> ReportKeyset.define(KeysetTypedEntity.class, KeysetTypedRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "item.instant") }));
+	}
+
+	@Test
+	void keepsDuplicateOrderValuesAcrossChunkBoundary() throws Exception {
+		// le righe B6 e B7 hanno lo stesso valore di ordinamento e cadono in due pagine diverse
+		String[] categories = { "A", "A", "A", "B", "B", "B", "B", "C", "C", "D" };
+		List<KeysetRow> table = new ArrayList<>();
+		for (int i = 0; i < categories.length; i++) {
+			table.add(new KeysetRow((long) (i + 1), categories[i]));
+		}
+		Collections.shuffle(table);
+		ReportTestPersistence persistence = ReportTestPersistence.define((query, parameters, maxResults) -> table.stream()
+				.filter(row -> !parameters.containsKey("k0")
+						|| row.category.compareTo((String) parameters.get("k0")) > 0
+						|| row.category.equals(parameters.get("k0")) && row.id > (Long) parameters.get("k1"))
+				.sorted(Comparator.comparing((KeysetRow row) -> row.category).thenComparing(row -> row.id))
+				.limit(maxResults)
+				.collect(Collectors.toList()));
+
+		ReportKeyset keyset = ReportKeyset.define(KeysetEntity.class, KeysetRow.class,
+				new ReportQueryOrder[] { ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "item.category") });
+		String firstQuery = ReportUtil.generateSQLQuery(KeysetRow.class, "KeysetEntity", null, keyset.getOrderBy());
+		String nextQuery = ReportUtil.generateSQLQuery(KeysetRow.class, "KeysetEntity", keyset.appendTo(null), keyset.getOrderBy());
+		List<Long> readIds = new ArrayList<>();
+		ReportQueryExecutor.streamChunks(persistence.entityManagerFactory(), firstQuery, nextQuery, Collections.emptyMap(), keyset, 3,
+				KeysetRow.class, row -> readIds.add(row.id));
+
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), readIds);
+		assertEquals(4, persistence.getExecutedQueries().size());
+		assertTrue(persistence.getExecutedQueries().get(0).contains("ORDER BY item.category ASC , item.id ASC"));
+	}
+}
@@ -0,0 +1,183 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportPartitionTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Test del calcolo degli intervalli delle partizioni, dell'esecuzione ordinata dei task di partizione e della cartella dei file temporanei delle partizioni.
+ */
+class ReportPartitionTest {
+
+	public static class PartitionEntity {
+		private Long id;
+	}
+
+	private static List<ReportPartition> split(Object min, Object max, int partitions) throws Exception {
+		ReportTestPersistence persistence = ReportTestPersistence.define((query, parameters, maxResults) -> new Object[] { min, max });
+		return ReportPartition.split(persistence.entityManagerFactory(), "Entity", "item.id", partitions, null, Collections.emptyMap());
+	}
+
+	@Test
+	void splitsRangeIntoContiguousIntervals() throws Exception {
+		List<ReportPartition> reportPartitions = split(1L, 10L, 3);
+
+		assertEquals(3, reportPartitions.size());
+		assertEquals(Arrays.asList(1L, 5L), Arrays.asList(reportPartitions.get(0).getParameters().get("r0"), reportPartitions.get(0).getParameters().get("r1")));
+		assertEquals(Arrays.asList(5L, 9L), Arrays.asList(reportPartitions.get(1).getParameters().get("r0"), reportPartitions.get(1).getParameters().get("r1")));
+		assertEquals(Arrays.asList(9L, 10L), Arrays.asList(reportPartitions.get(2).getParameters().get("r0"), reportPartitions.get(2).getParameters().get("r1")));
+		assertTrue(reportPartitions.get(0).getWhereCondition().contains("item.id >= :r0 AND item.id < :r1"));
+		assertTrue(reportPartitions.get(2).getWhereCondition().contains("item.id >= :r0 AND item.id <= :r1"));
+	}
+
+	@Test
+	void limitsPartitionsToRangeSize() throws Exception {
+		List<ReportPartition> reportPartitions = split(5, 6, 10);
+
+		assertEquals(2, reportPartitions.size());
+		assertEquals(6, reportPartitions.get(1).getParameters().get("r0"));
+		assertEquals(6, reportPartitions.get(1).getParameters().get("r1"));
+	}
+
+	@Test
+	void splitsFullLongRangeWithoutOverflow() throws Exception {
+		List<ReportPartition> reportPartitions = split(Long.MIN_VALUE, Long.MAX_VALUE, 4);
+
+		assertEquals(4, reportPartitions.size());
+		assertEquals(Long.MIN_VALUE, reportPartitions.get(0).getParameters().get("r0"));
+		assertEquals(Long.MAX_VALUE, reportPartitions.get(3).getParameters().get("r1"));
+		for (int i = 1; i < reportPartitions.size(); i++) {
+			long previousUpper = (Long) reportPartitions.get(i - 1).getParameters().get("r1");
+			long lower = (Long) reportPartitions.get(i).getParameters().get("r0");
+			assertEquals(previousUpper, lower);
+			assertTrue(lower > (Long) reportPartitions.get(i - 1).getParameters().get("r0"));
+		}
+	}
+
+	@Test
+	void splitsBigIntegerBeyondLongRange() throws Exception {
+		BigInteger min = BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN);
+		List<ReportPartition> reportPartitions = split(min, min.add(BigInteger.valueOf(99)), 2);
+
+		assertEquals(2, reportPartitions.size());
+		assertEquals(min.add(BigInteger.valueOf(50)), reportPartitions.get(1).getParameters().get("r0"));
+	}
+
+	@Test
+	void bindsOriginalTimestampsAtOuterBounds() throws Exception {
+		Timestamp min = Timestamp.valueOf("2024-01-01 00:00:00.000000500");
+		Timestamp max = Timestamp.valueOf("2024-01-31 23:59:59.999999999");
+		List<ReportPartition> reportPartitions = split(min, max, 4);
+
+		assertEquals(4, reportPartitions.size());
+		assertSame(min, reportPartitions.get(0).getParameters().get("r0"));
+		assertSame(max, reportPartitions.get(3).getParameters().get("r1"));
+		assertTrue(reportPartitions.get(3).getWhereCondition().contains("<= :r1"));
+	}
+
+	@Test
+	void returnsNoPartitionsForEmptyRange() throws Exception {
+		assertTrue(split(null, null, 4).isEmpty());
+	}
+
+	@Test
+	void runsTasksOnSharedExecutorInOrder() throws Exception {
+		ExecutorService executor = ReportExecutors.newBoundedExecutor(2, 10);
+		try {
+			List<Callable<Integer>> tasks = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				int partition = i;
+				tasks.add(() -> {
+					Thread.sleep(6 - partition);
+					return partition;
+				});
+			}
+			assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), ReportPartition.runAll(executor, tasks));
+
+			tasks.add(() -> {
+				throw new ReportException("partizione non valida");
+			});
+			assertEquals("partizione non valida", assertThrows(ReportException.class, () -> ReportPartition.runAll(executor, tasks)).getMessage());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void runsNestedTasksOnSharedExecutorWithoutDeadlock() throws Exception {
+		ExecutorService executor = ReportExecutors.newBoundedExecutor(1, 10, new ThreadPoolExecutor.CallerRunsPolicy());
+		try {
+			List<Callable<List<Integer>>> sheetTasks = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				int sheet = i;
+				sheetTasks.add(() -> ReportPartition.runAll(executor, Arrays.asList(() -> sheet * 10, () -> sheet * 10 + 1)));
+			}
+			List<List<Integer>> results = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> ReportPartition.runAll(executor, sheetTasks));
+
+			assertEquals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(10, 11), Arrays.asList(20, 21)), results);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void writesPartitionFilesInSpillDirectory() throws Exception {
+		Path spillDirectory = Files.createTempDirectory("report-partition-test");
+		List<String> partitionFiles = Collections.synchronizedList(new ArrayList<>());
+		ReportTestPersistence persistence = ReportTestPersistence.define((query, parameters, maxResults) -> {
+			if (query.contains("MIN(")) {
+				return new Object[] { 1L, 4L };
+			}
+			try (Stream<Path> files = Files.list(spillDirectory)) {
+				files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("report-partition-")).forEach(partitionFiles::add);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return Collections.emptyList();
+		});
+		try {
+			ReportBuilder reportBuilder = ReportBuilder.getInstance();
+			reportBuilder.setEntityManagerFactory(persistence.entityManagerFactory());
+			reportBuilder.buildWithCondition(PartitionEntity.class, "partizioni")
+					.build(ReportQueryOrder.orderBy(ReportQueryOrder.OrderDirection.ASC, "id"))
+					.partitionBy("id", 2)
+					.spillToDisk(1024, spillDirectory)
+					.generateCsv();
+
+			assertFalse(partitionFiles.isEmpty());
+			try (Stream<Path> files = Files.list(spillDirectory)) {
+				assertEquals(0, files.count());
+			}
+		} finally {
+			Files.deleteIfExists(spillDirectory);
+		}
+	}
+}
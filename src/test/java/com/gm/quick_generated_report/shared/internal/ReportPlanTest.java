@@ -0,0 +1,62 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportPlanTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.gm.quick_generated_report.shared.internal.ReportQueryCondition.LikeConditionDirection;
+
+/**
+ * Test della cache dei piani compilati: condizioni con la stessa query ma con direzioni LIKE diverse devono usare piani distinti.
+ */
+class ReportPlanTest {
+
+	public static class PlanEntity {
+		private Long id;
+		private String name;
+	}
+
+	@Test
+	void separatesPlansByLikeDirection() throws Exception {
+		List<Map<String, Object>> boundParameters = Collections.synchronizedList(new ArrayList<>());
+		ReportTestPersistence persistence = ReportTestPersistence.define((query, parameters, maxResults) -> {
+			boundParameters.add(new LinkedHashMap<>(parameters));
+			return Collections.emptyList();
+		});
+		ReportBuilder reportBuilder = ReportBuilder.getInstance();
+		reportBuilder.setEntityManagerFactory(persistence.entityManagerFactory());
+
+		ReportPlan leftPlan = reportBuilder.buildWithCondition(PlanEntity.class, "piano")
+				.addCondition(ReportQueryCondition.like(LikeConditionDirection.LEFT, "name", "rossi"))
+				.prepare();
+		ReportPlan rightPlan = reportBuilder.buildWithCondition(PlanEntity.class, "piano")
+				.addCondition(ReportQueryCondition.like(LikeConditionDirection.RIGHT, "name", "bianchi"))
+				.prepare();
+
+		assertNotSame(leftPlan, rightPlan);
+		assertEquals(leftPlan.getReportQuery(), rightPlan.getReportQuery());
+		assertSame(leftPlan, reportBuilder.buildWithCondition(PlanEntity.class, "piano")
+				.addCondition(ReportQueryCondition.like(LikeConditionDirection.LEFT, "name", "verdi"))
+				.prepare());
+
+		leftPlan.bind("mario").generateCsv();
+		rightPlan.bind("mario").generateCsv();
+
+		assertEquals(2, boundParameters.size());
+		assertEquals("%mario", boundParameters.get(0).get("p0"));
+		assertEquals("mario%", boundParameters.get(1).get("p0"));
+	}
+}
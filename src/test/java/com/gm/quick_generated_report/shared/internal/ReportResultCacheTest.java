@@ -0,0 +1,96 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportResultCacheTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.gm.quick_generated_report.shared.exception.ReportException;
+
+/**
+ * Test della rimozione dei file della cache dei file generati e della serializzazione dei valori della sua chiave.
+ */
+class ReportResultCacheTest {
+
+	@Test
+	void evictsLeastRecentlyUsedOverHeapLimit() throws Exception {
+		ReportResultCache reportResultCache = ReportResultCache.define(10, Duration.ofMinutes(1));
+		reportResultCache.put("a", new byte[4]);
+		reportResultCache.put("b", new byte[4]);
+		reportResultCache.get("a");
+		reportResultCache.put("c", new byte[4]);
+
+		assertArrayEquals(new byte[4], reportResultCache.get("a"));
+		assertNull(reportResultCache.get("b"));
+		assertArrayEquals(new byte[4], reportResultCache.get("c"));
+	}
+
+	@Test
+	void skipsFilesLargerThanHeapLimit() throws Exception {
+		ReportResultCache reportResultCache = ReportResultCache.define(10, Duration.ofMinutes(1));
+		reportResultCache.put("a", new byte[11]);
+
+		assertNull(reportResultCache.get("a"));
+	}
+
+	@Test
+	void expiresFilesAfterTimeToLive() throws Exception {
+		ReportResultCache reportResultCache = ReportResultCache.define(10, Duration.ofMillis(20));
+		reportResultCache.put("a", new byte[1]);
+		assertArrayEquals(new byte[1], reportResultCache.get("a"));
+
+		Thread.sleep(50);
+
+		assertNull(reportResultCache.get("a"));
+	}
+
+	@Test
+	void invalidatesFilesOfReportClass() throws Exception {
+		ReportResultCache reportResultCache = ReportResultCache.define(10, Duration.ofMinutes(1));
+		reportResultCache.put(String.class.getName() + "|a", new byte[1]);
+		reportResultCache.put(Integer.class.getName() + "|a", new byte[1]);
+		reportResultCache.invalidate(String.class);
+
+		assertNull(reportResultCache.get(String.class.getName() + "|a"));
+		assertArrayEquals(new byte[1], reportResultCache.get(Integer.class.getName() + "|a"));
+	}
+
+	@Test
+	void rejectsInvalidLimits() {
+		assertThrows(ReportException.class, () -> ReportResultCache.define(0, Duration.ofMinutes(1)));
+		assertThrows(ReportException.class, () -> ReportResultCache.define(10, Duration.ZERO));
+	}
+
+	@Test
+	void keyValueKeepsMillisecondsAndNanoseconds() {
+		assertNotEquals(ReportQueryParser.keyValue(new Date(1_000)), ReportQueryParser.keyValue(new Date(1_001)));
+		Timestamp timestamp = new Timestamp(1_000);
+		Timestamp nanosTimestamp = new Timestamp(1_000);
+		nanosTimestamp.setNanos(1);
+		assertNotEquals(ReportQueryParser.keyValue(timestamp), ReportQueryParser.keyValue(nanosTimestamp));
+		assertNotEquals(ReportQueryParser.keyValue(LocalDateTime.of(2024, 1, 1, 0, 0, 0, 1)), ReportQueryParser.keyValue(LocalDateTime.of(2024, 1, 1, 0, 0)));
+	}
+
+	@Test
+	void keyValueSerializesArraysByContent() {
+		assertEquals(ReportQueryParser.keyValue(new Object[] { 1, "a" }), ReportQueryParser.keyValue(new Object[] { 1, "a" }));
+		assertEquals(ReportQueryParser.keyValue(new long[] { 1L, 2L }), ReportQueryParser.keyValue(Arrays.asList(1L, 2L)));
+		assertEquals(ReportQueryParser.keyValue(new int[][] { { 1 }, { 2 } }), ReportQueryParser.keyValue(new int[][] { { 1 }, { 2 } }));
+		assertNotEquals(ReportQueryParser.keyValue(new int[] { 1 }), ReportQueryParser.keyValue(new long[] { 1L }));
+		assertNotEquals(ReportQueryParser.keyValue(new String[] { "a,b" }), ReportQueryParser.keyValue(new String[] { "a", "b" }));
+	}
+}
@@ -0,0 +1,128 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportRowTypesTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test end-to-end della generazione di un report con campi primitivi, `LocalDate`, `LocalDateTime`, `Instant` ed enumerazioni:
+ * le righe passano dalla classe generata e dalla scrittura delle celle di generator-excel e il file XLSX viene riletto con POI.
+ */
+class ReportRowTypesTest {
+
+	public enum ReportTypesStatus {
+		OPEN, CLOSED
+	}
+
+	public static class ReportTypesEntity {
+		private int quantity;
+		private long code;
+		private double weight;
+		private boolean active;
+		private LocalDate day;
+		private LocalDateTime moment;
+		private Instant instant;
+		private ReportTypesStatus status;
+
+		public ReportTypesEntity(int quantity, long code, double weight, boolean active, LocalDate day, LocalDateTime moment, Instant instant,
+				ReportTypesStatus status) {
+			this.quantity = quantity;
+			this.code = code;
+			this.weight = weight;
+			this.active = active;
+			this.day = day;
+			this.moment = moment;
+			this.instant = instant;
+			this.status = status;
+		}
+	}
+
+	private static final LocalDate DAY = LocalDate.of(2024, 2, 29);
+	private static final LocalDateTime MOMENT = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+	private static final Instant INSTANT = LocalDateTime.of(2024, 3, 2, 8, 0, 45).atZone(ZoneId.systemDefault()).toInstant();
+
+	private static List<ReportTypesEntity> rows() {
+		return Arrays.asList(new ReportTypesEntity(42, 7_000_000_000L, 1.5, true, DAY, MOMENT, INSTANT, ReportTypesStatus.CLOSED));
+	}
+
+	@Test
+	void writesConvertedTypesInXlsxCells() throws Exception {
+		byte[] xlsx = ReportBuilder.getInstance().build(ReportTypesEntity.class, "tipi", rows()).generateXlsx();
+
+		try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(xlsx))) {
+			Sheet sheet = workbook.getSheetAt(0);
+			Row headerRow = headerRow(sheet);
+			Map<String, Cell> cells = new HashMap<>();
+			Row row = sheet.getRow(headerRow.getRowNum() + 1);
+			assertNotNull(row);
+			for (Cell headerCell : headerRow) {
+				cells.put(headerCell.getStringCellValue(), row.getCell(headerCell.getColumnIndex()));
+			}
+
+			assertEquals(42, cells.get("QUANTITY").getNumericCellValue());
+			assertEquals(7_000_000_000L, (long) cells.get("CODE").getNumericCellValue());
+			assertEquals(1.5, cells.get("WEIGHT").getNumericCellValue());
+			assertTrue(booleanValue(cells.get("ACTIVE")));
+			assertEquals(Date.from(DAY.atStartOfDay(ZoneId.systemDefault()).toInstant()), cells.get("DAY").getDateCellValue());
+			assertEquals(Date.from(MOMENT.atZone(ZoneId.systemDefault()).toInstant()), cells.get("MOMENT").getDateCellValue());
+			assertEquals(Date.from(INSTANT), cells.get("INSTANT").getDateCellValue());
+			assertEquals("CLOSED", cells.get("STATUS").getStringCellValue());
+		}
+	}
+
+	@Test
+	void writesConvertedTypesInCsv() throws Exception {
+		String csv = new String(ReportBuilder.getInstance().build(ReportTypesEntity.class, "tipi", rows()).generateCsv(), StandardCharsets.UTF_8);
+
+		String instant = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").format(INSTANT.atZone(ZoneId.systemDefault()));
+		assertEquals("\"QUANTITY\",\"CODE\",\"WEIGHT\",\"ACTIVE\",\"DAY\",\"MOMENT\",\"INSTANT\",\"STATUS\"\n"
+				+ "42,7000000000,1.5,true,2024-02-29,2024-03-01T10:15:30.000," + instant + ",\"CLOSED\"\n", csv);
+		assertTrue(instant.startsWith("2024-03-02T08:00:45.000"));
+	}
+
+	/**
+	 * Restituisce la riga di intestazione del foglio, cioè la prima riga con la cella "QUANTITY".
+	 */
+	private static Row headerRow(Sheet sheet) {
+		for (Row row : sheet) {
+			for (Cell cell : row) {
+				if (cell.getCellType() == CellType.STRING && "QUANTITY".equals(cell.getStringCellValue())) {
+					return row;
+				}
+			}
+		}
+		throw new AssertionError("Intestazione del report non trovata.");
+	}
+
+	/**
+	 * Legge il valore di una cella booleana, scritta come cella booleana o come testo.
+	 */
+	private static boolean booleanValue(Cell cell) {
+		return cell.getCellType() == CellType.BOOLEAN ? cell.getBooleanCellValue() : Boolean.parseBoolean(cell.getStringCellValue());
+	}
+}
@@ -0,0 +1,83 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportSchemaTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import bld.generator.report.excel.RowSheet;
+import bld.generator.report.excel.annotation.ExcelColumn;
+
+/**
+ * Test dello schema delle classi di input e delle classi di riga: campi ammessi, nomi delle colonne, colonne della SELECT e ordine
+ * delle colonne `ExcelColumn`, anche per le classi generate da `ReportRowClassGenerator`.
+ */
+class ReportSchemaTest {
+
+	public enum SchemaStatus {
+		OPEN, CLOSED
+	}
+
+	public static class SchemaEntity implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private static final String CONSTANT = "constant";
+		private Long id;
+		private String partitaIva;
+		private int quantity;
+		private BigDecimal amount;
+		private LocalDate day;
+		private SchemaStatus status;
+		private List<String> notes;
+	}
+
+	@Test
+	void describesInputClassFields() {
+		ReportSchema schema = ReportSchema.of(SchemaEntity.class);
+
+		assertEquals(Arrays.asList("id", "partitaIva", "quantity", "amount", "day", "status"), schema.getFieldNames());
+		assertEquals("item.id, item.partitaIva, item.quantity, item.amount, item.day, item.status", schema.getSelectColumns());
+		assertEquals("PARTITA IVA", schema.getColumnName(1));
+		assertEquals(4, schema.indexOf("day"));
+		assertEquals(-1, schema.indexOf("notes"));
+		assertEquals(0, schema.getColumnFields().length);
+		assertSame(schema, ReportSchema.of(SchemaEntity.class));
+	}
+
+	@Test
+	void sortsColumnFieldsByIndexColumn() {
+		assertEquals(Arrays.asList("id", "description", "quantity", "weight", "amount", "active", "createdDate"), names(ReportSchema.of(ReportTestRow.class).getColumnFields()));
+	}
+
+	@Test
+	void describesGeneratedRowClass() throws Exception {
+		Class<? extends RowSheet> rowClass = ReportRowClassGenerator.generateReportRowClass(SchemaEntity.class);
+		ReportSchema schema = ReportSchema.of(rowClass);
+
+		assertEquals(ReportSchema.of(SchemaEntity.class).getFieldNames(), schema.getFieldNames());
+		assertEquals("item.id, item.partitaIva, item.quantity, item.amount, item.day, item.status", schema.getSelectColumns());
+		Field[] columnFields = schema.getColumnFields();
+		assertEquals(schema.getFieldNames(), names(columnFields));
+		assertEquals("PARTITA IVA", columnFields[1].getAnnotation(ExcelColumn.class).columnName());
+		assertEquals(int.class, columnFields[2].getType());
+		assertEquals(Date.class, columnFields[4].getType());
+		assertEquals(String.class, columnFields[5].getType());
+	}
+
+	private static List<String> names(Field[] fields) {
+		return Arrays.stream(fields).map(Field::getName).collect(Collectors.toList());
+	}
+}
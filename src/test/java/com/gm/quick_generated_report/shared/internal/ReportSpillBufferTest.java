@@ -0,0 +1,109 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportSpillBufferTest.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test della lista delle righe con limite di memoria: righe in memoria entro il limite, righe oltre il limite memorizzate su disco e rilette
+ * dai file mappati in memoria, rimozione dei file temporanei alla chiusura.
+ */
+class ReportSpillBufferTest {
+
+	private static final int ROWS = ReportColumnBatch.DEFAULT_CAPACITY + 100;
+	private static final long HEAP_BUDGET_BYTES = 1024;
+
+	private Path spillDirectory;
+
+	@BeforeEach
+	void createSpillDirectory() throws IOException {
+		spillDirectory = Files.createTempDirectory("report-spill-test-");
+	}
+
+	@AfterEach
+	void deleteSpillDirectory() throws IOException {
+		try (Stream<Path> spillFiles = Files.list(spillDirectory)) {
+			for (Path spillFile : (Iterable<Path>) spillFiles::iterator) {
+				Files.deleteIfExists(spillFile);
+			}
+		}
+		Files.deleteIfExists(spillDirectory);
+	}
+
+	private static List<ReportTestRow> rows(int count) {
+		List<ReportTestRow> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			rows.add(new ReportTestRow((long) i, i % 7 == 0 ? null : "riga " + (i % 5), i, i / 4d, BigDecimal.valueOf(i, 2), i % 2 == 0, new Date(i * 1000L)));
+		}
+		return rows;
+	}
+
+	private long spillFileCount() throws IOException {
+		try (Stream<Path> spillFiles = Files.list(spillDirectory)) {
+			return spillFiles.count();
+		}
+	}
+
+	@Test
+	void spillsRowsOverHeapBudgetAndReadsThemBack() throws Exception {
+		List<ReportTestRow> rows = rows(ROWS);
+		try (ReportSpillBuffer<ReportTestRow> spillBuffer = ReportSpillBuffer.define(ReportTestRow.class, rows, HEAP_BUDGET_BYTES, spillDirectory)) {
+			int heapRows = spillBuffer.size() - spillBuffer.getSpilledRows();
+			assertEquals(ROWS, spillBuffer.size());
+			assertTrue(heapRows > 0 && heapRows < 10, "righe in memoria: " + heapRows);
+			assertEquals(2, spillBuffer.getSpilledBatchCount());
+			assertTrue(spillFileCount() > 0);
+			for (int i = 0; i < ROWS; i++) {
+				assertArrayEquals(rows.get(i).values(), spillBuffer.get(i).values(), "riga " + i);
+			}
+			assertThrows(IndexOutOfBoundsException.class, () -> spillBuffer.get(ROWS));
+		}
+		assertEquals(0, spillFileCount());
+	}
+
+	@Test
+	void spillsAllRowsWithoutHeapBudget() throws Exception {
+		List<ReportTestRow> rows = rows(10);
+		try (ReportSpillBuffer<ReportTestRow> spillBuffer = ReportSpillBuffer.create(ReportTestRow.class, 0, spillDirectory)) {
+			for (ReportTestRow row : rows) {
+				spillBuffer.append(row);
+			}
+			spillBuffer.finish();
+
+			assertEquals(10, spillBuffer.getSpilledRows());
+			assertEquals(1, spillBuffer.getSpilledBatchCount());
+			ReportColumnBatch batch = spillBuffer.readSpilledBatch(0);
+			assertEquals(10, batch.size());
+			assertEquals(9L, batch.getValue(0, 9));
+		}
+		assertEquals(0, spillFileCount());
+	}
+
+	@Test
+	void keepsRowsInHeapWithinBudget() throws Exception {
+		try (ReportSpillBuffer<ReportTestRow> spillBuffer = ReportSpillBuffer.define(ReportTestRow.class, rows(10), Long.MAX_VALUE, spillDirectory)) {
+			assertEquals(10, spillBuffer.size());
+			assertEquals(0, spillBuffer.getSpilledRows());
+		}
+		assertEquals(0, spillFileCount());
+	}
+}
@@ -0,0 +1,101 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportTestPersistence.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+
+/**
+ * `EntityManagerFactory` di test senza database: ogni query eseguita viene registrata e il suo risultato è calcolato in memoria
+ * dal `QueryHandler` specificato a partire dal testo JPQL, dai parametri associati e dal numero massimo di righe.
+ */
+class ReportTestPersistence {
+
+	/**
+	 * Calcola il risultato di una query eseguita.
+	 */
+	interface QueryHandler {
+		Object execute(String query, Map<String, Object> parameters, int maxResults);
+	}
+
+	private final QueryHandler queryHandler;
+	private final List<String> executedQueries = Collections.synchronizedList(new ArrayList<>());
+
+	private ReportTestPersistence(QueryHandler queryHandler) {
+		this.queryHandler = queryHandler;
+	}
+
+	protected static ReportTestPersistence define(QueryHandler queryHandler) {
+		return new ReportTestPersistence(queryHandler);
+	}
+
+	/**
+	 * @return Il testo JPQL delle query eseguite, nell'ordine di esecuzione.
+	 */
+	protected List<String> getExecutedQueries() {
+		return executedQueries;
+	}
+
+	protected EntityManagerFactory entityManagerFactory() {
+		return (EntityManagerFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { EntityManagerFactory.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "createEntityManager":
+				return entityManager();
+			case "isOpen":
+				return true;
+			default:
+				return null;
+			}
+		});
+	}
+
+	private EntityManager entityManager() {
+		return (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { EntityManager.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "createQuery":
+				return query((String) args[0]);
+			case "isOpen":
+				return true;
+			default:
+				return null;
+			}
+		});
+	}
+
+	private TypedQuery<?> query(String jpql) {
+		Map<String, Object> parameters = new LinkedHashMap<>();
+		int[] maxResults = { Integer.MAX_VALUE };
+		return (TypedQuery<?>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { TypedQuery.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "setParameter":
+				parameters.put((String) args[0], args[1]);
+				return proxy;
+			case "setMaxResults":
+				maxResults[0] = (Integer) args[0];
+				return proxy;
+			case "getResultList":
+				executedQueries.add(jpql);
+				return queryHandler.execute(jpql, parameters, maxResults[0]);
+			case "getResultStream":
+				executedQueries.add(jpql);
+				return ((List<?>) queryHandler.execute(jpql, parameters, maxResults[0])).stream();
+			case "getSingleResult":
+				executedQueries.add(jpql);
+				return queryHandler.execute(jpql, parameters, maxResults[0]);
+			default:
+				return proxy;
+			}
+		});
+	}
+}
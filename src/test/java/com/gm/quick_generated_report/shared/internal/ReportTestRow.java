@@ -0,0 +1,57 @@
+/**
+* @author Giuseppe Mondelli
+* @mail giuseppe.mondelli@dxc.com
+* @class com.gm.quick_generated_report.shared.internal.ReportTestRow.java
+*/
+package com.gm.quick_generated_report.shared.internal;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import bld.generator.report.excel.RowSheet;
+import bld.generator.report.excel.annotation.ExcelColumn;
+import bld.generator.report.excel.annotation.ExcelDate;
+import bld.generator.report.excel.constant.ColumnDateFormat;
+
+/**
+ * Classe di riga di test scritta a mano con le annotazioni `ExcelColumn` delle classi generate, con una colonna per ciascun tipo di memorizzazione
+ * di `ReportColumnBatch`.
+ */
+public class ReportTestRow implements RowSheet {
+
+	@ExcelColumn(columnName = "ID", indexColumn = 0.0)
+	private Long id;
+	@ExcelColumn(columnName = "DESCRIPTION", indexColumn = 1.0)
+	private String description;
+	@ExcelColumn(columnName = "QUANTITY", indexColumn = 2.0)
+	private Integer quantity;
+	@ExcelColumn(columnName = "WEIGHT", indexColumn = 3.0)
+	private Double weight;
+	@ExcelColumn(columnName = "AMOUNT", indexColumn = 4.0)
+	private BigDecimal amount;
+	@ExcelColumn(columnName = "ACTIVE", indexColumn = 5.0)
+	private Boolean active;
+	@ExcelDate(format = ColumnDateFormat.YYYY_MM_DD)
+	@ExcelColumn(columnName = "CREATED DATE", indexColumn = 6.0)
+	private Date createdDate;
+
+	public ReportTestRow() {
+	}
+
+	protected ReportTestRow(Long id, String description, Integer quantity, Double weight, BigDecimal amount, Boolean active, Date createdDate) {
+		this.id = id;
+		this.description = description;
+		this.quantity = quantity;
+		this.weight = weight;
+		this.amount = amount;
+		this.active = active;
+		this.createdDate = createdDate;
+	}
+
+	/**
+	 * @return I valori della riga nell'ordine delle colonne.
+	 */
+	protected Object[] values() {
+		return new Object[] { id, description, quantity, weight, amount, active, createdDate };
+	}
+}